@@ -15,16 +15,21 @@ import net.dv8tion.jda.api.JDA;
 import ooo.foooooooooooo.velocitydiscord.commands.Commands;
 import ooo.foooooooooooo.velocitydiscord.compat.LuckPerms;
 import ooo.foooooooooooo.velocitydiscord.config.Config;
-import ooo.foooooooooooo.velocitydiscord.database.DatabaseManager;
+import ooo.foooooooooooo.velocitydiscord.database.*;
 import ooo.foooooooooooo.velocitydiscord.discord.Discord;
+import ooo.foooooooooooo.velocitydiscord.util.ChatFilter;
+import ooo.foooooooooooo.velocitydiscord.util.LinkManager;
+import ooo.foooooooooooo.velocitydiscord.util.PlayerSessions;
 import ooo.foooooooooooo.velocitydiscord.yep.YepListener;
 import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 
@@ -61,7 +66,11 @@ public class VelocityDiscord {
 
   private final Path dataDirectory;
 
-  private DatabaseManager databaseManager;
+  @Nullable
+  private volatile DatabaseManager databaseManager;
+
+  private DeferredLinkStore linkStore;
+  private VerificationWriter verificationWriter;
 
   @Nullable
   private VelocityListener listener = null;
@@ -77,6 +86,17 @@ public class VelocityDiscord {
 
   private ScheduledTask pingScheduler = null;
   private ScheduledTask topicScheduler = null;
+  private ScheduledTask sweepScheduler = null;
+  private ScheduledTask changeFeedScheduler = null;
+  private ScheduledTask reconcileScheduler = null;
+
+  @Nullable
+  private PendingLinkSweeper sweeper = null;
+
+  private LinkChangeFeed changeFeed;
+
+  private final PlayerSessions sessions = new PlayerSessions();
+  private final ChatFilter chatFilter = new ChatFilter();
 
   @Inject
   public VelocityDiscord(ProxyServer server, Logger logger, @DataDirectory Path dataDirectory) {
@@ -87,6 +107,8 @@ public class VelocityDiscord {
 
     LOGGER.info("Loading {} v{}", PluginName, PluginVersion);
 
+    var start = System.nanoTime();
+
     reloadConfig();
 
     VelocityDiscord.instance = this;
@@ -95,24 +117,76 @@ public class VelocityDiscord {
       return;
     }
 
-    this.databaseManager = new DatabaseManager(CONFIG.bot);
-    this.discord = new Discord();
+    LOGGER.info("Config loaded in {} ms", (System.nanoTime() - start) / 1_000_000);
+
+    // migrations and the discord login both run in the background, link commands and bridge messages
+    // sent before they finish are queued until they are ready
+    this.linkStore = new DeferredLinkStore(openLinkStore(start));
+    this.verificationWriter = new VerificationWriter(this.linkStore,
+      CONFIG.bot.DB_VERIFY_BATCH_SIZE,
+      CONFIG.bot.DB_VERIFY_FLUSH_MILLIS
+    );
+    // a transaction is one database call, which is given up on after the query timeout, a gap left open for twice
+    // as long belongs to one that was rolled back
+    this.changeFeed = new LinkChangeFeed(this.linkStore,
+      LinkManager::applyChange,
+      Math.max(0, CONFIG.bot.DB_QUERY_TIMEOUT_SECONDS) * 2000L
+    );
+    LinkManager.configure(this.dataDirectory);
+    this.chatFilter.reload(this.dataDirectory);
+    this.discord = new Discord(this.dataDirectory);
 
     if (server.getPluginManager().isLoaded(VelocityDiscord.YeplibId)) {
       this.yep = new YepListener();
     }
 
     this.listener = new VelocityListener(this.discord);
+
+    CompletableFuture.allOf(this.linkStore.whenReady(), this.discord.whenReady())
+      .thenRun(() -> LOGGER.info("Startup complete after {} ms", (System.nanoTime() - start) / 1_000_000));
+
+    LOGGER.info("Plugin loaded in {} ms, waiting for link storage and discord in the background",
+      (System.nanoTime() - start) / 1_000_000
+    );
   }
 
   public static Discord getDiscord() {
     return instance.discord;
   }
 
+  /**
+   * @return The MariaDB connection pool, or null when links are stored in a file
+   */
+  @Nullable
   public static DatabaseManager getDatabaseManager() {
     return instance.databaseManager;
   }
 
+  public static LinkStore getLinkStore() {
+    return instance.linkStore;
+  }
+
+  public static VerificationWriter getVerificationWriter() {
+    return instance.verificationWriter;
+  }
+
+  @Nullable
+  public static PendingLinkSweeper getPendingLinkSweeper() {
+    return instance.sweeper;
+  }
+
+  public static LinkChangeFeed getLinkChangeFeed() {
+    return instance.changeFeed;
+  }
+
+  public static PlayerSessions getSessions() {
+    return instance.sessions;
+  }
+
+  public static ChatFilter getChatFilter() {
+    return instance.chatFilter;
+  }
+
   public static VelocityListener getListener() {
     return instance.listener;
   }
@@ -136,9 +210,14 @@ public class VelocityDiscord {
     }
     SERVER.getChannelRegistrar().register(YepIdentifier);
 
+    Commands.RegisterCommands(SERVER.getCommandManager());
+
     if (CONFIG != null) {
       tryStartPingScheduler();
       tryStartTopicScheduler();
+      tryStartSweepScheduler();
+      tryStartChangeFeedScheduler();
+      tryStartReconcileScheduler();
     }
 
 // Register commands using CommandMeta
@@ -158,7 +237,7 @@ public class VelocityDiscord {
 
     try {
       if (SERVER.getPluginManager().getPlugin("luckperms").isPresent()) {
-        this.luckPerms = new LuckPerms();
+        this.luckPerms = new LuckPerms(this);
         LOGGER.info("LuckPerms found, prefix can be displayed");
       }
     } catch (Exception e) {
@@ -174,10 +253,17 @@ public class VelocityDiscord {
   public void onProxyShutdown(ProxyShutdownEvent event) {
     if (this.discord != null) {
       this.discord.shutdown();
+      this.discord.getRoleMutationQueue().shutdown();
     }
-    if (this.databaseManager != null) {
-      this.databaseManager.close();
-      LOGGER.info("Database connection pool closed.");
+    if (this.luckPerms != null) {
+      this.luckPerms.close();
+    }
+    if (this.verificationWriter != null) {
+      this.verificationWriter.shutdown();
+    }
+    if (this.linkStore != null) {
+      this.linkStore.close();
+      LOGGER.info("Link storage closed.");
     }
   }
 
@@ -211,6 +297,34 @@ public class VelocityDiscord {
 
       tryStartTopicScheduler();
 
+      // sweep settings may have changed, always reschedule
+      if (this.sweepScheduler != null) {
+        this.sweepScheduler.cancel();
+        this.sweepScheduler = null;
+      }
+
+      tryStartSweepScheduler();
+
+      if (this.changeFeedScheduler != null) {
+        this.changeFeedScheduler.cancel();
+        this.changeFeedScheduler = null;
+      }
+
+      tryStartChangeFeedScheduler();
+
+      if (this.reconcileScheduler != null) {
+        this.reconcileScheduler.cancel();
+        this.reconcileScheduler = null;
+      }
+
+      tryStartReconcileScheduler();
+
+      LinkManager.configure(this.dataDirectory);
+      this.chatFilter.reload(this.dataDirectory);
+
+      // avatar and webhook name formats may have changed
+      this.sessions.onConfigReload();
+
       if (this.discord != null) {
         this.discord.onConfigReload();
       }
@@ -252,4 +366,89 @@ public class VelocityDiscord {
       CONFIG.bot.UPDATE_CHANNEL_TOPIC_INTERVAL_MINUTES
     );
   }
+
+  private CompletableFuture<LinkStore> openLinkStore(long startedAt) {
+    var future = new CompletableFuture<LinkStore>();
+
+    var thread = new Thread(() -> {
+      try {
+        var store = createLinkStore();
+        LOGGER.info("{} link storage ready after {} ms", store.name(), (System.nanoTime() - startedAt) / 1_000_000);
+        future.complete(store);
+      } catch (Exception e) {
+        LOGGER.error("Failed to open link storage, linking will not work until the proxy restarts", e);
+        future.completeExceptionally(e);
+      }
+    }, "LumaLyte-SRV Storage Startup");
+
+    thread.setDaemon(true);
+    thread.start();
+
+    return future;
+  }
+
+  private LinkStore createLinkStore() {
+    var type = LinkStore.Type.parse(CONFIG.bot.DB_TYPE);
+
+    if (type == LinkStore.Type.FILE) {
+      try {
+        // a single thread keeps the log in order, the queue and timeout are shared with the database settings
+        var executor = new DatabaseExecutor(1,
+          CONFIG.bot.DB_QUEUE_SIZE,
+          Math.max(0, CONFIG.bot.DB_QUERY_TIMEOUT_SECONDS) * 1000L
+        );
+        var store = new FileLinkStore(this.dataDirectory, executor);
+        if (store.getSkippedLines() > 0) {
+          LOGGER.warn("Skipped {} unreadable lines in {}", store.getSkippedLines(), FileLinkStore.FILE_NAME);
+        }
+
+        LOGGER.info("Storing links in {}", this.dataDirectory.resolve(FileLinkStore.FILE_NAME));
+        return store;
+      } catch (IOException e) {
+        throw new RuntimeException("Cannot open link storage file", e);
+      }
+    }
+
+    this.databaseManager = new DatabaseManager(CONFIG.bot);
+    return new MariaDbLinkStore(this.databaseManager);
+  }
+
+  private void tryStartSweepScheduler() {
+    if (this.linkStore == null || CONFIG.bot.DB_SWEEP_INTERVAL_SECONDS <= 0) return;
+
+    this.sweeper = new PendingLinkSweeper(this.linkStore,
+      LinkManager.CODE_EXPIRATION_SECONDS,
+      CONFIG.bot.DB_SWEEP_BATCH_SIZE,
+      CONFIG.bot.DB_SWEEP_BATCH_PAUSE_MILLIS
+    );
+
+    this.sweepScheduler = SERVER.getScheduler()
+      .buildTask(this, this.sweeper)
+      .delay(CONFIG.bot.DB_SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS)
+      .repeat(CONFIG.bot.DB_SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS)
+      .schedule();
+
+    LOGGER.info("Scheduled task to purge expired link codes every {} seconds", CONFIG.bot.DB_SWEEP_INTERVAL_SECONDS);
+  }
+
+  private void tryStartChangeFeedScheduler() {
+    if (this.changeFeed == null || CONFIG.bot.DB_CHANGE_POLL_MILLIS <= 0) return;
+
+    this.changeFeedScheduler = SERVER.getScheduler()
+      .buildTask(this, this.changeFeed)
+      .repeat(CONFIG.bot.DB_CHANGE_POLL_MILLIS, TimeUnit.MILLISECONDS)
+      .schedule();
+  }
+
+  private void tryStartReconcileScheduler() {
+    if (this.discord == null || CONFIG.bot.ROLE_RECONCILE_INTERVAL_MINUTES <= 0) return;
+
+    this.reconcileScheduler = SERVER.getScheduler()
+      .buildTask(this, () -> this.discord.reconcileRoles(false))
+      .delay(CONFIG.bot.ROLE_RECONCILE_INTERVAL_MINUTES, TimeUnit.MINUTES)
+      .repeat(CONFIG.bot.ROLE_RECONCILE_INTERVAL_MINUTES, TimeUnit.MINUTES)
+      .schedule();
+
+    LOGGER.info("Scheduled role reconciliation every {} minutes", CONFIG.bot.ROLE_RECONCILE_INTERVAL_MINUTES);
+  }
 }
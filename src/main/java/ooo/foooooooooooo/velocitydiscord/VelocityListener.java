@@ -4,6 +4,8 @@ import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.event.connection.PostLoginEvent;
 import com.velocitypowered.api.event.player.PlayerChatEvent;
 import com.velocitypowered.api.event.player.ServerConnectedEvent;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
@@ -11,8 +13,6 @@ import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import com.velocitypowered.api.proxy.server.ServerPing;
-import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.entities.Role;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import ooo.foooooooooooo.velocitydiscord.discord.Discord;
@@ -46,12 +46,23 @@ public class VelocityListener {
       return;
     }
 
-    var username = event.getPlayer().getUsername();
-    var uuid = event.getPlayer().getUniqueId();
+    var session = VelocityDiscord.getSessions().get(event.getPlayer());
 
-    var prefix = getPrefix(uuid);
+    this.discord.onPlayerChat(session, server, event.getMessage());
+  }
+
+  @Subscribe
+  public void onLogin(LoginEvent event) {
+    if (!event.getResult().isAllowed()) {
+      return;
+    }
 
-    this.discord.onPlayerChat(username, uuid.toString(), prefix, server, event.getMessage());
+    // warm the link cache in the background so later lookups for this player don't hit the database
+    var uuid = event.getPlayer().getUniqueId().toString();
+    LinkManager.getLinkedDiscordId(uuid).exceptionally(throwable -> {
+      VelocityDiscord.LOGGER.debug("Failed to prefetch link for {}: {}", uuid, throwable.getMessage());
+      return null;
+    });
   }
 
   static class LinkCommand implements SimpleCommand {
@@ -77,8 +88,11 @@ public class VelocityListener {
 
       String code = args[0];
       String uuid = player.getUniqueId().toString();
+      String address = player.getRemoteAddress().getAddress() != null
+        ? player.getRemoteAddress().getAddress().getHostAddress()
+        : null;
 
-      LinkManager.validateLinkingCode(uuid, code)
+      LinkManager.validateLinkingCode(uuid, address, code)
         .thenAccept(result -> {
           player.sendMessage(Component.text(result.message, result.success ? NamedTextColor.GREEN : NamedTextColor.RED));
 
@@ -93,36 +107,22 @@ public class VelocityListener {
             return;
           }
 
-          VelocityDiscord.getDiscord().getJda().retrieveUserById(result.discordId).queue(
-            user -> {
-              // Find the guild (assuming the bot is in the guild where the role exists)
-              Guild guild = VelocityDiscord.getDiscord().getJda().getGuilds().stream()
-                .filter(g -> g.getRoleById(linkedRoleId) != null)
-                .findFirst()
-                .orElse(null);
-
-              if (guild == null) {
-                VelocityDiscord.LOGGER.error("Could not find a guild with role ID {}", linkedRoleId);
-                return;
+          // addressed by ID, queued until the bot has logged in during startup
+          VelocityDiscord.getDiscord().updateRole(linkedRoleId, Long.parseLong(result.discordId), true)
+            .whenComplete((role, throwable) -> {
+              if (throwable != null) {
+                var failure = throwable.getCause() != null ? throwable.getCause() : throwable;
+                VelocityDiscord.LOGGER.error("Failed to assign role {} to user {}: {}", linkedRoleId, result.discordId, failure.getMessage());
+              } else {
+                VelocityDiscord.LOGGER.info("Assigned role {} to user {} in guild {}", role.getName(), result.discordId, role.getGuild().getName());
               }
-
-              Role role = guild.getRoleById(linkedRoleId);
-              if (role == null) {
-                VelocityDiscord.LOGGER.error("Role with ID {} does not exist in guild {}", linkedRoleId, guild.getName());
-                return;
-              }
-
-              guild.addRoleToMember(user, role).queue(
-                success -> VelocityDiscord.LOGGER.info("Assigned role {} to user {} in guild {}", role.getName(), user.getId(), guild.getName()),
-                failure -> VelocityDiscord.LOGGER.error("Failed to assign role {} to user {}: {}", role.getName(), user.getId(), failure.getMessage())
-              );
-            },
-            failure -> VelocityDiscord.LOGGER.error("Failed to retrieve Discord user {}: {}", result.discordId, failure.getMessage())
-          );
+            });
         })
         .exceptionally(throwable -> {
           VelocityDiscord.LOGGER.error("Error processing /link command for player {}: {}", player.getUsername(), throwable.getMessage());
-          player.sendMessage(Component.text("An error occurred while linking your account. Please try again later.", NamedTextColor.RED));
+          player.sendMessage(Component.text(LinkManager.describeFailure(throwable,
+            "An error occurred while linking your account. Please try again later."
+          ), NamedTextColor.RED));
           return null;
         });
     }
@@ -159,36 +159,22 @@ public class VelocityListener {
               return;
             }
 
-            VelocityDiscord.getDiscord().getJda().retrieveUserById(result.discordId).queue(
-              user -> {
-                // Find the guild (assuming the bot is in the guild where the role exists)
-                Guild guild = VelocityDiscord.getDiscord().getJda().getGuilds().stream()
-                  .filter(g -> g.getRoleById(linkedRoleId) != null)
-                  .findFirst()
-                  .orElse(null);
-
-                if (guild == null) {
-                  VelocityDiscord.LOGGER.error("Could not find a guild with role ID {}", linkedRoleId);
-                  return;
-                }
-
-                Role role = guild.getRoleById(linkedRoleId);
-                if (role == null) {
-                  VelocityDiscord.LOGGER.error("Role with ID {} does not exist in guild {}", linkedRoleId, guild.getName());
-                  return;
+            // addressed by ID, queued until the bot has logged in during startup
+            VelocityDiscord.getDiscord().updateRole(linkedRoleId, Long.parseLong(result.discordId), false)
+              .whenComplete((role, throwable) -> {
+                if (throwable != null) {
+                  var failure = throwable.getCause() != null ? throwable.getCause() : throwable;
+                  VelocityDiscord.LOGGER.error("Failed to remove role {} from user {}: {}", linkedRoleId, result.discordId, failure.getMessage());
+                } else {
+                  VelocityDiscord.LOGGER.info("Removed role {} from user {} in guild {}", role.getName(), result.discordId, role.getGuild().getName());
                 }
-
-                guild.removeRoleFromMember(user, role).queue(
-                  success -> VelocityDiscord.LOGGER.info("Removed role {} from user {} in guild {}", role.getName(), user.getId(), guild.getName()),
-                  failure -> VelocityDiscord.LOGGER.error("Failed to remove role {} from user {}: {}", role.getName(), user.getId(), failure.getMessage())
-                );
-              },
-              failure -> VelocityDiscord.LOGGER.error("Failed to retrieve Discord user {}: {}", result.discordId, failure.getMessage())
-            );
+              });
           })
           .exceptionally(throwable -> {
             VelocityDiscord.LOGGER.error("Error processing /unlink command for player {}: {}", player.getUsername(), throwable.getMessage());
-            player.sendMessage(Component.text("An error occurred while unlinking your account. Please try again later.", NamedTextColor.RED));
+            player.sendMessage(Component.text(LinkManager.describeFailure(throwable,
+              "An error occurred while unlinking your account. Please try again later."
+            ), NamedTextColor.RED));
             return null;
           });
       }
@@ -234,34 +220,37 @@ public class VelocityListener {
 
     setServerOnline(server);
 
-    var username = event.getPlayer().getUsername();
     var previousServer = event.getPreviousServer();
     var previousName = previousServer.map(s -> s.getServerInfo().getName()).orElse(null);
 
-    var uuid = event.getPlayer().getUniqueId();
+    var session = VelocityDiscord.getSessions().get(event.getPlayer());
 
-    var prefix = getPrefix(uuid);
+    this.discord.updateChatCompletions(event.getPlayer(), server);
 
     // if previousServer is disabled but the current server is not, treat it as a join
     if (previousServer.isPresent() && !VelocityDiscord.CONFIG.serverDisabled(previousName)) {
-      this.discord.onServerSwitch(username, uuid.toString(), prefix, server, previousName);
+      this.discord.onServerSwitch(session, server, previousName);
     } else {
-      this.discord.onJoin(event.getPlayer(), prefix, server);
+      this.discord.onJoin(session, server);
     }
   }
 
+  @Subscribe
+  public void onPostLogin(PostLoginEvent event) {
+    VelocityDiscord.getSessions().open(event.getPlayer());
+  }
+
   @Subscribe
   public void onDisconnect(DisconnectEvent event) {
     updatePlayerCount();
 
     var currentServer = event.getPlayer().getCurrentServer();
 
-    var username = event.getPlayer().getUsername();
-    var uuid = event.getPlayer().getUniqueId();
-    var prefix = getPrefix(uuid);
+    var session = VelocityDiscord.getSessions().close(event.getPlayer());
+    this.discord.onPlayerDisconnect(session.getUuid());
 
     if (currentServer.isEmpty()) {
-      this.discord.onDisconnect(username, uuid.toString(), prefix, "");
+      this.discord.onDisconnect(session, "");
     } else {
       var name = currentServer.get().getServerInfo().getName();
 
@@ -271,7 +260,7 @@ public class VelocityListener {
 
       setServerOnline(name);
 
-      this.discord.onLeave(username, uuid.toString(), prefix, name);
+      this.discord.onLeave(session, name);
     }
   }
 
@@ -303,18 +292,6 @@ public class VelocityListener {
     this.discord.updateActivityPlayerAmount(VelocityDiscord.SERVER.getPlayerCount());
   }
 
-  private Optional<String> getPrefix(UUID uuid) {
-    var luckPerms = VelocityDiscord.getLuckPerms();
-    if (luckPerms == null) return Optional.empty();
-
-    var user = luckPerms.getUserManager().getUser(uuid);
-    if (user != null) {
-      return Optional.ofNullable(user.getCachedData().getMetaData().getPrefix());
-    }
-
-    return Optional.empty();
-  }
-
   /**
    * Ping all servers and update online state
    */
@@ -10,6 +10,8 @@ public final class Commands {
       .literalArgumentBuilder("discord")
       .then(ReloadCommand.create())
       .then(TopicPreviewCommand.create())
+      .then(DatabaseCommand.create())
+      .then(ReconcileCommand.create())
       .build();
 
     var command = new BrigadierCommand(node);
@@ -0,0 +1,103 @@
+package ooo.foooooooooooo.velocitydiscord.commands;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.velocitypowered.api.command.BrigadierCommand;
+import com.velocitypowered.api.command.CommandSource;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.util.LinkManager;
+
+import java.text.MessageFormat;
+
+public final class DatabaseCommand {
+  public static LiteralArgumentBuilder<CommandSource> create() {
+    return BrigadierCommand
+      .literalArgumentBuilder("db")
+      .requires(source -> source.hasPermission("discord.db"))
+      .executes(source -> {
+        var store = VelocityDiscord.getLinkStore();
+
+        if (store == null) {
+          source.getSource().sendPlainMessage("Plugin not initialized");
+          return 0;
+        }
+
+        var sb = new StringBuilder();
+        sb.append("Link storage: ").append(store.name()).append('\n');
+
+        var database = VelocityDiscord.getDatabaseManager();
+        if (database != null) {
+          var pool = database.getPoolStats();
+          if (pool != null) {
+            sb.append(MessageFormat.format("Pool: {0} active, {1} idle, {2}/{3} open, {4} waiting\n",
+              pool.active(),
+              pool.idle(),
+              pool.total(),
+              pool.max(),
+              pool.waiting()
+            ));
+          }
+
+          var executor = database.getExecutor().stats();
+          sb.append(MessageFormat.format(
+            "Queue: {0} queued, {1} running, {2} done, {3} rejected, {4} timed out, wait avg {5}us max {6}us\n",
+            executor.queueDepth(),
+            executor.active(),
+            executor.completed(),
+            executor.rejected(),
+            executor.timedOut(),
+            executor.averageWaitMicros(),
+            executor.maxWaitMicros()
+          ));
+
+          var metrics = database.getMetrics();
+          sb.append("Pool acquire: ").append(metrics.getPoolAcquire()).append('\n');
+          metrics.getOperations().forEach((operation, latency) -> {
+            sb.append("  ").append(operation).append(": ").append(latency);
+
+            var errors = metrics.getErrors(operation);
+            if (errors > 0) sb.append(" errors=").append(errors);
+
+            sb.append('\n');
+          });
+        }
+
+        var cache = LinkManager.getCacheStats();
+        sb.append(String.format("Link cache: %d + %d entries, hit ratio %.1f%% / %.1f%%\n",
+          cache.byUuid().size(),
+          cache.byDiscordId().size(),
+          cache.byUuid().hitRatio() * 100,
+          cache.byDiscordId().hitRatio() * 100
+        ));
+
+        sb.append("Verifications waiting to be written: ")
+          .append(VelocityDiscord.getVerificationWriter().getPendingCount())
+          .append('\n');
+
+        var feed = VelocityDiscord.getLinkChangeFeed();
+        if (feed != null) {
+          sb.append(MessageFormat.format("Change feed: at change {0}, {1} applied\n",
+            String.valueOf(feed.getCursor()),
+            feed.getApplied()
+          ));
+        }
+
+        var sweeper = VelocityDiscord.getPendingLinkSweeper();
+        var lastSweep = sweeper == null ? null : sweeper.getLastRun();
+        if (lastSweep != null) {
+          sb.append(MessageFormat.format(
+            "Last sweep: {0} codes purged in {1} batches, avg {2} ms, max {3} ms, {4} old changes purged",
+            lastSweep.purged(),
+            lastSweep.batches(),
+            lastSweep.averageBatchMillis(),
+            lastSweep.maxBatchMillis(),
+            lastSweep.changesPurged()
+          ));
+        }
+
+        source.getSource().sendPlainMessage(sb.toString().stripTrailing());
+
+        return Command.SINGLE_SUCCESS;
+      });
+  }
+}
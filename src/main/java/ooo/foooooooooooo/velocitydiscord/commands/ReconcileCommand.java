@@ -0,0 +1,41 @@
+package ooo.foooooooooooo.velocitydiscord.commands;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.velocitypowered.api.command.BrigadierCommand;
+import com.velocitypowered.api.command.CommandSource;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+public final class ReconcileCommand {
+  public static LiteralArgumentBuilder<CommandSource> create() {
+    return BrigadierCommand
+      .literalArgumentBuilder("reconcile")
+      .requires(source -> source.hasPermission("discord.reconcile"))
+      .executes(source -> run(source.getSource(), false))
+      .then(BrigadierCommand.literalArgumentBuilder("dry").executes(source -> run(source.getSource(), true)));
+  }
+
+  private static int run(CommandSource source, boolean dryRun) {
+    var discord = VelocityDiscord.getDiscord();
+
+    if (discord == null) {
+      source.sendPlainMessage("Plugin not initialized");
+      return 0;
+    }
+
+    source.sendPlainMessage(dryRun ? "Checking roles..." : "Reconciling roles...");
+
+    discord.reconcileRoles(dryRun).whenComplete((result, throwable) -> {
+      if (throwable != null) {
+        var cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+        source.sendPlainMessage("Role reconciliation failed: " + cause.getMessage());
+        return;
+      }
+
+      var queue = discord.getRoleMutationQueue();
+      source.sendPlainMessage(result + (dryRun ? "" : ", " + queue.getPendingCount() + " role changes queued"));
+    });
+
+    return Command.SINGLE_SUCCESS;
+  }
+}
@@ -1,16 +1,53 @@
 package ooo.foooooooooooo.velocitydiscord.compat;
 
 import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
 import net.luckperms.api.model.user.UserManager;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
 
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * LuckPerms access. Prefixes of online players are kept in their {@link ooo.foooooooooooo.velocitydiscord.util.PlayerSession}
+ * and refreshed whenever LuckPerms recalculates their data, so chat messages don't call into LuckPerms at all.
+ */
 public class LuckPerms {
   private final net.luckperms.api.LuckPerms luckPerms;
+  private final EventSubscription<UserDataRecalculateEvent> recalculateSubscription;
 
-  public LuckPerms() {
+  public LuckPerms(Object plugin) {
     this.luckPerms = LuckPermsProvider.get();
+    this.recalculateSubscription = this.luckPerms.getEventBus()
+      .subscribe(plugin, UserDataRecalculateEvent.class, this::onUserDataRecalculate);
   }
 
   public UserManager getUserManager() {
     return this.luckPerms.getUserManager();
   }
+
+  /**
+   * @return The prefix of a loaded user, looked up in LuckPerms
+   */
+  public Optional<String> getPrefix(UUID uuid) {
+    var user = this.luckPerms.getUserManager().getUser(uuid);
+    if (user != null) {
+      return Optional.ofNullable(user.getCachedData().getMetaData().getPrefix());
+    }
+
+    return Optional.empty();
+  }
+
+  public void close() {
+    this.recalculateSubscription.close();
+  }
+
+  private void onUserDataRecalculate(UserDataRecalculateEvent event) {
+    // only players who are online have a session to refresh
+    var session = VelocityDiscord.getSessions().get(event.getUser().getUniqueId());
+    if (session != null) {
+      session.setPrefix(Optional.ofNullable(event.getData().getMetaData().getPrefix()));
+    }
+  }
 }
@@ -1,6 +1,7 @@
 package ooo.foooooooooooo.velocitydiscord.config;
 
 import com.electronwill.nightconfig.core.Config;
+import ooo.foooooooooooo.velocitydiscord.config.commands.LinkCommandConfig;
 import ooo.foooooooooooo.velocitydiscord.config.commands.ListCommandConfig;
 
 public class BotConfig extends BaseConfig {
@@ -10,6 +11,8 @@ public class BotConfig extends BaseConfig {
   private static final String DefaultAvatarUrl = "https://crafatar.com/avatars/{uuid}?overlay";
 
   public final ListCommandConfig listCommand;
+  public final LinkCommandConfig linkCommand;
+  public final FilterConfig filter;
 
   // bot
   @Key(value = "discord.token", overridable = false)
@@ -30,6 +33,24 @@ public class BotConfig extends BaseConfig {
   public Boolean ENABLE_MENTIONS = true;
   @Key("discord.enable_everyone_and_here")
   public Boolean ENABLE_EVERYONE_AND_HERE = false;
+  // Escape discord markdown in chat messages so they show as typed
+  @Key("discord.escape_markdown")
+  public Boolean ESCAPE_MARKDOWN = false;
+  // Translate emoji to :shortcode: for Minecraft, and typed :shortcode: back to emoji for discord
+  @Key("discord.translate_emoji")
+  public Boolean TRANSLATE_EMOJI = true;
+  // Most @username chat completions sent to players per chat channel, 0 for no limit
+  @Key(value = "discord.mention_completion_limit", overridable = false)
+  public int MENTION_COMPLETION_LIMIT = 1000;
+  // "full" caches every guild member, "lean" only recently active ones
+  @Key(value = "discord.member_cache", overridable = false)
+  public String MEMBER_CACHE = "full";
+  // Most members kept by the lean member cache
+  @Key(value = "discord.member_cache_size", overridable = false)
+  public int MEMBER_CACHE_SIZE = 5000;
+  // Save chat channel members to disk for mentions and completions before the bot is ready
+  @Key(value = "discord.member_snapshot", overridable = false)
+  public boolean MEMBER_SNAPSHOT = true;
 
   // bot activity
   @Key(value = "discord.show_activity", overridable = false)
@@ -65,34 +86,115 @@ public class BotConfig extends BaseConfig {
   @Key("discord.linked_role_id")
   public String LINKED_ROLE_ID = "";
 
+  // "table" stores random codes in PendingLinks, "hmac" issues signed codes that need no storage
+  @Key(value = "linking.code_mode", overridable = false)
+  public String LINK_CODE_MODE = "table";
+  // Shared secret for hmac codes, generated into the data directory if empty
+  @Key(value = "linking.code_secret", overridable = false)
+  public String LINK_CODE_SECRET = "";
+  // Max number of cached link lookups, per direction
+  @Key(value = "linking.cache_size", overridable = false)
+  public int LINK_CACHE_SIZE = 10000;
+  // How long cached link lookups are kept, in seconds
+  @Key(value = "linking.cache_ttl", overridable = false)
+  public int LINK_CACHE_TTL_SECONDS = 600;
+  // /link attempts allowed per player, and per IP address, within the attempt window
+  @Key(value = "linking.max_attempts", overridable = false)
+  public int LINK_MAX_ATTEMPTS = 5;
+  @Key(value = "linking.max_attempts_per_ip", overridable = false)
+  public int LINK_MAX_ATTEMPTS_PER_IP = 20;
+  @Key(value = "linking.attempt_window", overridable = false)
+  public int LINK_ATTEMPT_WINDOW_SECONDS = 300;
+  // First lockout in seconds, doubles on every repeat up to the max
+  @Key(value = "linking.lockout", overridable = false)
+  public int LINK_LOCKOUT_SECONDS = 60;
+  @Key(value = "linking.max_lockout", overridable = false)
+  public int LINK_MAX_LOCKOUT_SECONDS = 3600;
+  // Minutes between role reconciliation runs, 0 to disable
+  @Key(value = "linking.reconcile_interval", overridable = false)
+  public int ROLE_RECONCILE_INTERVAL_MINUTES = 60;
+  // Milliseconds between queued role changes sent to discord
+  @Key(value = "linking.role_update_interval", overridable = false)
+  public int ROLE_UPDATE_INTERVAL_MILLIS = 500;
+
   // Database configuration
   private static final String DefaultDbUrl = "jdbc:mysql://localhost:3306/database";
   private static final String DefaultDbUser = "user";
   private static final String DefaultDbPassword = "password";
 
+  // "mariadb" or "file"
+  @Key(value = "database.type", overridable = false)
+  public String DB_TYPE = "mariadb";
   @Key("database.url")
   public String DB_URL = DefaultDbUrl;
   @Key("database.user")
   public String DB_USER = DefaultDbUser;
   @Key("database.password")
   public String DB_PASSWORD = DefaultDbPassword;
+  @Key(value = "database.pool_size", overridable = false)
+  public int DB_POOL_SIZE = 5;
+  @Key(value = "database.pool_min_idle", overridable = false)
+  public int DB_POOL_MIN_IDLE = 1;
+  @Key(value = "database.connection_timeout", overridable = false)
+  public int DB_CONNECTION_TIMEOUT_MILLIS = 30000;
+  @Key(value = "database.idle_timeout", overridable = false)
+  public int DB_IDLE_TIMEOUT_MILLIS = 600000;
+  @Key(value = "database.max_lifetime", overridable = false)
+  public int DB_MAX_LIFETIME_MILLIS = 1800000;
+  // 0 to disable
+  @Key(value = "database.leak_detection_threshold", overridable = false)
+  public int DB_LEAK_DETECTION_MILLIS = 0;
+  @Key(value = "database.queue_size", overridable = false)
+  public int DB_QUEUE_SIZE = 100;
+  // 0 to disable
+  @Key(value = "database.query_timeout", overridable = false)
+  public int DB_QUERY_TIMEOUT_SECONDS = 10;
+  // Seconds between purges of expired link codes, 0 to disable
+  @Key(value = "database.sweep_interval", overridable = false)
+  public int DB_SWEEP_INTERVAL_SECONDS = 300;
+  @Key(value = "database.sweep_batch_size", overridable = false)
+  public int DB_SWEEP_BATCH_SIZE = 500;
+  @Key(value = "database.sweep_batch_pause", overridable = false)
+  public int DB_SWEEP_BATCH_PAUSE_MILLIS = 250;
+  // Verified users are written in batches of up to this many rows
+  @Key(value = "database.verify_batch_size", overridable = false)
+  public int DB_VERIFY_BATCH_SIZE = 100;
+  @Key(value = "database.verify_flush_interval", overridable = false)
+  public int DB_VERIFY_FLUSH_MILLIS = 250;
+  // Milliseconds between checks for links changed by other proxies, 0 to disable
+  @Key(value = "database.change_poll_interval", overridable = false)
+  public int DB_CHANGE_POLL_MILLIS = 0;
 
   public BotConfig(Config config) {
     super(config);
     this.listCommand = new ListCommandConfig(config);
+    this.linkCommand = new LinkCommandConfig(config);
+    this.filter = new FilterConfig(config);
     loadConfig();
   }
 
   public BotConfig(Config config, BotConfig main) {
     super(config, main);
     this.listCommand = new ListCommandConfig(config, main.listCommand);
+    this.linkCommand = new LinkCommandConfig(config, main.linkCommand);
+    this.filter = new FilterConfig(config, main.filter);
     loadConfig();
   }
 
+  @Override
+  public void setInner(Config config) {
+    super.setInner(config);
+    this.listCommand.setInner(config);
+    this.linkCommand.setInner(config);
+    this.filter.setInner(config);
+  }
+
   @Override
   protected void loadConfig() {
     super.loadConfig();
     this.listCommand.loadConfig();
+    this.linkCommand.loadConfig();
+    this.filter.loadConfig();
   }
 
   public boolean isDefaultValues() {
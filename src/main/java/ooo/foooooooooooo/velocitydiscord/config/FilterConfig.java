@@ -0,0 +1,33 @@
+package ooo.foooooooooooo.velocitydiscord.config;
+
+import com.electronwill.nightconfig.core.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FilterConfig extends BaseConfig {
+  // File in the data directory with one blocked term per line
+  @Key(value = "discord.filter.words_file", overridable = false)
+  public String WORDS_FILE = "filter_words.txt";
+  // Blocked terms in addition to the ones in the file
+  @Key(value = "discord.filter.words", overridable = false)
+  public List<String> WORDS = new ArrayList<>();
+  // "none", "mask", "drop" or "flag", for each direction
+  @Key("discord.filter.minecraft_to_discord")
+  public String MINECRAFT_TO_DISCORD = "mask";
+  @Key("discord.filter.discord_to_minecraft")
+  public String DISCORD_TO_MINECRAFT = "mask";
+  // Channel flagged messages are reported to
+  @Key(value = "discord.filter.staff_channel", overridable = false)
+  public String STAFF_CHANNEL_ID = "";
+
+  public FilterConfig(Config config) {
+    super(config);
+    loadConfig();
+  }
+
+  public FilterConfig(Config config, FilterConfig main) {
+    super(config, main);
+    loadConfig();
+  }
+}
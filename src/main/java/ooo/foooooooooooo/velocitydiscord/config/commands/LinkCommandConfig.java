@@ -0,0 +1,23 @@
+package ooo.foooooooooooo.velocitydiscord.config.commands;
+
+import com.electronwill.nightconfig.core.Config;
+import ooo.foooooooooooo.velocitydiscord.config.BaseConfig;
+import ooo.foooooooooooo.velocitydiscord.config.Key;
+
+public class LinkCommandConfig extends BaseConfig {
+  @Key(value = "discord.commands.link.enabled", overridable = false)
+  public Boolean DISCORD_LINK_ENABLED = true;
+  // Also answer "!link" in text channels, sending the code by DM
+  @Key(value = "discord.commands.link.legacy_text_command", overridable = false)
+  public Boolean LEGACY_TEXT_COMMAND = true;
+
+  public LinkCommandConfig(Config config) {
+    super(config);
+    loadConfig();
+  }
+
+  public LinkCommandConfig(Config config, LinkCommandConfig main) {
+    super(config, main);
+    loadConfig();
+  }
+}
@@ -0,0 +1,146 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking database work on a small dedicated thread pool instead of {@link ForkJoinPool#commonPool()},
+ * which is shared with every other plugin on the proxy.
+ * <p>
+ * The pool has one thread per pooled connection so tasks never queue inside HikariCP, waiting tasks are held in a
+ * bounded queue, and every call is given a timeout. When the queue is full, calls fail immediately instead of
+ * piling up behind a slow database.
+ * <p>
+ * The timeout here only stops the caller waiting, {@link MariaDbLinkStore} sets the same timeout on its statements so
+ * the query itself is cancelled and the connection freed.
+ */
+public class DatabaseExecutor {
+  private final ThreadPoolExecutor executor;
+  private final long timeoutMillis;
+
+  private final AtomicLong started = new AtomicLong();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong timedOut = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  /**
+   * @param timeoutMillis How long a caller waits for its call, 0 or less to wait as long as it takes
+   */
+  public DatabaseExecutor(int threads, int queueCapacity, long timeoutMillis) {
+    this.timeoutMillis = Math.max(0, timeoutMillis);
+
+    var threadCount = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads,
+      threads,
+      60,
+      TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+      runnable -> {
+        var thread = new Thread(runnable, "LumaLyte-SRV Database #" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      },
+      new ThreadPoolExecutor.AbortPolicy()
+    );
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  public <T> CompletableFuture<T> supply(Supplier<T> task) {
+    var future = new CompletableFuture<T>();
+    var queuedAt = System.nanoTime();
+
+    try {
+      this.executor.execute(() -> {
+        recordWait(System.nanoTime() - queuedAt);
+
+        // the caller already gave up while this was queued
+        if (future.isDone()) return;
+
+        try {
+          future.complete(task.get());
+        } catch (Throwable t) {
+          future.completeExceptionally(t);
+        } finally {
+          this.completed.incrementAndGet();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      this.rejected.incrementAndGet();
+      VelocityDiscord.LOGGER.warn("Database executor saturated, rejecting call ({} queued)", getQueueDepth());
+      return CompletableFuture.failedFuture(new RejectedExecutionException(
+        "Database is busy (" + getQueueDepth() + " requests queued), try again shortly"
+      ));
+    }
+
+    if (this.timeoutMillis == 0) return future;
+
+    return future.orTimeout(this.timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((result, throwable) -> {
+      if (throwable instanceof TimeoutException) {
+        this.timedOut.incrementAndGet();
+        VelocityDiscord.LOGGER.warn("Database call timed out after {} ms", this.timeoutMillis);
+      }
+    });
+  }
+
+  public CompletableFuture<Void> run(Runnable task) {
+    return supply(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  private void recordWait(long waitNanos) {
+    this.started.incrementAndGet();
+    this.totalWaitNanos.addAndGet(waitNanos);
+    this.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+  }
+
+  public int getQueueDepth() {
+    return this.executor.getQueue().size();
+  }
+
+  public int getActiveCount() {
+    return this.executor.getActiveCount();
+  }
+
+  public Stats stats() {
+    var started = this.started.get();
+    var averageWait = started == 0 ? 0 : this.totalWaitNanos.get() / started;
+
+    return new Stats(getQueueDepth(),
+      getActiveCount(),
+      this.completed.get(),
+      this.rejected.get(),
+      this.timedOut.get(),
+      TimeUnit.NANOSECONDS.toMicros(averageWait),
+      TimeUnit.NANOSECONDS.toMicros(this.maxWaitNanos.get())
+    );
+  }
+
+  public void shutdown() {
+    this.executor.shutdown();
+
+    try {
+      if (!this.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        this.executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      this.executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Snapshot of the executor's queue and wait times, wait times are in microseconds.
+   */
+  public record Stats(
+    int queueDepth, int active, long completed, long rejected, long timedOut, long averageWaitMicros,
+    long maxWaitMicros
+  ) {}
+}
@@ -4,12 +4,16 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
 import ooo.foooooooooooo.velocitydiscord.config.BotConfig;
+import ooo.foooooooooooo.velocitydiscord.database.migration.SchemaMigrator;
 
 import java.sql.*;
-import java.util.concurrent.CompletableFuture;
 
 public class DatabaseManager {
   private final HikariDataSource dataSource;
+  private final DatabaseExecutor executor;
+  private final DatabaseMetrics metrics = new DatabaseMetrics();
+  private final boolean linkRoutinesAvailable;
+  private final int queryTimeoutSeconds;
 
   public DatabaseManager(BotConfig config) {
     // Validate config during initialization
@@ -26,78 +30,74 @@ public class DatabaseManager {
       VelocityDiscord.LOGGER.warn("Database URL should start with 'jdbc:mariadb://' for MariaDB. Current URL: {}", dbUrl);
     }
 
+    this.queryTimeoutSeconds = Math.max(0, config.DB_QUERY_TIMEOUT_SECONDS);
+
     HikariConfig hikariConfig = new HikariConfig();
     hikariConfig.setJdbcUrl(dbUrl);
     hikariConfig.setUsername(dbUser);
     hikariConfig.setPassword(dbPassword);
     hikariConfig.setDriverClassName("ooo.foooooooooooo.velocitydiscord.lib.org.mariadb.jdbc.Driver");
-    hikariConfig.setMaximumPoolSize(5);
-    hikariConfig.setMinimumIdle(1);
-    hikariConfig.setConnectionTimeout(30000); // 30 seconds
-    hikariConfig.setIdleTimeout(600000); // 10 minutes
-    hikariConfig.setMaxLifetime(1800000); // 30 minutes
+    hikariConfig.setPoolName("LumaLyte-SRV");
+    hikariConfig.setMaximumPoolSize(Math.max(1, config.DB_POOL_SIZE));
+    hikariConfig.setMinimumIdle(Math.max(0, Math.min(config.DB_POOL_MIN_IDLE, config.DB_POOL_SIZE)));
+    hikariConfig.setConnectionTimeout(config.DB_CONNECTION_TIMEOUT_MILLIS);
+    hikariConfig.setIdleTimeout(config.DB_IDLE_TIMEOUT_MILLIS);
+    hikariConfig.setMaxLifetime(config.DB_MAX_LIFETIME_MILLIS);
+    hikariConfig.setLeakDetectionThreshold(config.DB_LEAK_DETECTION_MILLIS);
+    // reuse prepared statements per connection instead of re-parsing them on every call
+    hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+    hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+    hikariConfig.addDataSourceProperty("prepStmtCacheSize", "64");
 
     try {
+      var start = System.nanoTime();
       this.dataSource = new HikariDataSource(hikariConfig);
+      var connected = System.nanoTime();
       VelocityDiscord.LOGGER.info("DatabaseManager initialized successfully");
 
       // Explicitly call createTables to set up the database schema, otherwise no data can be saved
-      createTables().join();
+      createTables();
+      var migrated = System.nanoTime();
       verifyTables();
+      var verified = System.nanoTime();
+      this.linkRoutinesAvailable = installRoutines();
+      var installed = System.nanoTime();
+
+      VelocityDiscord.LOGGER.info("Database startup: connect {} ms, migrations {} ms, verify {} ms, routines {} ms",
+        (connected - start) / 1_000_000,
+        (migrated - connected) / 1_000_000,
+        (verified - migrated) / 1_000_000,
+        (installed - verified) / 1_000_000
+      );
+
+      // one worker per pooled connection, so queued calls wait here instead of inside HikariCP
+      this.executor = new DatabaseExecutor(hikariConfig.getMaximumPoolSize(),
+        config.DB_QUEUE_SIZE,
+        this.queryTimeoutSeconds * 1000L
+      );
     } catch (Exception e) {
       VelocityDiscord.LOGGER.error("Failed to initialize DatabaseManager: {}", e.getMessage());
       throw new RuntimeException("Cannot initialize database manager", e);
     }
   }
 
-  private CompletableFuture<Void> createTables() {
-    return CompletableFuture.runAsync(() -> {
-      try (Connection conn = dataSource.getConnection();
-           Statement stmt = conn.createStatement()) {
-        // Create SchemaVersion table to track migrations
-        stmt.executeUpdate(
-          "CREATE TABLE IF NOT EXISTS SchemaVersion (" +
-            "version INT PRIMARY KEY)"
-        );
-
-        // Check the current schema version
-        ResultSet rs = stmt.executeQuery("SELECT version FROM SchemaVersion LIMIT 1");
-        int currentVersion = 0;
-        if (rs.next()) {
-          currentVersion = rs.getInt("version");
-        }
-
-        // Initial schema (version 1)
-        if (currentVersion < 1) {
-          stmt.executeUpdate(
-            "CREATE TABLE IF NOT EXISTS PendingLinks (" +
-              "discord_id VARCHAR(32) PRIMARY KEY, " +
-              "code VARCHAR(6) NOT NULL, " +
-              "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)"
-          );
-          stmt.executeUpdate(
-            "CREATE TABLE IF NOT EXISTS LinkedAccounts (" +
-              "uuid VARCHAR(36) PRIMARY KEY, " +
-              "discord_id VARCHAR(32) NOT NULL)"
-          );
-          stmt.executeUpdate(
-            "CREATE TABLE IF NOT EXISTS VerifiedUsers (" +
-              "discord_id VARCHAR(32) PRIMARY KEY, " +
-              "verified TINYINT(1) NOT NULL DEFAULT 0)"
-          );
-          stmt.executeUpdate("INSERT INTO SchemaVersion (version) VALUES (1) ON DUPLICATE KEY UPDATE version = 1");
-          VelocityDiscord.LOGGER.info("Applied schema version 1");
-        }
-
-        // Add future migrations here
-        // Example: if (currentVersion < 2) { ... }
+  private void createTables() {
+    try (Connection conn = dataSource.getConnection()) {
+      new SchemaMigrator().migrate(conn);
+      VelocityDiscord.LOGGER.info("Database tables created or verified successfully");
+    } catch (SQLException e) {
+      VelocityDiscord.LOGGER.error("Failed to create database tables: {}", e.getMessage());
+      throw new RuntimeException("Failed to create database tables", e);
+    }
+  }
 
-        VelocityDiscord.LOGGER.info("Database tables created or verified successfully");
-      } catch (SQLException e) {
-        VelocityDiscord.LOGGER.error("Failed to create database tables: {}", e.getMessage());
-        throw new RuntimeException("Failed to create database tables", e);
-      }
-    });
+  private boolean installRoutines() {
+    try (Connection conn = dataSource.getConnection()) {
+      return LinkRoutines.install(conn);
+    } catch (SQLException e) {
+      VelocityDiscord.LOGGER.error("Failed to install database routines: {}", e.getMessage());
+      return false;
+    }
   }
 
   private void verifyTables() throws SQLException {
@@ -119,6 +119,16 @@ public class DatabaseManager {
         "discord_id", "verified"
       });
 
+      // Verify LinkChanges table
+      verifyTableSchema(metaData, "LinkChanges", new String[]{
+        "id", "kind", "uuid", "discord_id", "created_at"
+      });
+
+      // Verify UsedLinkCodes table
+      verifyTableSchema(metaData, "UsedLinkCodes", new String[]{
+        "code", "used_at"
+      });
+
       // Verify SchemaVersion table
       verifyTableSchema(metaData, "SchemaVersion", new String[]{
         "version"
@@ -132,16 +142,17 @@ public class DatabaseManager {
   }
 
   private void verifyTableSchema(DatabaseMetaData metaData, String tableName, String[] expectedColumns) throws SQLException {
-    ResultSet columns = metaData.getColumns(null, null, tableName, null);
     boolean tableExists = false;
     boolean[] columnFound = new boolean[expectedColumns.length];
 
-    while (columns.next()) {
-      tableExists = true;
-      String columnName = columns.getString("COLUMN_NAME");
-      for (int i = 0; i < expectedColumns.length; i++) {
-        if (expectedColumns[i].equalsIgnoreCase(columnName)) {
-          columnFound[i] = true;
+    try (ResultSet columns = metaData.getColumns(null, null, tableName, null)) {
+      while (columns.next()) {
+        tableExists = true;
+        String columnName = columns.getString("COLUMN_NAME");
+        for (int i = 0; i < expectedColumns.length; i++) {
+          if (expectedColumns[i].equalsIgnoreCase(columnName)) {
+            columnFound[i] = true;
+          }
         }
       }
     }
@@ -158,9 +169,10 @@ public class DatabaseManager {
     }
   }
   public Connection getConnection() throws SQLException {
+    var start = System.nanoTime();
     try {
       Connection conn = dataSource.getConnection();
-      VelocityDiscord.LOGGER.debug("Obtained database connection from pool");
+      this.metrics.recordPoolAcquire(System.nanoTime() - start);
       return conn;
     } catch (SQLException e) {
       VelocityDiscord.LOGGER.error("Failed to obtain database connection: {}", e.getMessage());
@@ -168,10 +180,59 @@ public class DatabaseManager {
     }
   }
 
+  /**
+   * @return Seconds a single statement may run before the driver cancels it, 0 for no limit
+   */
+  public int getQueryTimeoutSeconds() {
+    return this.queryTimeoutSeconds;
+  }
+
+  /**
+   * @return Latency histograms for pool acquire and store operations
+   */
+  public DatabaseMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  /**
+   * @return Live pool counters, or null if the pool isn't running
+   */
+  public PoolStats getPoolStats() {
+    var pool = this.dataSource.getHikariPoolMXBean();
+    if (pool == null) return null;
+
+    return new PoolStats(pool.getActiveConnections(),
+      pool.getIdleConnections(),
+      pool.getTotalConnections(),
+      pool.getThreadsAwaitingConnection(),
+      this.dataSource.getMaximumPoolSize()
+    );
+  }
+
+  /**
+   * @return true if the stored routines in {@link LinkRoutines} are installed
+   */
+  public boolean hasLinkRoutines() {
+    return this.linkRoutinesAvailable;
+  }
+
+  /**
+   * @return The executor all blocking JDBC calls should run on
+   */
+  public DatabaseExecutor getExecutor() {
+    return this.executor;
+  }
+
   public void close() {
+    if (this.executor != null) {
+      this.executor.shutdown();
+    }
+
     if (dataSource != null) {
       dataSource.close();
       VelocityDiscord.LOGGER.info("HikariCP connection pool closed");
     }
   }
+
+  public record PoolStats(int active, int idle, int total, int waiting, int max) {}
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Latency histograms for database work: one per store operation, plus the time spent waiting for a pooled connection.
+ * <p>
+ * Operation times are measured on the database thread, so they include pool acquire time but not time spent queued in
+ * the {@link DatabaseExecutor}, which tracks that itself.
+ */
+public class DatabaseMetrics {
+  private final LatencyHistogram poolAcquire = new LatencyHistogram();
+  private final Map<String, LatencyHistogram> operations = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+  public <T> T time(String operation, Supplier<T> task) {
+    var start = System.nanoTime();
+
+    try {
+      return task.get();
+    } catch (RuntimeException e) {
+      this.errors.computeIfAbsent(operation, op -> new LongAdder()).increment();
+      throw e;
+    } finally {
+      record(operation, System.nanoTime() - start);
+    }
+  }
+
+  public void record(String operation, long nanos) {
+    this.operations.computeIfAbsent(operation, op -> new LatencyHistogram()).record(nanos);
+  }
+
+  public void recordPoolAcquire(long nanos) {
+    this.poolAcquire.record(nanos);
+  }
+
+  public LatencyHistogram.Snapshot getPoolAcquire() {
+    return this.poolAcquire.snapshot();
+  }
+
+  /**
+   * @return Latency of every operation seen so far, sorted by name
+   */
+  public Map<String, LatencyHistogram.Snapshot> getOperations() {
+    var snapshots = new TreeMap<String, LatencyHistogram.Snapshot>();
+    this.operations.forEach((operation, histogram) -> snapshots.put(operation, histogram.snapshot()));
+    return snapshots;
+  }
+
+  public long getErrors(String operation) {
+    var count = this.errors.get(operation);
+    return count == null ? 0 : count.sum();
+  }
+}
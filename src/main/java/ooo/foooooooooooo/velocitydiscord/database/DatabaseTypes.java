@@ -0,0 +1,24 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Conversions between Java values and their compact column representations.
+ */
+public final class DatabaseTypes {
+  private DatabaseTypes() {}
+
+  public static byte[] uuidToBytes(UUID uuid) {
+    return ByteBuffer
+      .allocate(16)
+      .putLong(uuid.getMostSignificantBits())
+      .putLong(uuid.getLeastSignificantBits())
+      .array();
+  }
+
+  public static UUID uuidFromBytes(byte[] bytes) {
+    var buffer = ByteBuffer.wrap(bytes);
+    return new UUID(buffer.getLong(), buffer.getLong());
+  }
+}
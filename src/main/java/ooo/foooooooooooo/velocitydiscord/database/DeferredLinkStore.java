@@ -0,0 +1,132 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Stand-in for a {@link LinkStore} that is still opening in the background, e.g. while migrations run.
+ * <p>
+ * Calls made before the real store is ready are chained onto it instead of failing, so they run as soon as it opens.
+ * If opening fails, every call fails with the same error.
+ */
+public class DeferredLinkStore implements LinkStore {
+  private final CompletableFuture<LinkStore> delegate;
+
+  public DeferredLinkStore(CompletableFuture<LinkStore> delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * @return The opened store, or null if it is still opening or failed to open
+   */
+  @Nullable
+  public LinkStore getNow() {
+    if (!this.delegate.isDone() || this.delegate.isCompletedExceptionally()) return null;
+    return this.delegate.join();
+  }
+
+  public CompletableFuture<LinkStore> whenReady() {
+    return this.delegate;
+  }
+
+  @Override
+  public CompletableFuture<OptionalLong> getDiscordId(UUID uuid) {
+    return then(store -> store.getDiscordId(uuid));
+  }
+
+  @Override
+  public CompletableFuture<Set<UUID>> getUuids(long discordId) {
+    return then(store -> store.getUuids(discordId));
+  }
+
+  @Override
+  public CompletableFuture<List<Long>> getLinkedDiscordIds(long afterId, int limit) {
+    return then(store -> store.getLinkedDiscordIds(afterId, limit));
+  }
+
+  @Override
+  public CompletableFuture<List<Long>> getVerifiedDiscordIds(long afterId, int limit) {
+    return then(store -> store.getVerifiedDiscordIds(afterId, limit));
+  }
+
+  @Override
+  public CompletableFuture<String> createPendingCode(long discordId) {
+    return then(store -> store.createPendingCode(discordId));
+  }
+
+  @Override
+  public CompletableFuture<ConsumeResult> consumePendingCode(UUID uuid, String code, int ttlSeconds) {
+    return then(store -> store.consumePendingCode(uuid, code, ttlSeconds));
+  }
+
+  @Override
+  public CompletableFuture<ConsumeResult> consumeSignedCode(UUID uuid, long discordId, String code) {
+    return then(store -> store.consumeSignedCode(uuid, discordId, code));
+  }
+
+  @Override
+  public CompletableFuture<OptionalLong> unlink(UUID uuid) {
+    return then(store -> store.unlink(uuid));
+  }
+
+  @Override
+  public CompletableFuture<Void> markVerified(Collection<Long> discordIds) {
+    return then(store -> store.markVerified(discordIds));
+  }
+
+  @Override
+  public CompletableFuture<Integer> purgeExpiredCodes(int ttlSeconds, int limit) {
+    return then(store -> store.purgeExpiredCodes(ttlSeconds, limit));
+  }
+
+  @Override
+  public CompletableFuture<List<LinkChange>> getChanges(long afterId, int limit) {
+    return then(store -> store.getChanges(afterId, limit));
+  }
+
+  @Override
+  public CompletableFuture<List<LinkChange>> getChanges(Collection<Long> ids) {
+    return then(store -> store.getChanges(ids));
+  }
+
+  @Override
+  public CompletableFuture<Long> getLatestChangeId() {
+    return then(LinkStore::getLatestChangeId);
+  }
+
+  @Override
+  public CompletableFuture<Integer> purgeChanges(int retentionSeconds, int limit) {
+    return then(store -> store.purgeChanges(retentionSeconds, limit));
+  }
+
+  @Override
+  public String name() {
+    if (!this.delegate.isDone()) return "starting";
+
+    var store = getNow();
+    return store == null ? "unavailable" : store.name();
+  }
+
+  /**
+   * Closes the store now if it is open, or as soon as it finishes opening.
+   */
+  @Override
+  public void close() {
+    this.delegate.thenAccept(LinkStore::close);
+  }
+
+  private <T> CompletableFuture<T> then(Function<LinkStore, CompletableFuture<T>> operation) {
+    var store = getNow();
+
+    // skip the extra stage once the store is open
+    if (store != null) return operation.apply(store);
+
+    return this.delegate.thenCompose(operation);
+  }
+}
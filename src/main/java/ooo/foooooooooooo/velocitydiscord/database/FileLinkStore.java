@@ -0,0 +1,517 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * {@link LinkStore} kept entirely in memory and persisted as an append-only log in the plugin folder.
+ * <p>
+ * Every change is appended as one line and forced to disk before it is applied, and the whole log is replayed on
+ * startup.
+ * When the log holds much more history than live data it is rewritten with only the live records.
+ * Lookups never touch the disk, but writes do, so every operation runs in order on a single-thread
+ * {@link DatabaseExecutor} rather than on the caller's thread.
+ * <p>
+ * Only one proxy may use a log at a time, setups with several proxies need the MariaDB store. The change log is kept in
+ * memory only, for the same reason.
+ * <p>
+ * Log records, one per line:
+ * <pre>
+ * L uuid discordId            link
+ * U uuid                      unlink
+ * P discordId code createdAt  pending code, createdAt in epoch milliseconds
+ * C discordId                 pending code removed
+ * V discordId                 verified
+ * X discordId                 verified removed
+ * S code usedAt               signed code used, usedAt in epoch milliseconds
+ * </pre>
+ * Used signed codes have no removal record, once expired they are purged from memory and left out of the next rewrite.
+ */
+public class FileLinkStore implements LinkStore {
+  public static final String FILE_NAME = "links.log";
+
+  // rewrite the log once it is this many records longer than twice the live data
+  private static final int COMPACT_SLACK = 1024;
+  private static final int MAX_CHANGES = 10_000;
+
+  private final Path file;
+  private final LongSupplier clock;
+  private final DatabaseExecutor executor;
+  private final Random random = new Random();
+
+  private final Map<UUID, Long> links = new HashMap<>();
+  private final Map<Long, Set<UUID>> uuidsByDiscordId = new HashMap<>();
+  private final Map<Long, Pending> pendingByDiscordId = new HashMap<>();
+  private final Map<String, Long> pendingByCode = new HashMap<>();
+  private final Set<Long> verified = new HashSet<>();
+  // in the order they were used, so the oldest are purged first
+  private final Map<String, Long> usedCodes = new LinkedHashMap<>();
+  private final Deque<LoggedChange> changes = new ArrayDeque<>();
+
+  private long lastChangeId = 0;
+
+  private FileChannel channel;
+  private BufferedWriter writer;
+  private int records = 0;
+  private int skippedLines = 0;
+
+  /**
+   * @param executor Runs every operation, should have a single thread. Shut down when the store is closed.
+   */
+  public FileLinkStore(Path dataDirectory, DatabaseExecutor executor) throws IOException {
+    this(dataDirectory.resolve(FILE_NAME), System::currentTimeMillis, executor);
+  }
+
+  FileLinkStore(Path file, LongSupplier clock, DatabaseExecutor executor) throws IOException {
+    this.file = file;
+    this.clock = clock;
+    this.executor = executor;
+
+    if (Files.exists(file)) {
+      load();
+    }
+
+    if (this.records > compactThreshold()) {
+      compact();
+    } else {
+      openWriter();
+
+      // a crash mid-write can leave a partial last line, don't glue the next record onto it
+      if (Files.size(file) > 0 && !endsWithNewline()) {
+        this.writer.write('\n');
+        this.writer.flush();
+      }
+    }
+  }
+
+  @Override
+  public CompletableFuture<OptionalLong> getDiscordId(UUID uuid) {
+    return call(() -> {
+      var discordId = this.links.get(uuid);
+      return discordId != null ? OptionalLong.of(discordId) : OptionalLong.empty();
+    });
+  }
+
+  @Override
+  public CompletableFuture<Set<UUID>> getUuids(long discordId) {
+    return call(() -> Set.copyOf(this.uuidsByDiscordId.getOrDefault(discordId, Set.of())));
+  }
+
+  @Override
+  public CompletableFuture<List<Long>> getLinkedDiscordIds(long afterId, int limit) {
+    return call(() -> page(this.uuidsByDiscordId.keySet(), afterId, limit));
+  }
+
+  @Override
+  public CompletableFuture<List<Long>> getVerifiedDiscordIds(long afterId, int limit) {
+    return call(() -> page(this.verified, afterId, limit));
+  }
+
+  @Override
+  public CompletableFuture<String> createPendingCode(long discordId) {
+    return call(() -> {
+      String code;
+      var attempts = 0;
+
+      do {
+        if (attempts++ >= 10) {
+          throw new IllegalStateException("Failed to generate a unique code after 10 attempts");
+        }
+        code = String.valueOf(100000 + this.random.nextInt(900000)); // Range: 100000 to 999999
+      } while (this.pendingByCode.containsKey(code));
+
+      var createdAt = this.clock.getAsLong();
+      append("P " + discordId + " " + code + " " + createdAt);
+      putPending(discordId, new Pending(code, createdAt));
+
+      return code;
+    });
+  }
+
+  @Override
+  public CompletableFuture<ConsumeResult> consumePendingCode(UUID uuid, String code, int ttlSeconds) {
+    return call(() -> {
+      var discordId = this.pendingByCode.get(code);
+      if (discordId == null) {
+        return ConsumeResult.INVALID;
+      }
+
+      var pending = this.pendingByDiscordId.get(discordId);
+      if (this.clock.getAsLong() - pending.createdAt() > ttlSeconds * 1000L) {
+        append("C " + discordId);
+        removePending(discordId);
+        return ConsumeResult.EXPIRED;
+      }
+
+      if (this.links.containsKey(uuid)) {
+        return ConsumeResult.ALREADY_LINKED;
+      }
+
+      append("L " + uuid + " " + discordId + "\nC " + discordId);
+      putLink(uuid, discordId);
+      removePending(discordId);
+      recordChange(ChangeKind.LINKED, uuid, discordId);
+
+      return ConsumeResult.linked(discordId);
+    });
+  }
+
+  @Override
+  public CompletableFuture<ConsumeResult> consumeSignedCode(UUID uuid, long discordId, String code) {
+    return call(() -> {
+      if (this.usedCodes.containsKey(code)) {
+        return ConsumeResult.INVALID;
+      }
+
+      if (this.links.containsKey(uuid)) {
+        return ConsumeResult.ALREADY_LINKED;
+      }
+
+      var usedAt = this.clock.getAsLong();
+      append("L " + uuid + " " + discordId + "\nS " + code + " " + usedAt);
+      putLink(uuid, discordId);
+      this.usedCodes.put(code, usedAt);
+      recordChange(ChangeKind.LINKED, uuid, discordId);
+
+      return ConsumeResult.linked(discordId);
+    });
+  }
+
+  @Override
+  public CompletableFuture<OptionalLong> unlink(UUID uuid) {
+    return call(() -> {
+      var discordId = this.links.get(uuid);
+      if (discordId == null) {
+        return OptionalLong.empty();
+      }
+
+      append(this.verified.contains(discordId) ? "U " + uuid + "\nX " + discordId : "U " + uuid);
+      removeLink(uuid);
+      this.verified.remove(discordId);
+      recordChange(ChangeKind.UNLINKED, uuid, discordId);
+
+      return OptionalLong.of(discordId);
+    });
+  }
+
+  @Override
+  public CompletableFuture<Void> markVerified(Collection<Long> discordIds) {
+    return call(() -> {
+      var added = new LinkedHashSet<Long>();
+      var lines = new StringJoiner("\n");
+      for (var id : discordIds) {
+        if (!this.verified.contains(id) && added.add(id)) lines.add("V " + id);
+      }
+
+      if (!added.isEmpty()) {
+        append(lines.toString());
+        this.verified.addAll(added);
+        added.forEach(id -> recordChange(ChangeKind.VERIFIED, null, id));
+      }
+
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Integer> purgeExpiredCodes(int ttlSeconds, int limit) {
+    return call(() -> {
+      var cutoff = this.clock.getAsLong() - ttlSeconds * 1000L;
+      var expired = new ArrayList<Long>();
+
+      for (var entry : this.pendingByDiscordId.entrySet()) {
+        if (expired.size() >= limit) break;
+        if (entry.getValue().createdAt() < cutoff) expired.add(entry.getKey());
+      }
+
+      if (!expired.isEmpty()) {
+        var lines = new StringJoiner("\n");
+        for (var id : expired) {
+          lines.add("C " + id);
+        }
+
+        append(lines.toString());
+        expired.forEach(this::removePending);
+      }
+
+      var purged = expired.size();
+      var used = this.usedCodes.values().iterator();
+      while (purged < limit && used.hasNext() && used.next() < cutoff) {
+        used.remove();
+        purged++;
+      }
+
+      return purged;
+    });
+  }
+
+  @Override
+  public CompletableFuture<List<LinkChange>> getChanges(long afterId, int limit) {
+    return call(() -> {
+      var result = new ArrayList<LinkChange>();
+
+      for (var logged : this.changes) {
+        if (result.size() >= limit) break;
+        if (logged.change().id() > afterId) result.add(logged.change());
+      }
+
+      return result;
+    });
+  }
+
+  @Override
+  public CompletableFuture<List<LinkChange>> getChanges(Collection<Long> ids) {
+    return call(() -> {
+      var result = new ArrayList<LinkChange>();
+
+      for (var logged : this.changes) {
+        if (ids.contains(logged.change().id())) result.add(logged.change());
+      }
+
+      return result;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Long> getLatestChangeId() {
+    return call(() -> this.lastChangeId);
+  }
+
+  @Override
+  public CompletableFuture<Integer> purgeChanges(int retentionSeconds, int limit) {
+    return call(() -> {
+      var cutoff = this.clock.getAsLong() - retentionSeconds * 1000L;
+      var purged = 0;
+
+      while (purged < limit && !this.changes.isEmpty() && this.changes.peekFirst().createdAt() < cutoff) {
+        this.changes.removeFirst();
+        purged++;
+      }
+
+      return purged;
+    });
+  }
+
+  public synchronized boolean isVerified(long discordId) {
+    return this.verified.contains(discordId);
+  }
+
+  /**
+   * @return Number of unreadable log lines skipped on startup, usually a line cut off by a crash
+   */
+  public int getSkippedLines() {
+    return this.skippedLines;
+  }
+
+  @Override
+  public String name() {
+    return "file (" + this.file.getFileName() + ")";
+  }
+
+  @Override
+  public void close() {
+    // lets queued operations finish first
+    this.executor.shutdown();
+
+    synchronized (this) {
+      try {
+        if (this.writer != null) this.writer.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to close " + this.file, e);
+      }
+    }
+  }
+
+  private <T> CompletableFuture<T> call(Supplier<T> operation) {
+    return this.executor.supply(() -> {
+      synchronized (this) {
+        T result;
+        try {
+          result = operation.get();
+        } catch (RuntimeException e) {
+          throw new RuntimeException("File store error: " + e.getMessage(), e);
+        }
+
+        // the operation is already logged, a failed rewrite only leaves the log longer and is retried next time
+        if (this.records > compactThreshold()) {
+          try {
+            compact();
+          } catch (IOException e) {
+            VelocityDiscord.LOGGER.warn("Failed to compact {}: {}", this.file, e.getMessage());
+          }
+        }
+
+        return result;
+      }
+    });
+  }
+
+  private void append(String lines) {
+    try {
+      // a failed rewrite may have left no writer
+      if (this.writer == null) openWriter();
+
+      this.writer.write(lines);
+      this.writer.write('\n');
+      this.writer.flush();
+      // flush only hands the bytes to the OS, an acknowledged link must survive a power loss too
+      this.channel.force(false);
+      this.records += (int) lines.chars().filter(c -> c == '\n').count() + 1;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to write to " + this.file, e);
+    }
+  }
+
+  private void load() throws IOException {
+    try (var lines = Files.lines(this.file, StandardCharsets.UTF_8)) {
+      lines.forEach(line -> {
+        if (line.isBlank()) return;
+
+        this.records++;
+        try {
+          apply(line.split(" "));
+        } catch (RuntimeException e) {
+          this.skippedLines++;
+        }
+      });
+    }
+  }
+
+  private void apply(String[] parts) {
+    switch (parts[0]) {
+      case "L" -> putLink(UUID.fromString(parts[1]), Long.parseLong(parts[2]));
+      case "U" -> removeLink(UUID.fromString(parts[1]));
+      case "P" -> putPending(Long.parseLong(parts[1]), new Pending(parts[2], Long.parseLong(parts[3])));
+      case "C" -> removePending(Long.parseLong(parts[1]));
+      case "V" -> this.verified.add(Long.parseLong(parts[1]));
+      case "X" -> this.verified.remove(Long.parseLong(parts[1]));
+      case "S" -> this.usedCodes.put(parts[1], Long.parseLong(parts[2]));
+      default -> throw new IllegalArgumentException("Unknown record " + parts[0]);
+    }
+  }
+
+  private static List<Long> page(Collection<Long> ids, long afterId, int limit) {
+    return ids.stream().filter(id -> id > afterId).sorted().limit(limit).toList();
+  }
+
+  private void recordChange(ChangeKind kind, @Nullable UUID uuid, long discordId) {
+    this.changes.addLast(new LoggedChange(new LinkChange(++this.lastChangeId, kind, uuid, discordId),
+      this.clock.getAsLong()
+    ));
+
+    if (this.changes.size() > MAX_CHANGES) {
+      this.changes.removeFirst();
+    }
+  }
+
+  private void putLink(UUID uuid, long discordId) {
+    removeLink(uuid);
+    this.links.put(uuid, discordId);
+    this.uuidsByDiscordId.computeIfAbsent(discordId, id -> new HashSet<>()).add(uuid);
+  }
+
+  private void removeLink(UUID uuid) {
+    var discordId = this.links.remove(uuid);
+    if (discordId == null) return;
+
+    var uuids = this.uuidsByDiscordId.get(discordId);
+    uuids.remove(uuid);
+    if (uuids.isEmpty()) this.uuidsByDiscordId.remove(discordId);
+  }
+
+  private void putPending(long discordId, Pending pending) {
+    removePending(discordId);
+    this.pendingByDiscordId.put(discordId, pending);
+    this.pendingByCode.put(pending.code(), discordId);
+  }
+
+  private void removePending(long discordId) {
+    var pending = this.pendingByDiscordId.remove(discordId);
+    if (pending != null) this.pendingByCode.remove(pending.code());
+  }
+
+  private int compactThreshold() {
+    var live = this.links.size() + this.pendingByDiscordId.size() + this.verified.size() + this.usedCodes.size();
+    return 2 * live + COMPACT_SLACK;
+  }
+
+  /**
+   * Rewrites the log with only the live records, then swaps it in with an atomic move. The current writer stays
+   * usable until the new log is in place, so a failed rewrite leaves the store working on the old log.
+   */
+  private void compact() throws IOException {
+    var temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+    var written = 0;
+
+    try (var out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      for (var entry : this.links.entrySet()) {
+        out.write("L " + entry.getKey() + " " + entry.getValue() + "\n");
+        written++;
+      }
+      for (var entry : this.pendingByDiscordId.entrySet()) {
+        out.write("P " + entry.getKey() + " " + entry.getValue().code() + " " + entry.getValue().createdAt() + "\n");
+        written++;
+      }
+      for (var id : this.verified) {
+        out.write("V " + id + "\n");
+        written++;
+      }
+      for (var entry : this.usedCodes.entrySet()) {
+        out.write("S " + entry.getKey() + " " + entry.getValue() + "\n");
+        written++;
+      }
+    }
+
+    try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+
+    Files.move(temp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    this.records = written;
+
+    // the old writer appends to the replaced log, swap it for one on the new log
+    var old = this.writer;
+    this.writer = null;
+    this.channel = null;
+
+    try {
+      if (old != null) old.close();
+    } finally {
+      openWriter();
+    }
+  }
+
+  private boolean endsWithNewline() throws IOException {
+    try (var channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+      var last = ByteBuffer.allocate(1);
+      channel.read(last, channel.size() - 1);
+      return last.get(0) == '\n';
+    }
+  }
+
+  private void openWriter() throws IOException {
+    this.channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    // closing the writer closes the channel too
+    this.writer = new BufferedWriter(Channels.newWriter(this.channel, StandardCharsets.UTF_8));
+  }
+
+  private record Pending(String code, long createdAt) {}
+
+  private record LoggedChange(LinkChange change, long createdAt) {}
+}
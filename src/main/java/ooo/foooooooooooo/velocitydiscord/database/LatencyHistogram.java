@@ -0,0 +1,91 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets.
+ * <p>
+ * Bucket {@code i} counts samples below {@code 2^i} microseconds, so percentiles are upper bounds accurate to within
+ * a factor of two, which is plenty to tell a 2 ms query from a 200 ms one.
+ */
+public class LatencyHistogram {
+  // 2^27 us is a little over two minutes, anything slower lands in the last bucket
+  private static final int BUCKETS = 28;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  public void record(long nanos) {
+    var micros = Math.max(0, nanos / 1000);
+
+    this.buckets.incrementAndGet(bucket(micros));
+    this.count.increment();
+    this.totalMicros.add(micros);
+    this.maxMicros.accumulateAndGet(micros, Math::max);
+  }
+
+  public Snapshot snapshot() {
+    var counts = new long[BUCKETS];
+    var total = 0L;
+
+    for (var i = 0; i < BUCKETS; i++) {
+      counts[i] = this.buckets.get(i);
+      total += counts[i];
+    }
+
+    var max = this.maxMicros.get();
+
+    return new Snapshot(total,
+      total == 0 ? 0 : this.totalMicros.sum() / total,
+      percentile(counts, total, 0.50, max),
+      percentile(counts, total, 0.95, max),
+      percentile(counts, total, 0.99, max),
+      max
+    );
+  }
+
+  private static int bucket(long micros) {
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+  }
+
+  private static long percentile(long[] counts, long total, double p, long max) {
+    if (total == 0) return 0;
+
+    var target = (long) Math.ceil(p * total);
+    var seen = 0L;
+
+    for (var i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        return Math.min(max, 1L << i);
+      }
+    }
+
+    return max;
+  }
+
+  /**
+   * All times are in microseconds, percentiles are bucket upper bounds.
+   */
+  public record Snapshot(long count, long meanMicros, long p50Micros, long p95Micros, long p99Micros, long maxMicros) {
+    @Override
+    public String toString() {
+      return String.format("n=%d mean=%s p50=%s p95=%s p99=%s max=%s",
+        this.count,
+        format(this.meanMicros),
+        format(this.p50Micros),
+        format(this.p95Micros),
+        format(this.p99Micros),
+        format(this.maxMicros)
+      );
+    }
+
+    private static String format(long micros) {
+      return micros < 1000 ? micros + "us" : String.format("%.1fms", micros / 1000.0);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Follows the change log of a {@link LinkStore} so links, unlinks and verifications made by other proxies reach the
+ * local caches without re-querying.
+ * <p>
+ * Each run reads the changes after the newest one read so far, starting from the newest change at startup. IDs come
+ * from an auto-increment column, so a missing ID usually means a transaction that hasn't committed yet: it is
+ * remembered as a gap and looked up by ID on the next runs, until it fills or is older than the longest transaction
+ * and so must have been rolled back. A change that fills a gap is applied after newer ones, which is safe as changes
+ * to the same link lock the same rows and commit in order. Applying a change must be idempotent.
+ * <p>
+ * Own changes come back through the log too, they are already in the local caches and applying them again is a no-op.
+ */
+public class LinkChangeFeed implements Runnable {
+  /** Changes older than this are purged by the {@link PendingLinkSweeper} */
+  public static final int RETENTION_SECONDS = 3600;
+
+  private static final int BATCH_SIZE = 500;
+  // stop after this many batches so one run can't go on forever, the next run picks up the rest
+  private static final int MAX_BATCHES_PER_RUN = 20;
+  // beyond this many open gaps the oldest are given up on, e.g. after a jump of the auto-increment counter
+  private static final int MAX_GAPS = BATCH_SIZE;
+  // used when transactions have no time limit, long enough for any transaction that is still going to commit
+  static final long DEFAULT_GAP_TIMEOUT_MILLIS = 60_000;
+
+  private final LinkStore store;
+  private final Consumer<LinkStore.LinkChange> listener;
+  private final long gapTimeoutMillis;
+  private final LongSupplier clock;
+
+  private volatile long cursor = -1;
+  private volatile long applied = 0;
+
+  // newest change read
+  private long readTo = -1;
+  // missing change ID -> when it was first seen missing
+  private final TreeMap<Long, Long> gaps = new TreeMap<>();
+
+  /**
+   * @param gapTimeoutMillis How long the longest transaction can take, a gap older than this won't fill anymore,
+   *                         0 or less if transactions have no time limit
+   */
+  public LinkChangeFeed(LinkStore store, Consumer<LinkStore.LinkChange> listener, long gapTimeoutMillis) {
+    this(store, listener, gapTimeoutMillis, System::currentTimeMillis);
+  }
+
+  LinkChangeFeed(LinkStore store, Consumer<LinkStore.LinkChange> listener, long gapTimeoutMillis, LongSupplier clock) {
+    this.store = store;
+    this.listener = listener;
+    this.gapTimeoutMillis = gapTimeoutMillis > 0 ? gapTimeoutMillis : DEFAULT_GAP_TIMEOUT_MILLIS;
+    this.clock = clock;
+  }
+
+  @Override
+  public synchronized void run() {
+    try {
+      if (this.readTo < 0) {
+        // caches start empty, older changes have nothing to update
+        this.readTo = this.store.getLatestChangeId().join();
+        this.cursor = this.readTo;
+        return;
+      }
+
+      fillGaps();
+
+      for (var batches = 0; batches < MAX_BATCHES_PER_RUN; batches++) {
+        var changes = this.store.getChanges(this.readTo, BATCH_SIZE).join();
+        applyNew(changes);
+
+        if (changes.size() < BATCH_SIZE) break;
+      }
+    } catch (CompletionException e) {
+      VelocityDiscord.LOGGER.warn("Failed to read link changes: {}", e.getCause().getMessage());
+    } finally {
+      this.cursor = this.gaps.isEmpty() ? this.readTo : this.gaps.firstKey() - 1;
+    }
+  }
+
+  /**
+   * @return The ID of the last change applied without gaps before it, -1 before the first run
+   */
+  public long getCursor() {
+    return this.cursor;
+  }
+
+  /**
+   * @return Number of changes applied
+   */
+  public long getApplied() {
+    return this.applied;
+  }
+
+  /**
+   * Drops the gaps too old to fill and applies the changes that filled the others.
+   */
+  private void fillGaps() {
+    if (this.gaps.isEmpty()) return;
+
+    var expired = this.clock.getAsLong() - this.gapTimeoutMillis;
+    this.gaps.values().removeIf(since -> since <= expired);
+    if (this.gaps.isEmpty()) return;
+
+    for (var change : this.store.getChanges(List.copyOf(this.gaps.keySet())).join()) {
+      if (this.gaps.remove(change.id()) != null) apply(change);
+    }
+  }
+
+  /**
+   * Applies changes read after {@link #readTo}, remembering the IDs missing before each as gaps.
+   */
+  private void applyNew(List<LinkStore.LinkChange> changes) {
+    var now = this.clock.getAsLong();
+
+    for (var change : changes) {
+      var from = Math.max(this.readTo + 1, change.id() - MAX_GAPS);
+      for (var id = from; id < change.id(); id++) {
+        this.gaps.put(id, now);
+      }
+
+      while (this.gaps.size() > MAX_GAPS) {
+        this.gaps.pollFirstEntry();
+      }
+
+      apply(change);
+      this.readTo = change.id();
+    }
+  }
+
+  private void apply(LinkStore.LinkChange change) {
+    this.listener.accept(change);
+    this.applied++;
+  }
+}
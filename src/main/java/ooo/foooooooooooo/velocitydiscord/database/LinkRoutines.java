@@ -0,0 +1,67 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Stored routines that turn multi-statement link operations into a single round trip.
+ * <p>
+ * Routines are (re)installed on every startup with {@code CREATE OR REPLACE}, so changes here need no migration.
+ * Creating them needs the CREATE ROUTINE privilege, callers fall back to plain statements when that is missing.
+ */
+public final class LinkRoutines {
+  public static final String CONSUME_LINK_CODE = "{CALL lumalyte_consume_link_code(?, ?, ?)}";
+
+  public static final int STATUS_LINKED = 0;
+  public static final int STATUS_ALREADY_LINKED = 1;
+  public static final int STATUS_EXPIRED = 2;
+  public static final int STATUS_INVALID = 3;
+
+  // consumes an unexpired code and links the UUID to its Discord ID in one transaction, logging the change,
+  // returns a single row (status, discord_id) using the STATUS_ constants above
+  private static final String CREATE_CONSUME_LINK_CODE =
+    "CREATE OR REPLACE PROCEDURE lumalyte_consume_link_code(" +
+      "IN p_uuid BINARY(16), IN p_code CHAR(6), IN p_ttl INT) " +
+      "MODIFIES SQL DATA " +
+      "BEGIN " +
+      "DECLARE v_discord_id BIGINT UNSIGNED DEFAULT NULL; " +
+      "DECLARE v_created_at TIMESTAMP DEFAULT NULL; " +
+      "DECLARE CONTINUE HANDLER FOR NOT FOUND SET v_discord_id = NULL; " +
+      "DECLARE EXIT HANDLER FOR 1062 BEGIN ROLLBACK; SELECT " + STATUS_ALREADY_LINKED + " AS status, NULL AS discord_id; END; " +
+      "DECLARE EXIT HANDLER FOR SQLEXCEPTION BEGIN ROLLBACK; RESIGNAL; END; " +
+      "START TRANSACTION; " +
+      "SELECT discord_id, created_at INTO v_discord_id, v_created_at " +
+      "FROM PendingLinks WHERE code = p_code LIMIT 1 FOR UPDATE; " +
+      "IF v_discord_id IS NULL THEN " +
+      "ROLLBACK; SELECT " + STATUS_INVALID + " AS status, NULL AS discord_id; " +
+      "ELSEIF v_created_at < NOW() - INTERVAL p_ttl SECOND THEN " +
+      "DELETE FROM PendingLinks WHERE code = p_code; " +
+      "COMMIT; SELECT " + STATUS_EXPIRED + " AS status, NULL AS discord_id; " +
+      "ELSE " +
+      "INSERT INTO LinkedAccounts (uuid, discord_id) VALUES (p_uuid, v_discord_id); " +
+      "INSERT INTO LinkChanges (kind, uuid, discord_id) VALUES (" + LinkStore.ChangeKind.LINKED.code + ", p_uuid, v_discord_id); " +
+      "DELETE FROM PendingLinks WHERE code = p_code; " +
+      "COMMIT; SELECT " + STATUS_LINKED + " AS status, v_discord_id AS discord_id; " +
+      "END IF; " +
+      "END";
+
+  private LinkRoutines() {}
+
+  /**
+   * @return true if the routines were installed and can be called
+   */
+  public static boolean install(Connection conn) {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute(CREATE_CONSUME_LINK_CODE);
+      return true;
+    } catch (SQLException e) {
+      VelocityDiscord.LOGGER.warn("Could not install link routines, /link will use plain statements: {}",
+        e.getMessage()
+      );
+      return false;
+    }
+  }
+}
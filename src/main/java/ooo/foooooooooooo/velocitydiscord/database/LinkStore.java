@@ -0,0 +1,174 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import ooo.foooooooooooo.velocitydiscord.util.LinkCodes;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage for linked accounts, pending link codes and verified users.
+ * <p>
+ * Every operation is asynchronous, implementations decide where the work runs. Failures complete the future
+ * exceptionally with a {@link RuntimeException} describing the operation.
+ * <p>
+ * Links, unlinks and verifications are also appended to a change log, so proxies sharing a store can apply each
+ * other's changes to their caches, see {@link LinkChangeFeed}.
+ */
+public interface LinkStore {
+  /**
+   * @return The Discord ID linked to {@code uuid}, or empty if it isn't linked
+   */
+  CompletableFuture<OptionalLong> getDiscordId(UUID uuid);
+
+  /**
+   * @return Every Minecraft UUID linked to {@code discordId}, empty if none
+   */
+  CompletableFuture<Set<UUID>> getUuids(long discordId);
+
+  /**
+   * @return Up to {@code limit} distinct linked Discord IDs above {@code afterId}, in ascending order
+   */
+  CompletableFuture<List<Long>> getLinkedDiscordIds(long afterId, int limit);
+
+  /**
+   * @return Up to {@code limit} verified Discord IDs above {@code afterId}, in ascending order
+   */
+  CompletableFuture<List<Long>> getVerifiedDiscordIds(long afterId, int limit);
+
+  /**
+   * Generates a random 6-digit code that isn't already in use and stores it as the pending code of {@code discordId},
+   * replacing any previous code.
+   */
+  CompletableFuture<String> createPendingCode(long discordId);
+
+  /**
+   * Atomically consumes a pending code younger than {@code ttlSeconds} and links {@code uuid} to its Discord ID.
+   * Expired codes are removed as well.
+   */
+  CompletableFuture<ConsumeResult> consumePendingCode(UUID uuid, String code, int ttlSeconds);
+
+  /**
+   * Links {@code uuid} to {@code discordId} with a signed code that has already been verified, and remembers the code
+   * so it can't be used again.
+   *
+   * @param code The code in its normalized spelling, see {@link LinkCodes#normalize}
+   * @return {@link ConsumeResult#INVALID} if the code was used before
+   */
+  CompletableFuture<ConsumeResult> consumeSignedCode(UUID uuid, long discordId, String code);
+
+  /**
+   * Removes the link of {@code uuid} and the verified flag of its Discord ID.
+   *
+   * @return The Discord ID that was unlinked, or empty if {@code uuid} wasn't linked
+   */
+  CompletableFuture<OptionalLong> unlink(UUID uuid);
+
+  /**
+   * Marks all {@code discordIds} as verified in one write.
+   */
+  CompletableFuture<Void> markVerified(Collection<Long> discordIds);
+
+  /**
+   * Deletes up to {@code limit} pending codes older than {@code ttlSeconds}, and signed codes used longer ago than
+   * that, as they have expired by then.
+   *
+   * @return The number of codes deleted
+   */
+  CompletableFuture<Integer> purgeExpiredCodes(int ttlSeconds, int limit);
+
+  /**
+   * @return Up to {@code limit} changes with an ID above {@code afterId}, oldest first
+   */
+  CompletableFuture<List<LinkChange>> getChanges(long afterId, int limit);
+
+  /**
+   * @return The changes with one of the given IDs that exist, oldest first
+   */
+  CompletableFuture<List<LinkChange>> getChanges(Collection<Long> ids);
+
+  /**
+   * @return The ID of the newest change, or 0 if there are none yet
+   */
+  CompletableFuture<Long> getLatestChangeId();
+
+  /**
+   * Deletes up to {@code limit} changes older than {@code retentionSeconds}.
+   *
+   * @return The number of changes deleted
+   */
+  CompletableFuture<Integer> purgeChanges(int retentionSeconds, int limit);
+
+  /**
+   * @return A short human-readable name for logs, e.g. {@code "MariaDB"}
+   */
+  String name();
+
+  void close();
+
+  enum ConsumeStatus {
+    LINKED, ALREADY_LINKED, EXPIRED, INVALID
+  }
+
+  /**
+   * @param discordId The Discord ID that was linked, only set for {@link ConsumeStatus#LINKED}
+   */
+  record ConsumeResult(ConsumeStatus status, long discordId) {
+    public static final ConsumeResult ALREADY_LINKED = new ConsumeResult(ConsumeStatus.ALREADY_LINKED, 0);
+    public static final ConsumeResult EXPIRED = new ConsumeResult(ConsumeStatus.EXPIRED, 0);
+    public static final ConsumeResult INVALID = new ConsumeResult(ConsumeStatus.INVALID, 0);
+
+    public static ConsumeResult linked(long discordId) {
+      return new ConsumeResult(ConsumeStatus.LINKED, discordId);
+    }
+  }
+
+  enum ChangeKind {
+    LINKED(1),
+    /** Also means the Discord ID lost its verified flag */
+    UNLINKED(2),
+    VERIFIED(3);
+
+    /** Stored in the {@code kind} column of LinkChanges */
+    public final int code;
+
+    ChangeKind(int code) {
+      this.code = code;
+    }
+
+    public static ChangeKind fromCode(int code) {
+      return switch (code) {
+        case 1 -> LINKED;
+        case 2 -> UNLINKED;
+        case 3 -> VERIFIED;
+        default -> throw new RuntimeException("Invalid link change kind: " + code);
+      };
+    }
+  }
+
+  /**
+   * One entry of the change log, IDs increase with every change.
+   *
+   * @param uuid Null for {@link ChangeKind#VERIFIED}
+   */
+  record LinkChange(long id, ChangeKind kind, @Nullable UUID uuid, long discordId) {}
+
+  enum Type {
+    /** MariaDB through HikariCP, required when several proxies share links */
+    MARIADB,
+    /** Append-only log in the plugin folder, for single-proxy setups */
+    FILE;
+
+    public static Type parse(String value) {
+      return switch (value.toLowerCase()) {
+        case "mariadb", "" -> MARIADB;
+        case "file" -> FILE;
+        default -> throw new RuntimeException("Invalid database type: " + value);
+      };
+    }
+  }
+}
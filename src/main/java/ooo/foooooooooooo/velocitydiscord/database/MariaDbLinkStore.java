@@ -0,0 +1,576 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import javax.annotation.Nullable;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * {@link LinkStore} backed by MariaDB, all calls run on the {@link DatabaseExecutor} of the given manager.
+ */
+public class MariaDbLinkStore implements LinkStore {
+  private final DatabaseManager database;
+
+  public MariaDbLinkStore(DatabaseManager database) {
+    this.database = database;
+  }
+
+  public DatabaseManager getDatabase() {
+    return this.database;
+  }
+
+  @Override
+  public CompletableFuture<OptionalLong> getDiscordId(UUID uuid) {
+    return supply("lookup", () -> {
+      try (Connection conn = this.database.getConnection()) {
+        var discordId = selectDiscordId(conn, uuid);
+        return discordId != null ? OptionalLong.of(discordId) : OptionalLong.empty();
+      } catch (SQLException e) {
+        VelocityDiscord.LOGGER.error("Failed to look up Discord ID for UUID {}: {}", uuid, e.getMessage());
+        throw new RuntimeException("Database error looking up linked account", e);
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<Set<UUID>> getUuids(long discordId) {
+    return supply("lookup_uuids", () -> {
+      try (Connection conn = this.database.getConnection();
+           PreparedStatement ps = prepare(conn,
+             "SELECT uuid FROM LinkedAccounts WHERE discord_id = ?"
+           )) {
+        ps.setLong(1, discordId);
+
+        var uuids = new HashSet<UUID>();
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            uuids.add(DatabaseTypes.uuidFromBytes(rs.getBytes(1)));
+          }
+        }
+
+        return Set.copyOf(uuids);
+      } catch (SQLException e) {
+        VelocityDiscord.LOGGER.error("Failed to look up UUIDs for Discord ID {}: {}", discordId, e.getMessage());
+        throw new RuntimeException("Database error looking up linked accounts", e);
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<List<Long>> getLinkedDiscordIds(long afterId, int limit) {
+    return supply("page_linked", () -> selectPage(
+      "SELECT DISTINCT discord_id FROM LinkedAccounts WHERE discord_id > ? ORDER BY discord_id LIMIT ?",
+      afterId,
+      limit
+    ));
+  }
+
+  @Override
+  public CompletableFuture<List<Long>> getVerifiedDiscordIds(long afterId, int limit) {
+    return supply("page_verified", () -> selectPage(
+      "SELECT discord_id FROM VerifiedUsers WHERE verified = 1 AND discord_id > ? ORDER BY discord_id LIMIT ?",
+      afterId,
+      limit
+    ));
+  }
+
+  /**
+   * Keyset pagination over an indexed Discord ID column, so each page is an index range scan however deep it is.
+   */
+  private List<Long> selectPage(String sql, long afterId, int limit) {
+    try (Connection conn = this.database.getConnection();
+         PreparedStatement ps = prepare(conn, sql)) {
+      ps.setLong(1, afterId);
+      ps.setInt(2, limit);
+
+      var ids = new ArrayList<Long>(limit);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          ids.add(rs.getLong(1));
+        }
+      }
+
+      return ids;
+    } catch (SQLException e) {
+      throw new RuntimeException("Database error reading Discord IDs", e);
+    }
+  }
+
+  @Override
+  public CompletableFuture<String> createPendingCode(long discordId) {
+    return supply("create_code", () -> {
+      Random random = new Random();
+      String code;
+      boolean isUnique;
+      int attempts = 0;
+      final int maxAttempts = 10;
+
+      // one connection and statement for every attempt
+      try (Connection conn = this.database.getConnection();
+           PreparedStatement checkPs = prepare(conn, "SELECT 1 FROM PendingLinks WHERE code = ? LIMIT 1");
+           PreparedStatement storePs = prepare(conn,
+             "INSERT INTO PendingLinks (discord_id, code, created_at) VALUES (?, ?, NOW()) " +
+               "ON DUPLICATE KEY UPDATE code = VALUES(code), created_at = NOW()"
+           )) {
+        do {
+          if (attempts++ >= maxAttempts) {
+            throw new IllegalStateException("Failed to generate a unique code after " + maxAttempts +
+              " attempts. Fun fact for math nerds: this exception has a 1 in 10^29 chance of occurring " +
+              "if we have 1000 users. We have 900,000 potential link codes. If, somehow, miraculously, " +
+              "this code fails 10 times in a row to generate a unique 6-digit code, the user should be " +
+              "given a free rank and advised to play the lottery. Otherwise, this code is broken.");
+          }
+          int codeNum = 100000 + random.nextInt(900000); // Range: 100000 to 999999
+          code = String.valueOf(codeNum);
+
+          checkPs.setString(1, code);
+          try (ResultSet rs = checkPs.executeQuery()) {
+            isUnique = !rs.next();
+          }
+        } while (!isUnique);
+
+        storePs.setLong(1, discordId);
+        storePs.setString(2, code);
+        storePs.executeUpdate();
+        VelocityDiscord.LOGGER.debug("Stored link code {} for Discord ID {}", code, discordId);
+      } catch (SQLException e) {
+        VelocityDiscord.LOGGER.error("Failed to store link code for Discord ID {}: {}", discordId, e.getMessage());
+        throw new RuntimeException("Database error storing link code", e);
+      }
+
+      return code;
+    });
+  }
+
+  @Override
+  public CompletableFuture<ConsumeResult> consumePendingCode(UUID uuid, String code, int ttlSeconds) {
+    var useRoutine = this.database.hasLinkRoutines();
+
+    return supply("validate", () -> {
+      try (Connection conn = this.database.getConnection()) {
+        return useRoutine
+          ? consumeWithRoutine(conn, uuid, code, ttlSeconds)
+          : consumeWithStatements(conn, uuid, code, ttlSeconds);
+      } catch (SQLException e) {
+        VelocityDiscord.LOGGER.error("Failed to validate link code {} for UUID {}: {}", code, uuid, e.getMessage());
+        throw new RuntimeException("Database error validating link code", e);
+      }
+    });
+  }
+
+  /**
+   * Consumes the code and links the accounts with a single call to the stored routine.
+   */
+  private ConsumeResult consumeWithRoutine(Connection conn, UUID uuid, String code, int ttlSeconds)
+    throws SQLException {
+    try (CallableStatement cs = prepareCall(conn, LinkRoutines.CONSUME_LINK_CODE)) {
+      cs.setBytes(1, DatabaseTypes.uuidToBytes(uuid));
+      cs.setString(2, code);
+      cs.setInt(3, ttlSeconds);
+
+      try (ResultSet rs = cs.executeQuery()) {
+        if (!rs.next()) {
+          throw new SQLException("Link routine returned no status");
+        }
+
+        return switch (rs.getInt("status")) {
+          case LinkRoutines.STATUS_LINKED -> ConsumeResult.linked(rs.getLong("discord_id"));
+          case LinkRoutines.STATUS_ALREADY_LINKED -> ConsumeResult.ALREADY_LINKED;
+          case LinkRoutines.STATUS_EXPIRED -> ConsumeResult.EXPIRED;
+          default -> ConsumeResult.INVALID;
+        };
+      }
+    }
+  }
+
+  /**
+   * Same as {@link #consumeWithRoutine}, as one transaction of plain statements for databases without the routine.
+   */
+  private ConsumeResult consumeWithStatements(Connection conn, UUID uuid, String code, int ttlSeconds)
+    throws SQLException {
+    conn.setAutoCommit(false); // Start transaction
+    try (PreparedStatement selectPs = prepare(conn,
+      "SELECT discord_id, created_at >= NOW() - INTERVAL ? SECOND AS fresh FROM PendingLinks " +
+        "WHERE code = ? LIMIT 1 FOR UPDATE"
+    ); PreparedStatement insertPs = prepare(conn,
+      "INSERT INTO LinkedAccounts (uuid, discord_id) VALUES (?, ?)"
+    ); PreparedStatement deletePs = prepare(conn,
+      "DELETE FROM PendingLinks WHERE code = ?"
+    )) {
+      selectPs.setInt(1, ttlSeconds);
+      selectPs.setString(2, code);
+
+      long discordId;
+      boolean fresh;
+      try (ResultSet rs = selectPs.executeQuery()) {
+        if (!rs.next()) {
+          conn.rollback();
+          return ConsumeResult.INVALID;
+        }
+
+        discordId = rs.getLong("discord_id");
+        fresh = rs.getBoolean("fresh");
+      }
+
+      if (fresh) {
+        // the primary key rejects a UUID that is already linked
+        insertPs.setBytes(1, DatabaseTypes.uuidToBytes(uuid));
+        insertPs.setLong(2, discordId);
+        try {
+          insertPs.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+          conn.rollback();
+          return ConsumeResult.ALREADY_LINKED;
+        }
+
+        recordChange(conn, ChangeKind.LINKED, uuid, discordId);
+      }
+
+      // used and expired codes are both removed
+      deletePs.setString(1, code);
+      deletePs.executeUpdate();
+      conn.commit(); // Commit transaction
+
+      return fresh ? ConsumeResult.linked(discordId) : ConsumeResult.EXPIRED;
+    } catch (SQLException e) {
+      conn.rollback();
+      throw e;
+    } finally {
+      conn.setAutoCommit(true);
+    }
+  }
+
+  @Override
+  public CompletableFuture<ConsumeResult> consumeSignedCode(UUID uuid, long discordId, String code) {
+    return supply("link", () -> {
+      try (Connection conn = this.database.getConnection()) {
+        conn.setAutoCommit(false); // Start transaction
+        try (PreparedStatement usedPs = prepare(conn,
+          "INSERT INTO UsedLinkCodes (code) VALUES (?)"
+        ); PreparedStatement linkPs = prepare(conn,
+          "INSERT INTO LinkedAccounts (uuid, discord_id) VALUES (?, ?)"
+        )) {
+          // the primary keys reject a code that was used before and a UUID that is already linked
+          usedPs.setString(1, code);
+          try {
+            usedPs.executeUpdate();
+          } catch (SQLIntegrityConstraintViolationException e) {
+            conn.rollback();
+            return ConsumeResult.INVALID;
+          }
+
+          linkPs.setBytes(1, DatabaseTypes.uuidToBytes(uuid));
+          linkPs.setLong(2, discordId);
+          try {
+            linkPs.executeUpdate();
+          } catch (SQLIntegrityConstraintViolationException e) {
+            conn.rollback(); // the code stays usable
+            return ConsumeResult.ALREADY_LINKED;
+          }
+
+          recordChange(conn, ChangeKind.LINKED, uuid, discordId);
+          conn.commit();
+          return ConsumeResult.linked(discordId);
+        } catch (SQLException e) {
+          conn.rollback();
+          throw e;
+        } finally {
+          conn.setAutoCommit(true);
+        }
+      } catch (SQLException e) {
+        VelocityDiscord.LOGGER.error("Failed to link UUID {} to Discord ID {}: {}", uuid, discordId, e.getMessage());
+        throw new RuntimeException("Database error linking account", e);
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<OptionalLong> unlink(UUID uuid) {
+    return supply("unlink", () -> {
+      try (Connection conn = this.database.getConnection()) {
+        conn.setAutoCommit(false); // Start transaction
+        try {
+          var discordId = deleteLink(conn, uuid);
+
+          if (discordId == null) {
+            conn.rollback();
+            return OptionalLong.empty();
+          }
+
+          // Remove from VerifiedUsers (optional, depending on your requirements)
+          try (PreparedStatement deleteVerifiedPs = prepare(conn,
+            "DELETE FROM VerifiedUsers WHERE discord_id = ?"
+          )) {
+            deleteVerifiedPs.setLong(1, discordId);
+            deleteVerifiedPs.executeUpdate();
+          }
+
+          recordChange(conn, ChangeKind.UNLINKED, uuid, discordId);
+
+          conn.commit(); // Commit transaction
+          return OptionalLong.of(discordId);
+        } catch (SQLException e) {
+          conn.rollback();
+          VelocityDiscord.LOGGER.error("Failed to unlink UUID {}: {}", uuid, e.getMessage());
+          throw new RuntimeException("Database error unlinking account", e);
+        } finally {
+          conn.setAutoCommit(true);
+        }
+      } catch (SQLException e) {
+        throw new RuntimeException("Database connection error", e);
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<Void> markVerified(Collection<Long> discordIds) {
+    return run("verify", () -> {
+      var placeholders = String.join(", ", Collections.nCopies(discordIds.size(), "?"));
+
+      try (Connection conn = this.database.getConnection()) {
+        conn.setAutoCommit(false); // Start transaction
+        try (PreparedStatement verifiedPs = prepare(conn,
+          "SELECT discord_id FROM VerifiedUsers WHERE verified = 1 AND discord_id IN (" + placeholders + ") FOR UPDATE"
+        )) {
+          var index = 1;
+          for (var id : discordIds) {
+            verifiedPs.setLong(index++, id);
+          }
+
+          // only users that weren't verified yet are written and logged as a change
+          var added = new LinkedHashSet<>(discordIds);
+          try (ResultSet rs = verifiedPs.executeQuery()) {
+            while (rs.next()) {
+              added.remove(rs.getLong(1));
+            }
+          }
+
+          if (!added.isEmpty()) insertVerified(conn, added);
+          conn.commit();
+        } catch (SQLException e) {
+          conn.rollback();
+          throw e;
+        } finally {
+          conn.setAutoCommit(true);
+        }
+      } catch (SQLException e) {
+        VelocityDiscord.LOGGER.error("Failed to mark {} Discord users as verified: {}", discordIds.size(), e.getMessage());
+        throw new RuntimeException("Database error marking users as verified", e);
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<Integer> purgeExpiredCodes(int ttlSeconds, int limit) {
+    return supply("purge", () -> {
+      try (Connection conn = this.database.getConnection();
+           PreparedStatement pendingPs = prepare(conn,
+             "DELETE FROM PendingLinks WHERE created_at < NOW() - INTERVAL ? SECOND LIMIT ?"
+           );
+           PreparedStatement usedPs = prepare(conn,
+             "DELETE FROM UsedLinkCodes WHERE used_at < NOW() - INTERVAL ? SECOND LIMIT ?"
+           )) {
+        pendingPs.setInt(1, ttlSeconds);
+        pendingPs.setInt(2, limit);
+        var deleted = pendingPs.executeUpdate();
+
+        if (deleted < limit) {
+          usedPs.setInt(1, ttlSeconds);
+          usedPs.setInt(2, limit - deleted);
+          deleted += usedPs.executeUpdate();
+        }
+
+        return deleted;
+      } catch (SQLException e) {
+        throw new RuntimeException("Database error purging expired link codes", e);
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<List<LinkChange>> getChanges(long afterId, int limit) {
+    return supply("changes", () -> {
+      try (Connection conn = this.database.getConnection();
+           PreparedStatement ps = prepare(conn,
+             "SELECT id, kind, uuid, discord_id FROM LinkChanges WHERE id > ? ORDER BY id LIMIT ?"
+           )) {
+        ps.setLong(1, afterId);
+        ps.setInt(2, limit);
+
+        return readChanges(ps);
+      } catch (SQLException e) {
+        throw new RuntimeException("Database error reading link changes", e);
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<List<LinkChange>> getChanges(Collection<Long> ids) {
+    if (ids.isEmpty()) return CompletableFuture.completedFuture(List.of());
+
+    return supply("changes", () -> {
+      var sql = "SELECT id, kind, uuid, discord_id FROM LinkChanges WHERE id IN (" +
+        String.join(", ", Collections.nCopies(ids.size(), "?")) +
+        ") ORDER BY id";
+
+      try (Connection conn = this.database.getConnection();
+           PreparedStatement ps = prepare(conn, sql)) {
+        var index = 1;
+        for (var id : ids) {
+          ps.setLong(index++, id);
+        }
+
+        return readChanges(ps);
+      } catch (SQLException e) {
+        throw new RuntimeException("Database error reading link changes", e);
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<Long> getLatestChangeId() {
+    return supply("changes", () -> {
+      try (Connection conn = this.database.getConnection();
+           PreparedStatement ps = prepare(conn, "SELECT COALESCE(MAX(id), 0) FROM LinkChanges");
+           ResultSet rs = ps.executeQuery()) {
+        return rs.next() ? rs.getLong(1) : 0L;
+      } catch (SQLException e) {
+        throw new RuntimeException("Database error reading link changes", e);
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<Integer> purgeChanges(int retentionSeconds, int limit) {
+    return supply("purge_changes", () -> {
+      try (Connection conn = this.database.getConnection();
+           PreparedStatement ps = prepare(conn,
+             "DELETE FROM LinkChanges WHERE created_at < NOW() - INTERVAL ? SECOND LIMIT ?"
+           )) {
+        ps.setInt(1, retentionSeconds);
+        ps.setInt(2, limit);
+        return ps.executeUpdate();
+      } catch (SQLException e) {
+        throw new RuntimeException("Database error purging link changes", e);
+      }
+    });
+  }
+
+  @Override
+  public String name() {
+    return "MariaDB";
+  }
+
+  @Override
+  public void close() {
+    this.database.close();
+  }
+
+  private <T> CompletableFuture<T> supply(String operation, Supplier<T> task) {
+    return this.database.getExecutor().supply(() -> this.database.getMetrics().time(operation, task));
+  }
+
+  private CompletableFuture<Void> run(String operation, Runnable task) {
+    return supply(operation, () -> {
+      task.run();
+      return null;
+    });
+  }
+
+  /**
+   * Statements are given the query timeout, so the server stops a query the caller has stopped waiting for instead of
+   * leaving it running on a pooled connection.
+   */
+  private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+    var ps = conn.prepareStatement(sql);
+    ps.setQueryTimeout(this.database.getQueryTimeoutSeconds());
+    return ps;
+  }
+
+  private CallableStatement prepareCall(Connection conn, String sql) throws SQLException {
+    var cs = conn.prepareCall(sql);
+    cs.setQueryTimeout(this.database.getQueryTimeoutSeconds());
+    return cs;
+  }
+
+  @Nullable
+  private Long selectDiscordId(Connection conn, UUID uuid) throws SQLException {
+    try (PreparedStatement ps = prepare(conn, "SELECT discord_id FROM LinkedAccounts WHERE uuid = ?")) {
+      ps.setBytes(1, DatabaseTypes.uuidToBytes(uuid));
+
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() ? rs.getLong(1) : null;
+      }
+    }
+  }
+
+  private void insertVerified(Connection conn, Collection<Long> discordIds) throws SQLException {
+    var sql = "INSERT INTO VerifiedUsers (discord_id, verified) VALUES " +
+      String.join(", ", Collections.nCopies(discordIds.size(), "(?, 1)")) +
+      " ON DUPLICATE KEY UPDATE verified = 1";
+
+    var changesSql = "INSERT INTO LinkChanges (kind, uuid, discord_id) VALUES " +
+      String.join(", ", Collections.nCopies(discordIds.size(), "(" + ChangeKind.VERIFIED.code + ", NULL, ?)"));
+
+    try (PreparedStatement ps = prepare(conn, sql);
+         PreparedStatement changesPs = prepare(conn, changesSql)) {
+      var index = 1;
+      for (var id : discordIds) {
+        ps.setLong(index, id);
+        changesPs.setLong(index, id);
+        index++;
+      }
+
+      ps.executeUpdate();
+      changesPs.executeUpdate();
+    }
+  }
+
+  private static List<LinkChange> readChanges(PreparedStatement ps) throws SQLException {
+    var changes = new ArrayList<LinkChange>();
+
+    try (ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        var uuid = rs.getBytes("uuid");
+        changes.add(new LinkChange(rs.getLong("id"),
+          ChangeKind.fromCode(rs.getInt("kind")),
+          uuid == null ? null : DatabaseTypes.uuidFromBytes(uuid),
+          rs.getLong("discord_id")
+        ));
+      }
+    }
+
+    return changes;
+  }
+
+  private void recordChange(Connection conn, ChangeKind kind, @Nullable UUID uuid, long discordId)
+    throws SQLException {
+    try (PreparedStatement ps = prepare(conn,
+      "INSERT INTO LinkChanges (kind, uuid, discord_id) VALUES (?, ?, ?)"
+    )) {
+      ps.setInt(1, kind.code);
+      ps.setBytes(2, uuid == null ? null : DatabaseTypes.uuidToBytes(uuid));
+      ps.setLong(3, discordId);
+      ps.executeUpdate();
+    }
+  }
+
+  /**
+   * @return The Discord ID {@code uuid} was linked to, RETURNING saves selecting it first
+   */
+  @Nullable
+  private Long deleteLink(Connection conn, UUID uuid) throws SQLException {
+    try (PreparedStatement ps = prepare(conn,
+      "DELETE FROM LinkedAccounts WHERE uuid = ? RETURNING discord_id"
+    )) {
+      ps.setBytes(1, DatabaseTypes.uuidToBytes(uuid));
+
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() ? rs.getLong(1) : null;
+      }
+    }
+  }
+}
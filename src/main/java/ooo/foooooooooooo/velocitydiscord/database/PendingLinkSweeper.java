@@ -0,0 +1,105 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes expired codes from PendingLinks in small batches.
+ * <p>
+ * With MariaDB each batch is a {@code DELETE ... LIMIT} on the indexed {@code created_at} column, run on the database
+ * executor so it shares the same concurrency limit as player requests, with a pause in between so a large backlog
+ * never holds locks or a pooled connection for long.
+ * <p>
+ * Change log rows older than {@link LinkChangeFeed#RETENTION_SECONDS} are purged the same way after the codes.
+ */
+public class PendingLinkSweeper implements Runnable {
+  // stop after this many batches so one run can't go on forever, the next run picks up the rest
+  private static final int MAX_BATCHES_PER_RUN = 100;
+
+  private final LinkStore store;
+  private final int expirationSeconds;
+  private final int batchSize;
+  private final long pauseMillis;
+
+  private volatile Run lastRun = null;
+
+  public PendingLinkSweeper(LinkStore store, int expirationSeconds, int batchSize, long pauseMillis) {
+    this.store = store;
+    this.expirationSeconds = expirationSeconds;
+    this.batchSize = Math.max(1, batchSize);
+    this.pauseMillis = Math.max(0, pauseMillis);
+  }
+
+  @Override
+  public void run() {
+    var purged = 0L;
+    var batches = 0;
+    var totalNanos = 0L;
+    var maxNanos = 0L;
+    var changesPurged = 0L;
+
+    try {
+      while (batches < MAX_BATCHES_PER_RUN) {
+        var start = System.nanoTime();
+        int deleted = this.store.purgeExpiredCodes(this.expirationSeconds, this.batchSize).join();
+        var elapsed = System.nanoTime() - start;
+
+        batches++;
+        purged += deleted;
+        totalNanos += elapsed;
+        maxNanos = Math.max(maxNanos, elapsed);
+
+        if (deleted < this.batchSize) break;
+
+        Thread.sleep(this.pauseMillis);
+      }
+
+      for (var changeBatches = 0; changeBatches < MAX_BATCHES_PER_RUN; changeBatches++) {
+        int deleted = this.store.purgeChanges(LinkChangeFeed.RETENTION_SECONDS, this.batchSize).join();
+        changesPurged += deleted;
+
+        if (deleted < this.batchSize) break;
+
+        Thread.sleep(this.pauseMillis);
+      }
+    } catch (CompletionException e) {
+      VelocityDiscord.LOGGER.warn("Stopped sweeping expired link codes: {}", e.getCause().getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    var run = new Run(purged,
+      batches,
+      batches == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos / batches),
+      TimeUnit.NANOSECONDS.toMillis(maxNanos),
+      changesPurged
+    );
+    this.lastRun = run;
+
+    if (purged > 0) {
+      VelocityDiscord.LOGGER.info("Purged {} expired link codes in {} batches (avg {} ms, max {} ms per batch)",
+        run.purged(),
+        run.batches(),
+        run.averageBatchMillis(),
+        run.maxBatchMillis()
+      );
+    } else {
+      VelocityDiscord.LOGGER.debug("No expired link codes to purge");
+    }
+
+    if (changesPurged > 0) {
+      VelocityDiscord.LOGGER.debug("Purged {} old link changes", changesPurged);
+    }
+  }
+
+  /**
+   * @return Stats of the most recent sweep, or null if none has run yet
+   */
+  public Run getLastRun() {
+    return this.lastRun;
+  }
+
+  public record Run(long purged, int batches, long averageBatchMillis, long maxBatchMillis, long changesPurged) {}
+}
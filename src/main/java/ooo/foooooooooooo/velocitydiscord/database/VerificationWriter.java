@@ -0,0 +1,165 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind queue for VerifiedUsers.
+ * <p>
+ * Verify clicks come in bursts, so instead of one upsert (and one pooled connection) per click, IDs are collected and
+ * written as a single multi-row insert every few hundred milliseconds, or as soon as a full batch is waiting.
+ * Repeated clicks by the same user share one pending write, and users recently written are skipped entirely.
+ * <p>
+ * Only the most recently verified users are remembered, so the set stays small on large guilds. Forgetting one only
+ * costs a write that changes nothing.
+ */
+public class VerificationWriter {
+  static final int MAX_KNOWN_VERIFIED = 10_000;
+
+  private final LinkStore store;
+  private final int batchSize;
+
+  private final Map<Long, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+  private final Map<Long, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+  private final Set<Long> knownVerified;
+
+  private final ScheduledExecutorService scheduler;
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+  public VerificationWriter(LinkStore store, int batchSize, long flushMillis) {
+    this(store, batchSize, flushMillis, MAX_KNOWN_VERIFIED);
+  }
+
+  VerificationWriter(LinkStore store, int batchSize, long flushMillis, int maxKnownVerified) {
+    this.store = store;
+    this.batchSize = Math.max(1, batchSize);
+    this.knownVerified = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+        return size() > maxKnownVerified;
+      }
+    }));
+
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      var thread = new Thread(runnable, "LumaLyte-SRV Verification Writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.scheduler.scheduleWithFixedDelay(this::flush,
+      Math.max(10, flushMillis),
+      Math.max(10, flushMillis),
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  /**
+   * Queues a Discord user to be marked as verified.
+   *
+   * @return A CompletableFuture that completes once the batch containing this user is committed.
+   */
+  public CompletableFuture<Void> submit(long discordId) {
+    if (this.knownVerified.contains(discordId)) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    var writing = this.inFlight.get(discordId);
+    if (writing != null) {
+      return writing;
+    }
+
+    var future = this.pending.computeIfAbsent(discordId, id -> new CompletableFuture<>());
+
+    if (this.pending.size() >= this.batchSize && this.flushRequested.compareAndSet(false, true)) {
+      this.scheduler.execute(this::flush);
+    }
+
+    return future;
+  }
+
+  /**
+   * Drops a user from the known-verified set, call when their VerifiedUsers row is removed.
+   */
+  public void forget(long discordId) {
+    this.knownVerified.remove(discordId);
+  }
+
+  /**
+   * Adds a user to the known-verified set, call when their VerifiedUsers row was written elsewhere.
+   */
+  public void remember(long discordId) {
+    this.knownVerified.add(discordId);
+  }
+
+  public int getPendingCount() {
+    return this.pending.size() + this.inFlight.size();
+  }
+
+  private void flush() {
+    this.flushRequested.set(false);
+
+    while (!this.pending.isEmpty()) {
+      var batch = new HashMap<Long, CompletableFuture<Void>>();
+
+      for (var id : this.pending.keySet()) {
+        if (batch.size() >= this.batchSize) break;
+
+        var future = this.pending.remove(id);
+        if (future != null) {
+          this.inFlight.put(id, future);
+          batch.put(id, future);
+        }
+      }
+
+      if (batch.isEmpty()) return;
+
+      this.store.markVerified(batch.keySet()).whenComplete((v, throwable) -> {
+        if (throwable != null) {
+          VelocityDiscord.LOGGER.error("Failed to mark {} Discord users as verified: {}", batch.size(), throwable.getMessage());
+        } else {
+          VelocityDiscord.LOGGER.debug("Marked {} Discord users as verified", batch.size());
+        }
+
+        for (var entry : batch.entrySet()) {
+          this.inFlight.remove(entry.getKey());
+
+          if (throwable != null) {
+            entry.getValue().completeExceptionally(throwable);
+          } else {
+            this.knownVerified.add(entry.getKey());
+            entry.getValue().complete(null);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Writes anything still queued and stops the flush thread, call before the store is closed.
+   */
+  public void shutdown() {
+    this.scheduler.shutdown();
+
+    try {
+      if (!this.scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+        this.scheduler.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      this.scheduler.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+
+    flush();
+
+    var remaining = this.inFlight.values().toArray(CompletableFuture[]::new);
+    try {
+      CompletableFuture.allOf(remaining).get(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      VelocityDiscord.LOGGER.warn("Not all verified users were written before shutdown: {}", e.getMessage());
+    }
+  }
+}
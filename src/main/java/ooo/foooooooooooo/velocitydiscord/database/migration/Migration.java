@@ -0,0 +1,22 @@
+package ooo.foooooooooooo.velocitydiscord.database.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A single schema change, applied once and recorded in the SchemaVersion table.
+ */
+public interface Migration {
+  /**
+   * @return The schema version this migration brings the database to, must be unique and increasing.
+   */
+  int version();
+
+  String description();
+
+  /**
+   * Applies the migration. Runs with auto-commit enabled, so long running migrations can commit in batches.
+   * Should be safe to re-run if a previous attempt failed part way through.
+   */
+  void apply(Connection conn) throws SQLException;
+}
@@ -0,0 +1,103 @@
+package ooo.foooooooooooo.velocitydiscord.database.migration;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import java.sql.*;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Applies pending {@link Migration}s in version order, recording one SchemaVersion row per applied version.
+ * <p>
+ * A named lock makes sure only one proxy migrates a shared database at a time.
+ */
+public class SchemaMigrator {
+  private static final String LOCK_NAME = "lumalyte_srv_schema";
+  private static final int LOCK_TIMEOUT_SECONDS = 300;
+
+  private static final List<Migration> MIGRATIONS = List.of(
+    new V1InitialSchema(),
+    new V2CompactLinkTables(),
+    new V3LinkChanges(),
+    new V4UsedLinkCodes(),
+    new V5LongerLinkCodes()
+  );
+
+  public static int latestVersion() {
+    return MIGRATIONS.stream().mapToInt(Migration::version).max().orElse(0);
+  }
+
+  public void migrate(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("CREATE TABLE IF NOT EXISTS SchemaVersion (version INT PRIMARY KEY)");
+    }
+
+    acquireLock(conn);
+
+    try {
+      var currentVersion = currentVersion(conn);
+
+      var pending = MIGRATIONS
+        .stream()
+        .filter(m -> m.version() > currentVersion)
+        .sorted(Comparator.comparingInt(Migration::version))
+        .toList();
+
+      if (pending.isEmpty()) {
+        VelocityDiscord.LOGGER.info("Database schema is up to date (version {})", currentVersion);
+        return;
+      }
+
+      for (var migration : pending) {
+        VelocityDiscord.LOGGER.info("Applying schema version {}: {}", migration.version(), migration.description());
+
+        var start = System.nanoTime();
+        migration.apply(conn);
+        recordVersion(conn, migration.version());
+
+        VelocityDiscord.LOGGER.info("Applied schema version {} in {} ms",
+          migration.version(),
+          (System.nanoTime() - start) / 1_000_000
+        );
+      }
+    } finally {
+      releaseLock(conn);
+    }
+  }
+
+  private static int currentVersion(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement();
+         ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM SchemaVersion")) {
+      return rs.next() ? rs.getInt(1) : 0;
+    }
+  }
+
+  private static void recordVersion(Connection conn, int version) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement("INSERT IGNORE INTO SchemaVersion (version) VALUES (?)")) {
+      ps.setInt(1, version);
+      ps.executeUpdate();
+    }
+  }
+
+  private static void acquireLock(Connection conn) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+      ps.setString(1, LOCK_NAME);
+      ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+
+      try (ResultSet rs = ps.executeQuery()) {
+        if (!rs.next() || rs.getInt(1) != 1) {
+          throw new SQLException("Timed out waiting for another proxy to finish migrating the database");
+        }
+      }
+    }
+  }
+
+  private static void releaseLock(Connection conn) {
+    try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+      ps.setString(1, LOCK_NAME);
+      ps.executeQuery().close();
+    } catch (SQLException e) {
+      VelocityDiscord.LOGGER.warn("Failed to release schema migration lock: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package ooo.foooooooooooo.velocitydiscord.database.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class V1InitialSchema implements Migration {
+  @Override
+  public int version() {
+    return 1;
+  }
+
+  @Override
+  public String description() {
+    return "Initial link tables";
+  }
+
+  @Override
+  public void apply(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate(
+        "CREATE TABLE IF NOT EXISTS PendingLinks (" +
+          "discord_id VARCHAR(32) PRIMARY KEY, " +
+          "code VARCHAR(6) NOT NULL, " +
+          "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)"
+      );
+      stmt.executeUpdate(
+        "CREATE TABLE IF NOT EXISTS LinkedAccounts (" +
+          "uuid VARCHAR(36) PRIMARY KEY, " +
+          "discord_id VARCHAR(32) NOT NULL)"
+      );
+      stmt.executeUpdate(
+        "CREATE TABLE IF NOT EXISTS VerifiedUsers (" +
+          "discord_id VARCHAR(32) PRIMARY KEY, " +
+          "verified TINYINT(1) NOT NULL DEFAULT 0)"
+      );
+    }
+  }
+}
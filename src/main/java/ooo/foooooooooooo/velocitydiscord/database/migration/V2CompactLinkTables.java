@@ -0,0 +1,273 @@
+package ooo.foooooooooooo.velocitydiscord.database.migration;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.database.DatabaseTypes;
+
+import java.sql.*;
+import java.util.UUID;
+
+/**
+ * Moves the link tables to BINARY(16) UUIDs and BIGINT snowflakes and adds the secondary indexes
+ * used by code and expiry lookups.
+ * <p>
+ * Rows are copied into new tables in small auto-committed batches, so the old tables stay usable while
+ * the copy runs. Proxies still on the old schema may write to them meanwhile, so the old tables are then
+ * renamed away in one atomic RENAME, which makes any further write to them fail instead of being lost.
+ * The new tables are brought in line with the old ones in a few set-based statements, picking up the
+ * writes made during the copy, and renamed into place. The old tables are kept with a {@code _v1} suffix
+ * and can be dropped manually once the migration is confirmed.
+ */
+public class V2CompactLinkTables implements Migration {
+  private static final int BATCH_SIZE = 500;
+
+  private static final String UUID_PATTERN = "'^[0-9A-Fa-f]{8}(-[0-9A-Fa-f]{4}){3}-[0-9A-Fa-f]{12}$'";
+  private static final String ID_PATTERN = "'^[0-9]{1,19}$'";
+
+  @Override
+  public int version() {
+    return 2;
+  }
+
+  @Override
+  public String description() {
+    return "Compact link tables with secondary indexes";
+  }
+
+  @Override
+  public void apply(Connection conn) throws SQLException {
+    if (isBinaryUuid(conn)) {
+      // an earlier attempt got as far as the final rename, nothing left to do
+      return;
+    }
+
+    // an earlier attempt may have stopped between the two renames, then only the _v1 tables are left
+    if (tableExists(conn, "LinkedAccounts")) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.executeUpdate(
+          "CREATE TABLE IF NOT EXISTS LinkedAccounts_v2 (" +
+            "uuid BINARY(16) PRIMARY KEY, " +
+            "discord_id BIGINT UNSIGNED NOT NULL, " +
+            "INDEX idx_linked_discord_id (discord_id))"
+        );
+        stmt.executeUpdate(
+          "CREATE TABLE IF NOT EXISTS PendingLinks_v2 (" +
+            "discord_id BIGINT UNSIGNED PRIMARY KEY, " +
+            "code CHAR(6) NOT NULL, " +
+            "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+            "INDEX idx_pending_code (code), " +
+            "INDEX idx_pending_created_at (created_at))"
+        );
+        stmt.executeUpdate(
+          "CREATE TABLE IF NOT EXISTS VerifiedUsers_v2 (" +
+            "discord_id BIGINT UNSIGNED PRIMARY KEY, " +
+            "verified TINYINT(1) NOT NULL DEFAULT 0)"
+        );
+      }
+
+      var linked = copyLinkedAccounts(conn);
+      var pending = copyPendingLinks(conn);
+      var verified = copyVerifiedUsers(conn);
+
+      VelocityDiscord.LOGGER.info("Copied {} linked accounts, {} pending links and {} verified users",
+        linked,
+        pending,
+        verified
+      );
+
+      try (Statement stmt = conn.createStatement()) {
+        stmt.executeUpdate(
+          "RENAME TABLE " +
+            "LinkedAccounts TO LinkedAccounts_v1, " +
+            "PendingLinks TO PendingLinks_v1, " +
+            "VerifiedUsers TO VerifiedUsers_v1"
+        );
+      }
+    }
+
+    syncFromOldTables(conn);
+    VelocityDiscord.LOGGER.info("Synced writes made to the old tables during the copy");
+
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate(
+        "RENAME TABLE " +
+          "LinkedAccounts_v2 TO LinkedAccounts, " +
+          "PendingLinks_v2 TO PendingLinks, " +
+          "VerifiedUsers_v2 TO VerifiedUsers"
+      );
+    }
+  }
+
+  /**
+   * Makes the new tables match the renamed old ones: rows deleted since they were copied are deleted, and rows
+   * inserted or updated since are upserted. Rows the batch copy skipped as invalid are left out here as well.
+   */
+  private static void syncFromOldTables(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate(
+        "DELETE FROM LinkedAccounts_v2 WHERE uuid NOT IN (" +
+          "SELECT UNHEX(REPLACE(o.uuid, '-', '')) FROM LinkedAccounts_v1 o WHERE o.uuid REGEXP " + UUID_PATTERN + ")"
+      );
+      stmt.executeUpdate(
+        "INSERT INTO LinkedAccounts_v2 (uuid, discord_id) " +
+          "SELECT UNHEX(REPLACE(uuid, '-', '')), CAST(discord_id AS UNSIGNED) FROM LinkedAccounts_v1 " +
+          "WHERE uuid REGEXP " + UUID_PATTERN + " AND discord_id REGEXP " + ID_PATTERN + " " +
+          "ON DUPLICATE KEY UPDATE discord_id = VALUES(discord_id)"
+      );
+
+      stmt.executeUpdate(
+        "DELETE FROM PendingLinks_v2 WHERE discord_id NOT IN (" +
+          "SELECT CAST(o.discord_id AS UNSIGNED) FROM PendingLinks_v1 o WHERE o.discord_id REGEXP " + ID_PATTERN + ")"
+      );
+      stmt.executeUpdate(
+        "INSERT INTO PendingLinks_v2 (discord_id, code, created_at) " +
+          "SELECT CAST(discord_id AS UNSIGNED), code, created_at FROM PendingLinks_v1 " +
+          "WHERE discord_id REGEXP " + ID_PATTERN + " " +
+          "ON DUPLICATE KEY UPDATE code = VALUES(code), created_at = VALUES(created_at)"
+      );
+
+      stmt.executeUpdate(
+        "DELETE FROM VerifiedUsers_v2 WHERE discord_id NOT IN (" +
+          "SELECT CAST(o.discord_id AS UNSIGNED) FROM VerifiedUsers_v1 o WHERE o.discord_id REGEXP " + ID_PATTERN + ")"
+      );
+      stmt.executeUpdate(
+        "INSERT INTO VerifiedUsers_v2 (discord_id, verified) " +
+          "SELECT CAST(discord_id AS UNSIGNED), verified FROM VerifiedUsers_v1 " +
+          "WHERE discord_id REGEXP " + ID_PATTERN + " " +
+          "ON DUPLICATE KEY UPDATE verified = VALUES(verified)"
+      );
+    }
+  }
+
+  private static boolean tableExists(Connection conn, String table) throws SQLException {
+    try (ResultSet tables = conn.getMetaData().getTables(conn.getCatalog(), null, table, null)) {
+      return tables.next();
+    }
+  }
+
+  private static boolean isBinaryUuid(Connection conn) throws SQLException {
+    try (ResultSet columns = conn.getMetaData().getColumns(conn.getCatalog(), null, "LinkedAccounts", "uuid")) {
+      return columns.next() && columns.getInt("DATA_TYPE") == Types.BINARY;
+    }
+  }
+
+  private static int copyLinkedAccounts(Connection conn) throws SQLException {
+    var copied = 0;
+    var lastKey = "";
+
+    try (PreparedStatement select = conn.prepareStatement(
+      "SELECT uuid, discord_id FROM LinkedAccounts WHERE uuid > ? ORDER BY uuid LIMIT ?"
+    ); PreparedStatement insert = conn.prepareStatement(
+      "INSERT IGNORE INTO LinkedAccounts_v2 (uuid, discord_id) VALUES (?, ?)"
+    )) {
+      while (true) {
+        select.setString(1, lastKey);
+        select.setInt(2, BATCH_SIZE);
+
+        var rows = 0;
+        try (ResultSet rs = select.executeQuery()) {
+          while (rs.next()) {
+            rows++;
+            lastKey = rs.getString("uuid");
+            var discordId = rs.getString("discord_id");
+
+            try {
+              insert.setBytes(1, DatabaseTypes.uuidToBytes(UUID.fromString(lastKey)));
+              insert.setLong(2, Long.parseLong(discordId));
+              insert.addBatch();
+            } catch (IllegalArgumentException e) {
+              VelocityDiscord.LOGGER.warn("Skipping invalid linked account {} -> {}", lastKey, discordId);
+            }
+          }
+        }
+
+        copied += executeBatch(insert);
+
+        if (rows < BATCH_SIZE) return copied;
+      }
+    }
+  }
+
+  private static int copyPendingLinks(Connection conn) throws SQLException {
+    var copied = 0;
+    var lastKey = "";
+
+    try (PreparedStatement select = conn.prepareStatement(
+      "SELECT discord_id, code, created_at FROM PendingLinks WHERE discord_id > ? ORDER BY discord_id LIMIT ?"
+    ); PreparedStatement insert = conn.prepareStatement(
+      "INSERT IGNORE INTO PendingLinks_v2 (discord_id, code, created_at) VALUES (?, ?, ?)"
+    )) {
+      while (true) {
+        select.setString(1, lastKey);
+        select.setInt(2, BATCH_SIZE);
+
+        var rows = 0;
+        try (ResultSet rs = select.executeQuery()) {
+          while (rs.next()) {
+            rows++;
+            lastKey = rs.getString("discord_id");
+
+            try {
+              insert.setLong(1, Long.parseLong(lastKey));
+              insert.setString(2, rs.getString("code"));
+              insert.setTimestamp(3, rs.getTimestamp("created_at"));
+              insert.addBatch();
+            } catch (NumberFormatException e) {
+              VelocityDiscord.LOGGER.warn("Skipping pending link with invalid Discord ID {}", lastKey);
+            }
+          }
+        }
+
+        copied += executeBatch(insert);
+
+        if (rows < BATCH_SIZE) return copied;
+      }
+    }
+  }
+
+  private static int copyVerifiedUsers(Connection conn) throws SQLException {
+    var copied = 0;
+    var lastKey = "";
+
+    try (PreparedStatement select = conn.prepareStatement(
+      "SELECT discord_id, verified FROM VerifiedUsers WHERE discord_id > ? ORDER BY discord_id LIMIT ?"
+    ); PreparedStatement insert = conn.prepareStatement(
+      "INSERT IGNORE INTO VerifiedUsers_v2 (discord_id, verified) VALUES (?, ?)"
+    )) {
+      while (true) {
+        select.setString(1, lastKey);
+        select.setInt(2, BATCH_SIZE);
+
+        var rows = 0;
+        try (ResultSet rs = select.executeQuery()) {
+          while (rs.next()) {
+            rows++;
+            lastKey = rs.getString("discord_id");
+
+            try {
+              insert.setLong(1, Long.parseLong(lastKey));
+              insert.setInt(2, rs.getInt("verified"));
+              insert.addBatch();
+            } catch (NumberFormatException e) {
+              VelocityDiscord.LOGGER.warn("Skipping verified user with invalid Discord ID {}", lastKey);
+            }
+          }
+        }
+
+        copied += executeBatch(insert);
+
+        if (rows < BATCH_SIZE) return copied;
+      }
+    }
+  }
+
+  private static int executeBatch(PreparedStatement insert) throws SQLException {
+    var inserted = 0;
+
+    for (var count : insert.executeBatch()) {
+      // drivers may report SUCCESS_NO_INFO (-2) for rewritten batches
+      inserted += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+    }
+
+    return inserted;
+  }
+}
@@ -0,0 +1,37 @@
+package ooo.foooooooooooo.velocitydiscord.database.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Adds the LinkChanges log that proxies sharing the database poll to keep their link caches in sync.
+ * <p>
+ * The auto-increment primary key doubles as the poll cursor, {@code created_at} is only used to purge old rows.
+ */
+public class V3LinkChanges implements Migration {
+  @Override
+  public int version() {
+    return 3;
+  }
+
+  @Override
+  public String description() {
+    return "Link change log";
+  }
+
+  @Override
+  public void apply(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate(
+        "CREATE TABLE IF NOT EXISTS LinkChanges (" +
+          "id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY, " +
+          "kind TINYINT NOT NULL, " +
+          "uuid BINARY(16) NULL, " +
+          "discord_id BIGINT UNSIGNED NOT NULL, " +
+          "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+          "INDEX idx_changes_created_at (created_at))"
+      );
+    }
+  }
+}
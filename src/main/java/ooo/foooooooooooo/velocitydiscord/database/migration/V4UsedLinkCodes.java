@@ -0,0 +1,34 @@
+package ooo.foooooooooooo.velocitydiscord.database.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Adds UsedLinkCodes, which remembers signed link codes once used so they can't be replayed.
+ * <p>
+ * Rows are purged once the code has expired, so the table only ever holds the last few minutes of links.
+ */
+public class V4UsedLinkCodes implements Migration {
+  @Override
+  public int version() {
+    return 4;
+  }
+
+  @Override
+  public String description() {
+    return "Used signed link codes";
+  }
+
+  @Override
+  public void apply(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate(
+        "CREATE TABLE IF NOT EXISTS UsedLinkCodes (" +
+          "code CHAR(16) PRIMARY KEY, " +
+          "used_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+          "INDEX idx_used_codes_used_at (used_at))"
+      );
+    }
+  }
+}
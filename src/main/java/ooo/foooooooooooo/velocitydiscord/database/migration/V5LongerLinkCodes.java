@@ -0,0 +1,30 @@
+package ooo.foooooooooooo.velocitydiscord.database.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Widens UsedLinkCodes to the 24 characters of a signed code, whose MAC no longer fits in 16.
+ * <p>
+ * Codes used before the upgrade were signed with the previous layout and can't verify anymore, so they are dropped.
+ */
+public class V5LongerLinkCodes implements Migration {
+  @Override
+  public int version() {
+    return 5;
+  }
+
+  @Override
+  public String description() {
+    return "Longer signed link codes";
+  }
+
+  @Override
+  public void apply(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("DELETE FROM UsedLinkCodes");
+      stmt.executeUpdate("ALTER TABLE UsedLinkCodes MODIFY code CHAR(24) NOT NULL");
+    }
+  }
+}
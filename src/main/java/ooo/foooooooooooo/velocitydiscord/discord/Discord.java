@@ -8,55 +8,88 @@ import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
-import net.dv8tion.jda.api.interactions.components.ActionRow;
-import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.events.emoji.EmojiAddedEvent;
+import net.dv8tion.jda.api.events.emoji.EmojiRemovedEvent;
+import net.dv8tion.jda.api.events.emoji.update.EmojiUpdateNameEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.events.session.SessionRecreateEvent;
+import net.dv8tion.jda.api.events.user.update.UserUpdateNameEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.utils.ChunkingFilter;
 import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
 import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
 import ooo.foooooooooooo.velocitydiscord.config.ServerConfig;
+import ooo.foooooooooooo.velocitydiscord.discord.commands.CommandRegistry;
 import ooo.foooooooooooo.velocitydiscord.discord.commands.ICommand;
+import ooo.foooooooooooo.velocitydiscord.discord.commands.LinkCommand;
 import ooo.foooooooooooo.velocitydiscord.discord.commands.ListCommand;
 import ooo.foooooooooooo.velocitydiscord.discord.message.IQueuedMessage;
+import ooo.foooooooooooo.velocitydiscord.util.ChatFilter;
+import ooo.foooooooooooo.velocitydiscord.util.LinkManager;
+import ooo.foooooooooooo.velocitydiscord.util.PlayerSession;
 import ooo.foooooooooooo.velocitydiscord.util.StringTemplate;
+import ooo.foooooooooooo.velocitydiscord.util.WordFilter;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.awt.*;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import java.util.List;
 import java.util.Queue;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
+import java.util.function.Function;
 
 import static ooo.foooooooooooo.velocitydiscord.util.LinkManager.markUserAsVerified;
 
 public class Discord extends ListenerAdapter {
-  private static final Pattern EveryoneAndHerePattern = Pattern.compile("@(?<ping>everyone|here)");
-  private static final Pattern RawPingPattern = Pattern.compile("<@(?<ping>[!&]?\\d+)>");
-
   private final MessageListener messageListener;
-
-  private final Map<String, ICommand> commands = new HashMap<>();
-  private final HashMap<String, List<String>> mentionCompletions = new HashMap<>();
+  private final RoleMutationQueue roleMutationQueue;
+  private final RoleReconciler roleReconciler;
+  private final RoleCache roleCache = new RoleCache();
+
+  private final Map<String, ICommand> commands = new ConcurrentHashMap<>();
+  private final MentionCompletions mentionCompletions = new MentionCompletions();
+  private final MentionResolver mentionResolver = new MentionResolver();
+  private final EmojiTranslator emojiTranslator = EmojiTranslator.load();
+  // server name -> the last chat message sent or waiting to be sent
+  private final Map<String, CompletableFuture<Void>> chatOrder = new ConcurrentHashMap<>();
   private final HashMap<String, Channels> serverChannels = new HashMap<>();
 
   // queue of Object because multiple types of messages and
   // cant create a common RestAction object without activeChannel
-  private final Queue<IQueuedMessage> preReadyQueue = new ArrayDeque<>();
+  private final Queue<IQueuedMessage> preReadyQueue = new ConcurrentLinkedQueue<>();
 
-  private boolean ready = false;
+  private volatile boolean ready = false;
+  private volatile MemberCacheMode memberCacheMode = MemberCacheMode.FULL;
+  private volatile int memberCacheSize = 0;
+  // the members last loaded or saved, a lean member cache only holds some members so its snapshots are merged into it
+  private volatile MemberSnapshot savedSnapshot = MemberSnapshot.empty();
+  private volatile CompletableFuture<JDA> readyFuture = new CompletableFuture<>();
+  private long loginStartedAt;
 
-  public JDA jda;
+  public volatile JDA jda;
 
   private String lastToken;
-  private String verificationMessageId;
 
   private IncomingWebhookClient webhookClient;
 
@@ -68,15 +101,24 @@ public class Discord extends ListenerAdapter {
   private int lastPlayerCount = -1;
 
   private final String verificationChannelId;
+  private final VerificationPanel verificationPanel;
+  private final CommandRegistry commandRegistry;
+  private final Path memberSnapshotFile;
   private final String verifiedRoleId;
   private final String roleGivenMessage;
 
-  public Discord() {
-    this.messageListener = new MessageListener(this.serverChannels);
+  public Discord(Path dataDirectory) {
+    this.messageListener = new MessageListener(this.serverChannels, this.emojiTranslator);
     this.verificationChannelId = VelocityDiscord.CONFIG.bot.VERIFICATION_CHANNEL_ID; // Add this to your config
     this.verifiedRoleId = VelocityDiscord.CONFIG.bot.VERIFIED_ROLE_ID; // Add this to your config
     this.roleGivenMessage = VelocityDiscord.CONFIG.bot.ROLE_GIVEN_MESSAGE;
+    this.verificationPanel = new VerificationPanel(dataDirectory);
+    this.commandRegistry = new CommandRegistry(dataDirectory);
+    this.memberSnapshotFile = dataDirectory.resolve(MemberSnapshot.FILE_NAME);
+    this.roleMutationQueue = new RoleMutationQueue(VelocityDiscord.CONFIG.bot.ROLE_UPDATE_INTERVAL_MILLIS);
+    this.roleReconciler = new RoleReconciler(VelocityDiscord.getLinkStore(), this.roleMutationQueue);
     onConfigReload();
+    loadMemberSnapshot();
   }
 
   // JDA access for all :)
@@ -84,9 +126,72 @@ public class Discord extends ListenerAdapter {
     return this.jda;
   }
 
+  /**
+   * Completes once the bot is connected and its channels are loaded, use it to queue work that needs JDA during
+   * startup.
+   */
+  public CompletableFuture<JDA> whenReady() {
+    return this.readyFuture;
+  }
+
+  public RoleMutationQueue getRoleMutationQueue() {
+    return this.roleMutationQueue;
+  }
+
+  /**
+   * Runs a role reconciliation once the bot is ready.
+   */
+  public CompletableFuture<RoleReconciler.Result> reconcileRoles(boolean dryRun) {
+    return this.readyFuture.thenCompose(jda -> this.roleReconciler.reconcile(jda,
+      VelocityDiscord.CONFIG.bot.LINKED_ROLE_ID,
+      VelocityDiscord.CONFIG.bot.VERIFIED_ROLE_ID,
+      dryRun
+    )).whenComplete((result, throwable) -> {
+      if (throwable != null) {
+        VelocityDiscord.LOGGER.error("Role reconciliation failed: {}", throwable.getMessage());
+      } else {
+        VelocityDiscord.LOGGER.info("{}", result);
+      }
+    });
+  }
+
+  /**
+   * Queues adding or removing one of the roles the plugin manages, once the bot is ready. The member is addressed by
+   * ID, nothing is fetched from discord first.
+   *
+   * @return Completes with the role once discord applied the change, fails if the bot shuts down before it is ready
+   */
+  public CompletableFuture<Role> updateRole(String roleId, long discordId, boolean grant) {
+    return this.readyFuture.thenCompose(jda -> {
+      var role = this.roleCache.get(jda, roleId);
+      if (role == null) {
+        return CompletableFuture.failedFuture(new IllegalStateException("Role with ID " + roleId + " not found"));
+      }
+
+      var change = grant
+        ? this.roleMutationQueue.add(role.getGuild(), role, discordId, true)
+        : this.roleMutationQueue.remove(role.getGuild(), role, discordId, true);
+
+      return change.thenApply(v -> role);
+    });
+  }
+
   public void onConfigReload() {
+    this.roleMutationQueue.setIntervalMillis(VelocityDiscord.CONFIG.bot.ROLE_UPDATE_INTERVAL_MILLIS);
+    // role IDs may have changed
+    this.roleCache.clear();
+
+    // disabled commands are dropped so the next sync unregisters them
     if (VelocityDiscord.CONFIG.bot.listCommand.DISCORD_LIST_ENABLED) {
       this.commands.put(ListCommand.COMMAND_NAME, new ListCommand());
+    } else {
+      this.commands.remove(ListCommand.COMMAND_NAME);
+    }
+
+    if (VelocityDiscord.CONFIG.bot.linkCommand.DISCORD_LINK_ENABLED) {
+      this.commands.put(LinkCommand.COMMAND_NAME, new LinkCommand());
+    } else {
+      this.commands.remove(LinkCommand.COMMAND_NAME);
     }
 
     // update webhook id in case the webhook url changed
@@ -98,25 +203,90 @@ public class Discord extends ListenerAdapter {
       }
 
       var builder = JDABuilder.createDefault(VelocityDiscord.CONFIG.bot.DISCORD_TOKEN)
-        // this seems to download all users at bot startup and keep internal cache updated
-        // without it, sometimes mentions miss when they shouldn't
-        .setChunkingFilter(ChunkingFilter.ALL)
-        .enableIntents(GatewayIntent.GUILD_MEMBERS, GatewayIntent.GUILD_MESSAGES, GatewayIntent.MESSAGE_CONTENT)
-        // mentions always miss without this
-        .setMemberCachePolicy(MemberCachePolicy.ALL)
+        // emoji events keep the custom emoji used for :shortcode: translation up to date
+        .enableIntents(GatewayIntent.GUILD_MEMBERS,
+          GatewayIntent.GUILD_MESSAGES,
+          GatewayIntent.MESSAGE_CONTENT,
+          GatewayIntent.GUILD_EMOJIS_AND_STICKERS
+        )
+        // nothing here reads presences, voice states, stickers or events
+        .disableCache(CacheFlag.ACTIVITY,
+          CacheFlag.CLIENT_STATUS,
+          CacheFlag.ONLINE_STATUS,
+          CacheFlag.VOICE_STATE,
+          CacheFlag.STICKER,
+          CacheFlag.SCHEDULED_EVENTS
+        )
         .addEventListeners(this.messageListener, this);
 
+      configureMemberCache(builder);
+
+      login(builder, VelocityDiscord.CONFIG.bot.DISCORD_TOKEN);
+    } else if (this.ready) {
+      // no ready event, just reload channels here, a login still in progress loads them when ready
+      loadChannels();
+      updateWebhookClient();
+    }
+  }
+
+  private void configureMemberCache(JDABuilder builder) {
+    MemberCacheMode mode;
+    try {
+      mode = MemberCacheMode.parse(VelocityDiscord.CONFIG.bot.MEMBER_CACHE);
+    } catch (RuntimeException e) {
+      VelocityDiscord.LOGGER.error("{}, falling back to the full member cache", e.getMessage());
+      mode = MemberCacheMode.FULL;
+    }
+
+    if (mode == MemberCacheMode.LEAN) {
+      var size = Math.max(100, VelocityDiscord.CONFIG.bot.MEMBER_CACHE_SIZE);
+      this.memberCacheSize = size;
+
+      // members are cached as they chat or are looked up, the least recently seen are dropped past the limit
+      builder.setChunkingFilter(ChunkingFilter.NONE)
+        .setMemberCachePolicy(MemberCachePolicy.lru(size).unloadUnless(MemberCachePolicy.OWNER));
+    } else {
+      // this seems to download all users at bot startup and keep internal cache updated
+      // without it, sometimes mentions miss when they shouldn't
+      builder.setChunkingFilter(ChunkingFilter.ALL)
+        // mentions always miss without this
+        .setMemberCachePolicy(MemberCachePolicy.ALL);
+    }
+
+    this.memberCacheMode = mode;
+    this.mentionResolver.setLookupMisses(mode == MemberCacheMode.LEAN);
+    this.mentionResolver.clear();
+    VelocityDiscord.LOGGER.info("Using the {} member cache", mode.name().toLowerCase());
+  }
+
+  private void login(JDABuilder builder, String token) {
+    this.ready = false;
+    this.lastToken = token;
+    this.loginStartedAt = System.nanoTime();
+
+    if (this.readyFuture.isDone()) {
+      this.readyFuture = new CompletableFuture<>();
+    }
+
+    // JDABuilder#build blocks until discord accepts the token, don't hold up the proxy for it.
+    // messages sent in the meantime wait in preReadyQueue
+    var thread = new Thread(() -> {
       try {
         this.jda = builder.build();
-        this.lastToken = VelocityDiscord.CONFIG.bot.DISCORD_TOKEN;
+        VelocityDiscord.LOGGER.info("Logged in to discord in {} ms", (System.nanoTime() - this.loginStartedAt) / 1_000_000);
+        updateWebhookClient();
       } catch (Exception e) {
+        // retry on the next reload
+        this.lastToken = null;
         VelocityDiscord.LOGGER.error("Failed to login to discord:", e);
       }
-    } else {
-      // no ready event, just reload channels here
-      loadChannels();
-    }
+    }, "LumaLyte-SRV Discord Login");
 
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void updateWebhookClient() {
     if (this.jda == null) return;
 
     // todo: per server channel overrides for webhook
@@ -130,28 +300,186 @@ public class Discord extends ListenerAdapter {
   }
 
   public void shutdown() {
-    this.jda.shutdown();
+    if (this.ready) {
+      saveMemberSnapshot(MemberSnapshot.of(chatChannels()));
+    }
+
+    // role updates and reconciliation waiting for a bot that never became ready would never complete
+    this.readyFuture.completeExceptionally(new IllegalStateException("Discord bot is shutting down"));
+
+    if (this.jda != null) {
+      this.jda.shutdown();
+    }
+  }
+
+  /**
+   * Seeds mentions and chat completions from the members saved by the last run, until the bot is ready.
+   */
+  private void loadMemberSnapshot() {
+    if (!VelocityDiscord.CONFIG.bot.MEMBER_SNAPSHOT || !Files.exists(this.memberSnapshotFile)) return;
+
+    var start = System.nanoTime();
+    MemberSnapshot snapshot;
+    try {
+      snapshot = MemberSnapshot.load(this.memberSnapshotFile);
+    } catch (IOException e) {
+      VelocityDiscord.LOGGER.warn("Failed to read {}, waiting for discord: {}", this.memberSnapshotFile, e.getMessage());
+      return;
+    }
+
+    var serverChannels = new HashMap<String, Long>();
+    for (var server : VelocityDiscord.SERVER.getAllServers()) {
+      var serverName = server.getServerInfo().getName();
+      try {
+        serverChannels.put(serverName, Long.parseLong(chatChannelId(serverName)));
+      } catch (NumberFormatException ignored) {
+        // not configured yet, nothing to seed
+      }
+    }
+
+    this.savedSnapshot = snapshot;
+    this.mentionResolver.seed(snapshot);
+    this.mentionCompletions.seed(serverChannels, snapshot, VelocityDiscord.CONFIG.bot.MENTION_COMPLETION_LIMIT);
+
+    VelocityDiscord.LOGGER.info("Loaded {} members of {} channels from {} in {} ms",
+      snapshot.getMemberCount(),
+      snapshot.getChannels().size(),
+      MemberSnapshot.FILE_NAME,
+      (System.nanoTime() - start) / 1_000_000
+    );
+  }
+
+  private synchronized void saveMemberSnapshot(MemberSnapshot snapshot) {
+    if (!VelocityDiscord.CONFIG.bot.MEMBER_SNAPSHOT) return;
+
+    if (this.memberCacheMode == MemberCacheMode.LEAN) {
+      snapshot = this.savedSnapshot.mergedWith(snapshot, this.memberCacheSize);
+    }
+
+    if (snapshot.isEmpty()) return;
+
+    try {
+      snapshot.save(this.memberSnapshotFile);
+      this.savedSnapshot = snapshot;
+    } catch (IOException e) {
+      VelocityDiscord.LOGGER.warn("Failed to save the member snapshot: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Drops a member who left from the saved members, which a lean cache would otherwise carry over on every save.
+   */
+  private synchronized void forgetSavedMember(long guildId, long userId) {
+    if (this.memberCacheMode != MemberCacheMode.LEAN) return;
+
+    this.savedSnapshot = this.savedSnapshot.withoutMember(guildId, userId);
+  }
+
+  private List<TextChannel> chatChannels() {
+    var channels = new ArrayList<TextChannel>();
+    for (var serverChannels : this.serverChannels.values()) {
+      if (serverChannels.chatChannel != null) channels.add(serverChannels.chatChannel);
+    }
+
+    return channels;
+  }
+
+  /**
+   * @return The configured chat channel ID of {@code server}, readable before the channels are loaded
+   */
+  private static String chatChannelId(String server) {
+    var config = VelocityDiscord.CONFIG.getServerConfig(server);
+    return config.getDiscordMessageConfig().MESSAGE_CHANNEL.orElse(config.getBotConfig().MAIN_CHANNEL_ID);
   }
 
   // region JDA events
 
   @Override
   public void onReady(@Nonnull ReadyEvent event) {
-    VelocityDiscord.LOGGER.info("Bot ready, Guilds: {} ({} available)",
+    VelocityDiscord.LOGGER.info("Bot ready after {} ms, Guilds: {} ({} available)",
+      (System.nanoTime() - this.loginStartedAt) / 1_000_000,
       event.getGuildTotalCount(),
       event.getGuildAvailableCount()
     );
 
     loadChannels();
+    this.mentionResolver.clearSeed();
 
     this.ready = true;
 
+    // taken here, on the event thread, while nothing changes the member cache, and written in the background
+    var snapshot = MemberSnapshot.of(chatChannels());
+    var thread = new Thread(() -> saveMemberSnapshot(snapshot), "LumaLyte-SRV Member Snapshot");
+    thread.setDaemon(true);
+    thread.start();
+
     // Send or ensure the verification message exists
-    sendOrUpdateVerificationMessage();
+    this.verificationPanel.ensure(event.getJDA(), this.verificationChannelId);
 
-    for (var msg : this.preReadyQueue) {
+    IQueuedMessage msg;
+    while ((msg = this.preReadyQueue.poll()) != null) {
       msg.send(this);
     }
+
+    this.readyFuture.complete(event.getJDA());
+  }
+
+  @Override
+  public void onSessionRecreate(@Nonnull SessionRecreateEvent event) {
+    this.roleCache.clear();
+  }
+
+  @Override
+  public void onRoleDelete(@Nonnull RoleDeleteEvent event) {
+    this.roleCache.onRoleDeleted(event.getRole().getIdLong());
+  }
+
+  @Override
+  public void onGuildMemberJoin(@Nonnull GuildMemberJoinEvent event) {
+    this.mentionCompletions.onMemberUpdated(event.getMember());
+  }
+
+  @Override
+  public void onGuildMemberRemove(@Nonnull GuildMemberRemoveEvent event) {
+    this.mentionCompletions.onMemberRemoved(event.getGuild().getIdLong(), event.getUser().getName());
+    forgetSavedMember(event.getGuild().getIdLong(), event.getUser().getIdLong());
+  }
+
+  // roles decide who can see the chat channels
+  @Override
+  public void onGuildMemberRoleAdd(@Nonnull GuildMemberRoleAddEvent event) {
+    this.mentionCompletions.onMemberUpdated(event.getMember());
+  }
+
+  @Override
+  public void onGuildMemberRoleRemove(@Nonnull GuildMemberRoleRemoveEvent event) {
+    this.mentionCompletions.onMemberUpdated(event.getMember());
+  }
+
+  @Override
+  public void onUserUpdateName(@Nonnull UserUpdateNameEvent event) {
+    this.mentionCompletions.onUsernameChanged(event.getOldName(), event.getNewName());
+  }
+
+  @Override
+  public void onEmojiAdded(@Nonnull EmojiAddedEvent event) {
+    this.emojiTranslator.onEmojiAdded(event.getEmoji());
+  }
+
+  @Override
+  public void onEmojiRemoved(@Nonnull EmojiRemovedEvent event) {
+    this.emojiTranslator.onEmojiRemoved(event.getEmoji());
+  }
+
+  @Override
+  public void onEmojiUpdateName(@Nonnull EmojiUpdateNameEvent event) {
+    this.emojiTranslator.onEmojiRenamed(event.getEmoji(), event.getOldName());
+  }
+
+  @Override
+  public void onGuildLeave(@Nonnull GuildLeaveEvent event) {
+    this.roleCache.onGuildLeft(event.getGuild().getIdLong());
+    this.emojiTranslator.onGuildLeft(event.getGuild().getIdLong());
   }
 
   private void loadChannels() {
@@ -174,80 +502,29 @@ public class Discord extends ListenerAdapter {
     this.messageListener.onServerChannelsUpdated();
 
     // Load all discord users in the channel and add them to MC client chat suggestions
-    this.mentionCompletions.clear();
+    var chatChannels = new HashMap<String, TextChannel>();
     for (var channels : this.serverChannels.values()) {
-      var members = channels.chatChannel.getMembers();
-      this.mentionCompletions.put(channels.serverName,
-        members.stream().map((m -> "@" + m.getUser().getName())).toList()
-      );
+      chatChannels.put(channels.serverName, channels.chatChannel);
     }
+    this.mentionCompletions.rebuild(chatChannels, VelocityDiscord.CONFIG.bot.MENTION_COMPLETION_LIMIT);
 
-    if (!this.commands.isEmpty()) {
-      var guild = this.mainChannel.getGuild();
-
-      for (var entry : this.commands.entrySet()) {
-        guild.upsertCommand(entry.getKey(), entry.getValue().description()).queue();
-      }
+    var guilds = new HashSet<Guild>();
+    for (var channel : chatChannels.values()) {
+      if (channel != null) guilds.add(channel.getGuild());
     }
-  }
-
-  private void sendOrUpdateVerificationMessage() {
-    TextChannel channel = jda.getTextChannelById(verificationChannelId);
-    if (channel == null) {
-      VelocityDiscord.LOGGER.warn("Verification channel with ID {} not found. Cannot send verification message.", verificationChannelId);
-      return;
+    for (var guild : guilds) {
+      this.emojiTranslator.loadGuild(guild);
     }
 
-    // Check if a verification message already exists
-    channel.getHistory().retrievePast(50).queue(messages -> {
-      for (Message message : messages) {
-        if (message.getAuthor().getId().equals(jda.getSelfUser().getId())) {
-          // Check if the message has our verification button
-          for (ActionRow row : message.getActionRows()) {
-            for (Button button : row.getButtons()) {
-              if ("verify_user".equals(button.getId())) {
-                // Found an existing verification message
-                this.verificationMessageId = message.getId();
-                VelocityDiscord.LOGGER.info("Found existing verification message with ID {}", verificationMessageId);
-                return;
-              }
-            }
-          }
-        }
-      }
-
-      // No existing verification message found, send a new one
-      Color embedColor;
-      try {
-        embedColor = Color.decode(VelocityDiscord.CONFIG.bot.VERIFY_PANEL_COLOR);
-      } catch (NumberFormatException e) {
-        VelocityDiscord.LOGGER.warn("Invalid color format in VERIFY_PANEL_COLOR: {}. Defaulting to green.", VelocityDiscord.CONFIG.bot.VERIFY_PANEL_COLOR);
-        embedColor = Color.GREEN;
-      }
-
-      EmbedBuilder embed = new EmbedBuilder()
-        .setTitle(VelocityDiscord.CONFIG.bot.VERIFY_PANEL_TITLE)
-        .setDescription(VelocityDiscord.CONFIG.bot.VERIFY_PANEL_MESSAGE)
-        .setColor(embedColor);
-
-      Button verifyButton = Button.primary("verify_user", VelocityDiscord.CONFIG.bot.VERIFY_BUTTON_MESSAGE);
-
-      channel.sendMessageEmbeds(embed.build())
-        .setActionRow(verifyButton)
-        .queue(
-          message -> {
-            this.verificationMessageId = message.getId();
-            VelocityDiscord.LOGGER.info("Sent persistent verification message with ID {} in channel {}", message.getId(), channel.getId());
-          },
-          failure -> VelocityDiscord.LOGGER.error("Failed to send persistent verification message: {}", failure.getMessage())
-        );
-    }, failure -> VelocityDiscord.LOGGER.error("Failed to retrieve message history for verification channel: {}", failure.getMessage()));
+    if (this.mainChannel != null) {
+      this.commandRegistry.sync(this.mainChannel.getGuild(), this.commands);
+    }
   }
 
   @Override
   public void onButtonInteraction(ButtonInteractionEvent event) {
     String buttonId = event.getComponentId();
-    if (!"verify_user".equals(buttonId)) {
+    if (!VerificationPanel.BUTTON_ID.equals(buttonId)) {
       return;
     }
 
@@ -256,18 +533,24 @@ public class Discord extends ListenerAdapter {
     // Defer the reply to avoid timeout
     event.deferReply(true).queue();
 
-    // Mark the user as verified (e.g., in a database)
-    try {
-      markUserAsVerified(user.getId());
+    // Mark the user as verified, only report back once the write is committed
+    markUserAsVerified(user.getId()).whenComplete((v, throwable) -> {
+      if (throwable != null) {
+        VelocityDiscord.LOGGER.error("Failed to mark user {} as verified: {}", user.getId(), throwable.getMessage());
+        event.getHook().sendMessage("Verification failed: " + LinkManager.describeFailure(throwable,
+            "Unable to process your verification. Please try again later."
+          ))
+          .setEphemeral(true)
+          .queue();
+        return;
+      }
+
       VelocityDiscord.LOGGER.info("Marked user {} as verified", user.getId());
-    } catch (Exception e) {
-      VelocityDiscord.LOGGER.error("Failed to mark user {} as verified: {}", user.getId(), e.getMessage());
-      event.getHook().sendMessage("Verification failed: Unable to process your verification. Please try again later.")
-        .setEphemeral(true)
-        .queue();
-      return;
-    }
+      assignVerifiedRole(event, user);
+    });
+  }
 
+  private void assignVerifiedRole(ButtonInteractionEvent event, User user) {
     // Assign the verified role
     if (verifiedRoleId == null || verifiedRoleId.isEmpty()) {
       VelocityDiscord.LOGGER.warn("Verified role ID not configured. Skipping role assignment for user {}", user.getId());
@@ -275,38 +558,21 @@ public class Discord extends ListenerAdapter {
         .setEphemeral(true)
         .queue();
     } else {
-      Guild guild = event.getGuild();
-      if (guild == null) {
-        VelocityDiscord.LOGGER.error("Guild not found for verification of user {}", user.getId());
-        event.getHook().sendMessage("Verification failed: Guild not found.")
-          .setEphemeral(true)
-          .queue();
-        return;
-      }
-
-      Role role = guild.getRoleById(verifiedRoleId);
-      if (role == null) {
-        VelocityDiscord.LOGGER.error("Verified role with ID {} not found in guild {}", verifiedRoleId, guild.getName());
-        event.getHook().sendMessage("Verification failed: Role not found.")
-          .setEphemeral(true)
-          .queue();
-        return;
-      }
-
-      guild.addRoleToMember(user, role).queue(
-        success -> {
-          VelocityDiscord.LOGGER.info("Assigned verified role {} to user {} in guild {}", role.getName(), user.getId(), guild.getName());
-          event.getHook().sendMessage(roleGivenMessage)
-            .setEphemeral(true)
-            .queue();
-        },
-        failure -> {
+      updateRole(verifiedRoleId, user.getIdLong(), true).whenComplete((role, throwable) -> {
+        if (throwable != null) {
+          var failure = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
           VelocityDiscord.LOGGER.error("Failed to assign verified role to user {}: {}", user.getId(), failure.getMessage());
           event.getHook().sendMessage("Verification failed: " + failure.getMessage())
             .setEphemeral(true)
             .queue();
+          return;
         }
-      );
+
+        VelocityDiscord.LOGGER.info("Assigned verified role {} to user {} in guild {}", role.getName(), user.getId(), role.getGuild().getName());
+        event.getHook().sendMessage(roleGivenMessage)
+          .setEphemeral(true)
+          .queue();
+      });
     }
   }
 
@@ -327,52 +593,159 @@ public class Discord extends ListenerAdapter {
 
   // region Server events
 
-  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-  public void onPlayerChat(String username, String uuid, Optional<String> prefix, String server, String content) {
+  public void onPlayerChat(PlayerSession session, String server, String content) {
     var serverConfig = VelocityDiscord.CONFIG.getServerConfig(server);
     var serverBotConfig = serverConfig.getBotConfig();
-    var serverDiscordConfig = serverConfig.getDiscordMessageConfig();
 
-    content = filterRawPings(content);
+    if (serverConfig.getDiscordMessageConfig().MESSAGE_FORMAT.isEmpty()) {
+      return;
+    }
+
+    var filtered = VelocityDiscord.getChatFilter().apply(ChatFilter.minecraftToDiscord(serverBotConfig.filter),
+      content,
+      // asterisks from the mask must not turn into markdown, the sanitizer escapes them when escaping is on
+      serverBotConfig.ESCAPE_MARKDOWN ? "*" : "\\*",
+      matches -> reportFiltered(VelocityDiscord.CONFIG.serverName(server), session.getUsername(), content, matches)
+    );
+
+    if (filtered == null) {
+      VelocityDiscord.LOGGER.info("Not sending chat message from {} to discord, it contains blocked terms", session.getUsername());
+      return;
+    }
+
+    CompletableFuture<Function<String, String>> mentions;
+    if (!serverBotConfig.ENABLE_MENTIONS) {
+      mentions = CompletableFuture.completedFuture(null);
+    } else if (this.ready) {
+      var chatChannel = getServerChannels(server).chatChannel;
+      mentions = chatChannel != null
+        ? this.mentionResolver.index(chatChannel, filtered)
+        : CompletableFuture.completedFuture(null);
+    } else {
+      mentions = CompletableFuture.completedFuture(seededMentions(server));
+    }
 
-    if (serverBotConfig.ENABLE_MENTIONS) {
-      content = parseMentions(server, content);
+    Function<String, String> emoji = null;
+    if (serverBotConfig.TRANSLATE_EMOJI) {
+      // custom emoji are only known once the bot is ready
+      var chatChannel = this.ready ? getServerChannels(server).chatChannel : null;
+      emoji = this.emojiTranslator.index(chatChannel != null ? chatChannel.getGuild().getIdLong() : null);
     }
+    var emojiIndex = emoji;
+
+    var resolved = mentions.thenApply(index -> OutboundSanitizer.sanitize(filtered,
+      index,
+      emojiIndex,
+      serverBotConfig.ENABLE_EVERYONE_AND_HERE,
+      serverBotConfig.ESCAPE_MARKDOWN
+    ));
+
+    // a message waiting on a member lookup holds back the ones after it, so chat stays in order
+    this.chatOrder.compute(server, (key, previous) -> {
+      var next = previous == null || previous.isDone() ? resolved : previous.thenCompose(v -> resolved);
+
+      return next.thenAccept(message -> {
+        if (this.ready) {
+          sendChat(session, server, message);
+        } else {
+          // the chat channel isn't loaded yet
+          this.preReadyQueue.add(discord -> discord.sendChat(session, server, message));
+        }
+      }).exceptionally(throwable -> {
+        VelocityDiscord.LOGGER.error("Failed to send chat message from {}: {}", session.getUsername(), throwable.getMessage());
+        return null;
+      });
+    });
+  }
 
-    if (!serverBotConfig.ENABLE_EVERYONE_AND_HERE) {
-      content = filterEveryoneAndHere(content);
+  /**
+   * Reports a message the word filter flagged to the staff channel, if there is one.
+   *
+   * @param source Where the message was sent, a server or discord channel name
+   */
+  public void reportFiltered(String source, String author, String content, List<WordFilter.Match> matches) {
+    var channelId = VelocityDiscord.CONFIG.bot.filter.STAFF_CHANNEL_ID;
+    if (channelId.isEmpty()) return;
+
+    var terms = new LinkedHashSet<String>();
+    for (var match : matches) terms.add(match.term());
+
+    // shown as typed, without pinging anyone
+    var description = OutboundSanitizer.sanitize(content, null, null, false, true);
+    if (description.length() > MessageEmbed.DESCRIPTION_MAX_LENGTH) {
+      description = description.substring(0, MessageEmbed.DESCRIPTION_MAX_LENGTH - 1) + "…";
+    }
+
+    var embed = new EmbedBuilder()
+      .setTitle("Flagged message")
+      .setDescription(description)
+      .addField("Author", OutboundSanitizer.sanitize(author, null, null, false, true), true)
+      .addField("Sent in", OutboundSanitizer.sanitize(source, null, null, false, true), true)
+      .addField("Matched", OutboundSanitizer.sanitize(String.join(", ", terms), null, null, false, true), false)
+      .setColor(Color.ORANGE)
+      .build();
+
+    this.readyFuture.thenAccept(jda -> {
+      var channel = jda.getTextChannelById(channelId);
+      if (channel == null) {
+        VelocityDiscord.LOGGER.warn("Staff channel with ID {} not found, can't report a flagged message", channelId);
+        return;
+      }
+
+      channel.sendMessageEmbeds(embed).queue(null,
+        failure -> VelocityDiscord.LOGGER.error("Failed to report a flagged message: {}", failure.getMessage())
+      );
+    });
+  }
+
+  @Nullable
+  private Function<String, String> seededMentions(String server) {
+    try {
+      return this.mentionResolver.seededIndex(Long.parseLong(chatChannelId(server)));
+    } catch (NumberFormatException e) {
+      return null;
     }
+  }
+
+  private void sendChat(PlayerSession session, String server, String content) {
+    var serverConfig = VelocityDiscord.CONFIG.getServerConfig(server);
+    var serverDiscordConfig = serverConfig.getDiscordMessageConfig();
 
     if (serverDiscordConfig.MESSAGE_FORMAT.isPresent()) {
       var message = new StringTemplate(serverDiscordConfig.MESSAGE_FORMAT.get())
-        .add("username", username)
+        .add("username", session.getUsername())
         .add("server", VelocityDiscord.CONFIG.serverName(server))
         .add("message", content)
-        .add("prefix", prefix.orElse(""))
+        .add("prefix", session.getPrefix().orElse(""))
         .toString();
 
       var targetChannel = getServerChannels(server).chatChannel;
       switch (serverDiscordConfig.MESSAGE_TYPE) {
         case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.MESSAGE_EMBED_COLOR);
         case TEXT -> sendMessage(targetChannel, message);
-        case WEBHOOK -> sendWebhookMessage(targetChannel, uuid, username, server, content);
+        case WEBHOOK -> sendWebhookMessage(targetChannel, session, server, content);
         default -> throw new IllegalArgumentException("Unexpected value: " + serverDiscordConfig.MESSAGE_TYPE);
       }
     }
   }
 
-  private void sendChatCompletions(String server, Player player) {
-    if (!this.ready) {
+  /**
+   * Gives {@code player} the mention completions of the server they connected to.
+   */
+  public void updateChatCompletions(Player player, String server) {
+    // servers seeded from the member snapshot don't need to wait for the bot
+    if (!this.ready && !this.mentionCompletions.hasServer(server)) {
       this.preReadyQueue.add(new QueuedChatCompletion(server, player));
     } else {
-      player.addCustomChatCompletions(this.mentionCompletions.get(server));
+      this.mentionCompletions.onServerConnected(player, server);
     }
   }
 
-  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-  public void onJoin(Player player, Optional<String> prefix, String server) {
-    sendChatCompletions(server, player);
+  public void onPlayerDisconnect(UUID uuid) {
+    this.mentionCompletions.onPlayerDisconnected(uuid);
+  }
 
+  public void onJoin(PlayerSession session, String server) {
     var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordMessageConfig();
 
     if (serverDiscordConfig.JOIN_FORMAT.isEmpty()) {
@@ -380,22 +753,20 @@ public class Discord extends ListenerAdapter {
     }
 
     var message = new StringTemplate(serverDiscordConfig.JOIN_FORMAT.get())
-      .add("username", player.getUsername())
+      .add("username", session.getUsername())
       .add("server", VelocityDiscord.CONFIG.serverName(server))
-      .add("prefix", prefix.orElse(""))
+      .add("prefix", session.getPrefix().orElse(""))
       .toString();
 
     var targetChannel = getServerChannels(server).joinChannel;
     switch (serverDiscordConfig.JOIN_TYPE) {
       case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.JOIN_EMBED_COLOR);
       case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK ->
-        sendWebhookMessage(targetChannel, player.getUniqueId().toString(), player.getUsername(), server, message);
+      case WEBHOOK -> sendWebhookMessage(targetChannel, session, server, message);
     }
   }
 
-  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-  public void onServerSwitch(String username, String uuid, Optional<String> prefix, String current, String previous) {
+  public void onServerSwitch(PlayerSession session, String current, String previous) {
     var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(current).getDiscordMessageConfig();
 
     if (serverDiscordConfig.SERVER_SWITCH_FORMAT.isEmpty()) {
@@ -403,10 +774,10 @@ public class Discord extends ListenerAdapter {
     }
 
     var message = new StringTemplate(serverDiscordConfig.SERVER_SWITCH_FORMAT.get())
-      .add("username", username)
+      .add("username", session.getUsername())
       .add("current", VelocityDiscord.CONFIG.serverName(current))
       .add("previous", VelocityDiscord.CONFIG.serverName(previous))
-      .add("prefix", prefix.orElse(""))
+      .add("prefix", session.getPrefix().orElse(""))
       .toString();
 
     // todo: send to current or previous server or both
@@ -414,12 +785,11 @@ public class Discord extends ListenerAdapter {
     switch (serverDiscordConfig.SERVER_SWITCH_TYPE) {
       case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.SERVER_SWITCH_EMBED_COLOR);
       case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK -> sendWebhookMessage(targetChannel, uuid, username, current, message);
+      case WEBHOOK -> sendWebhookMessage(targetChannel, session, current, message);
     }
   }
 
-  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-  public void onDisconnect(String username, String uuid, Optional<String> prefix, String server) {
+  public void onDisconnect(PlayerSession session, String server) {
     var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordMessageConfig();
 
     if (serverDiscordConfig.DISCONNECT_FORMAT.isEmpty()) {
@@ -427,20 +797,19 @@ public class Discord extends ListenerAdapter {
     }
 
     var message = new StringTemplate(serverDiscordConfig.DISCONNECT_FORMAT.get())
-      .add("username", username)
-      .add("prefix", prefix.orElse(""))
+      .add("username", session.getUsername())
+      .add("prefix", session.getPrefix().orElse(""))
       .toString();
 
     var targetChannel = getServerChannels(server).disconnectChannel;
     switch (serverDiscordConfig.LEAVE_TYPE) {
       case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.DISCONNECT_EMBED_COLOR);
       case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK -> sendWebhookMessage(targetChannel, uuid, username, server, message);
+      case WEBHOOK -> sendWebhookMessage(targetChannel, session, server, message);
     }
   }
 
-  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-  public void onLeave(String username, String uuid, Optional<String> prefix, String server) {
+  public void onLeave(PlayerSession session, String server) {
     var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordMessageConfig();
 
     if (serverDiscordConfig.LEAVE_FORMAT.isEmpty()) {
@@ -448,26 +817,26 @@ public class Discord extends ListenerAdapter {
     }
 
     var message = new StringTemplate(serverDiscordConfig.LEAVE_FORMAT.get())
-      .add("username", username)
+      .add("username", session.getUsername())
       .add("server", VelocityDiscord.CONFIG.serverName(server))
-      .add("prefix", prefix.orElse(""))
+      .add("prefix", session.getPrefix().orElse(""))
       .toString();
 
     var targetChannel = getServerChannels(server).leaveChannel;
     switch (serverDiscordConfig.LEAVE_TYPE) {
       case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.LEAVE_EMBED_COLOR);
       case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK -> sendWebhookMessage(targetChannel, uuid, username, server, message);
+      case WEBHOOK -> sendWebhookMessage(targetChannel, session, server, message);
     }
   }
 
-  public void onPlayerDeath(String username, String uuid, String server, String displayName, String death) {
+  public void onPlayerDeath(PlayerSession session, String server, String displayName, String death) {
     var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordMessageConfig();
 
     if (serverDiscordConfig.DEATH_FORMAT.isEmpty()) return;
 
     var message = new StringTemplate(serverDiscordConfig.DEATH_FORMAT.get())
-      .add("username", username)
+      .add("username", session.getUsername())
       .add("displayname", displayName)
       .add("death_message", death)
       .toString();
@@ -476,19 +845,19 @@ public class Discord extends ListenerAdapter {
     switch (serverDiscordConfig.DEATH_TYPE) {
       case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.DEATH_EMBED_COLOR);
       case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK -> sendWebhookMessage(targetChannel, uuid, username, server, message);
+      case WEBHOOK -> sendWebhookMessage(targetChannel, session, server, message);
     }
   }
 
   public void onPlayerAdvancement(
-    String username, String uuid, String server, String displayname, String title, String description
+    PlayerSession session, String server, String displayname, String title, String description
   ) {
     var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordMessageConfig();
 
     if (serverDiscordConfig.ADVANCEMENT_FORMAT.isEmpty()) return;
 
     var message = new StringTemplate(serverDiscordConfig.ADVANCEMENT_FORMAT.get())
-      .add("username", username)
+      .add("username", session.getUsername())
       .add("displayname", displayname)
       .add("advancement_title", title)
       .add("advancement_description", description)
@@ -498,7 +867,7 @@ public class Discord extends ListenerAdapter {
     switch (serverDiscordConfig.ADVANCEMENT_TYPE) {
       case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.ADVANCEMENT_EMBED_COLOR);
       case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK -> sendWebhookMessage(targetChannel, uuid, username, server, message);
+      case WEBHOOK -> sendWebhookMessage(targetChannel, session, server, message);
     }
   }
 
@@ -778,24 +1147,16 @@ public class Discord extends ListenerAdapter {
   }
 
   // todo: send webhooks to specific channels
-  private void sendWebhookMessage(
-    TextChannel channel, String uuid, String username, String server, String content
-  ) {
+  private void sendWebhookMessage(TextChannel channel, PlayerSession session, String server, String content) {
     if (this.webhookClient == null) {
       VelocityDiscord.LOGGER.debug("Webhook client was not created due to configuration error, skipping sending "
         + "message");
       return;
     }
 
-    var avatar = new StringTemplate(VelocityDiscord.CONFIG.bot.WEBHOOK_AVATAR_URL)
-      .add("username", username)
-      .add("uuid", uuid)
-      .toString();
-
-    var discordName = new StringTemplate(VelocityDiscord.CONFIG.bot.WEBHOOK_USERNAME)
-      .add("username", username)
-      .add("server", VelocityDiscord.CONFIG.serverName(server))
-      .toString();
+    // rendered once per player rather than per message
+    var avatar = session.getAvatarUrl();
+    var discordName = session.getWebhookName(server);
 
     var webhookMessage = new MessageCreateBuilder().setContent(content).build();
 
@@ -808,32 +1169,6 @@ public class Discord extends ListenerAdapter {
 
   // endregion
 
-  private String parseMentions(String server, String message) {
-    var channels = this.serverChannels.get(server);
-    if (channels == null || channels.chatChannel == null || !this.ready) {
-      return message;
-    }
-
-    var msg = message;
-
-    for (var member : channels.chatChannel.getMembers()) {
-      msg = Pattern
-        .compile(Pattern.quote("@" + member.getUser().getName()), Pattern.CASE_INSENSITIVE)
-        .matcher(msg)
-        .replaceAll(member.getAsMention());
-    }
-
-    return msg;
-  }
-
-  private String filterEveryoneAndHere(String message) {
-    return EveryoneAndHerePattern.matcher(message).replaceAll("@\u200B${ping}");
-  }
-
-  private String filterRawPings(String message) {
-    return RawPingPattern.matcher(message).replaceAll("<@\u200B${ping}>");
-  }
-
   private TextChannel loadChannel(String id) {
     var channel = this.jda.getTextChannelById(id);
 
@@ -879,7 +1214,7 @@ public class Discord extends ListenerAdapter {
   private record QueuedChatCompletion(String server, Player player) implements IQueuedMessage {
     @Override
     public void send(Discord discord) {
-      this.player.addCustomChatCompletions(discord.mentionCompletions.get(this.server));
+      discord.mentionCompletions.onServerConnected(this.player, this.server);
     }
   }
 
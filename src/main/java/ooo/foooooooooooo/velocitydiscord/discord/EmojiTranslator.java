@@ -0,0 +1,327 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.emoji.RichCustomEmoji;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Translates emoji between discord and Minecraft, which can't show most of them.
+ * <p>
+ * Towards Minecraft, Unicode emoji, including skin tones, flags, keycaps and joined sequences, are replaced by their
+ * {@code :shortcode:} in one pass over a trie of every emoji in {@link #RESOURCE}. Custom emoji already arrive as
+ * {@code :name:}. Towards discord, {@link #index(Long)} gives {@link OutboundSanitizer} the emoji a typed
+ * {@code :shortcode:} stands for, the guild's custom emoji first, which are kept up to date from emoji events.
+ */
+public class EmojiTranslator {
+  public static final String RESOURCE = "/emoji.txt";
+
+  private static final char VARIATION_SELECTOR = '\uFE0F';
+  private static final char ZERO_WIDTH_JOINER = '\u200D';
+  private static final char COMBINING_KEYCAP = '\u20E3';
+  private static final int TAG_SPACE = 0xE0020;
+  private static final int CANCEL_TAG = 0xE007F;
+  private static final int REGIONAL_INDICATOR_A = 0x1F1E6;
+  private static final int REGIONAL_INDICATOR_Z = 0x1F1FF;
+  private static final String FLAG_PREFIX = "flag_";
+
+  // emoji -> shortcode
+  private final Node trie;
+  private final char firstChar;
+  // shortcode -> emoji
+  private final Map<String, String> emojis;
+  // guild id -> custom emoji name -> formatted emoji
+  private final Map<Long, Map<String, String>> custom = new ConcurrentHashMap<>();
+
+  EmojiTranslator(Reader table) throws IOException {
+    var builder = new NodeBuilder();
+    var emojis = new HashMap<String, String>();
+
+    try (var reader = new BufferedReader(table)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank() || line.startsWith("#")) continue;
+
+        var tab = line.indexOf('\t');
+        if (tab <= 0) continue;
+
+        var name = line.substring(0, tab);
+        var emoji = line.substring(tab + 1).strip();
+
+        emojis.putIfAbsent(name, emoji);
+        // the first name of an emoji is the one shown
+        builder.add(emoji, name);
+        // clients often leave out the variation selectors, e.g. a plain heart
+        var bare = emoji.replace(String.valueOf(VARIATION_SELECTOR), "");
+        if (!bare.isEmpty() && !bare.equals(emoji)) builder.add(bare, name);
+      }
+    }
+
+    this.trie = builder.build();
+    this.firstChar = firstNonAscii(this.trie.keys);
+    this.emojis = Map.copyOf(emojis);
+  }
+
+  public static EmojiTranslator load() {
+    var stream = EmojiTranslator.class.getResourceAsStream(RESOURCE);
+
+    try {
+      if (stream == null) throw new IOException(RESOURCE + " is missing");
+      return new EmojiTranslator(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      VelocityDiscord.LOGGER.error("Failed to load emoji shortcodes, emoji won't be translated: {}", e.getMessage());
+      try {
+        return new EmojiTranslator(Reader.nullReader());
+      } catch (IOException impossible) {
+        throw new RuntimeException(impossible);
+      }
+    }
+  }
+
+  /**
+   * Replaces the Unicode emoji in {@code text} with their {@code :shortcode:}.
+   */
+  public String toMinecraft(String text) {
+    var length = text.length();
+    // only created once something is replaced
+    StringBuilder out = null;
+
+    for (var i = 0; i < length; ) {
+      var c = text.charAt(i);
+
+      // only keycaps start below the first other character in the trie, most text never gets further
+      if (c < this.firstChar && c != ZERO_WIDTH_JOINER && c != COMBINING_KEYCAP && !isKeycap(text, i)) {
+        if (out != null) out.append(c);
+        i++;
+        continue;
+      }
+
+      String replacement = null;
+      var end = i;
+
+      var flagEnd = flagEnd(text, i);
+      if (flagEnd > i) {
+        replacement = ":" + FLAG_PREFIX + flagLetter(text.codePointAt(i)) + flagLetter(text.codePointAt(i + 2)) + ":";
+        end = flagEnd;
+      } else {
+        var node = this.trie;
+        for (var j = i; j < length; j++) {
+          node = node.next(text.charAt(j));
+          if (node == null) break;
+
+          if (node.name != null) {
+            replacement = ":" + node.name + ":";
+            end = j + 1;
+          }
+        }
+
+        if (replacement != null) {
+          // a selector the table doesn't list after an emoji
+          if (end < length && text.charAt(end) == VARIATION_SELECTOR) end++;
+        } else {
+          // what's left of a sequence that isn't in the table only shows as boxes
+          var stray = strayLength(text, i);
+          if (stray > 0) {
+            replacement = "";
+            end = i + stray;
+          }
+        }
+      }
+
+      if (replacement == null) {
+        if (out != null) out.append(c);
+        i++;
+        continue;
+      }
+
+      if (out == null) {
+        out = new StringBuilder(length + 16);
+        out.append(text, 0, i);
+      }
+
+      out.append(replacement);
+      i = end;
+    }
+
+    return out != null ? out.toString() : text;
+  }
+
+  /**
+   * The emoji index of messages to {@code guildId}: shortcode -> emoji, or null. Custom emoji of the guild come first,
+   * then the Unicode emoji.
+   */
+  public Function<String, String> index(@Nullable Long guildId) {
+    var guildEmojis = guildId != null ? this.custom.getOrDefault(guildId, Map.of()) : Map.<String, String>of();
+
+    return name -> {
+      var emoji = guildEmojis.get(name);
+      if (emoji != null) return emoji;
+
+      var lowercase = name.toLowerCase(Locale.ROOT);
+      emoji = this.emojis.get(lowercase);
+      if (emoji != null) return emoji;
+
+      return flag(lowercase);
+    };
+  }
+
+  /**
+   * Replaces the custom emoji known for {@code guild} with its current ones.
+   */
+  public void loadGuild(Guild guild) {
+    var emojis = new ConcurrentHashMap<String, String>();
+    for (var emoji : guild.getEmojis()) {
+      if (emoji.isAvailable()) emojis.put(emoji.getName(), emoji.getFormatted());
+    }
+
+    this.custom.put(guild.getIdLong(), emojis);
+  }
+
+  public void onGuildLeft(long guildId) {
+    this.custom.remove(guildId);
+  }
+
+  public void onEmojiAdded(RichCustomEmoji emoji) {
+    var emojis = this.custom.get(emoji.getGuild().getIdLong());
+    if (emojis != null && emoji.isAvailable()) emojis.put(emoji.getName(), emoji.getFormatted());
+  }
+
+  public void onEmojiRemoved(RichCustomEmoji emoji) {
+    var emojis = this.custom.get(emoji.getGuild().getIdLong());
+    if (emojis != null) emojis.remove(emoji.getName(), emoji.getFormatted());
+  }
+
+  public void onEmojiRenamed(RichCustomEmoji emoji, String oldName) {
+    var emojis = this.custom.get(emoji.getGuild().getIdLong());
+    if (emojis == null) return;
+
+    // the formatted emoji holds the name, so the old one can't be matched by value
+    emojis.remove(oldName);
+    if (emoji.isAvailable()) emojis.put(emoji.getName(), emoji.getFormatted());
+  }
+
+  public int size() {
+    return this.emojis.size();
+  }
+
+  private static char firstNonAscii(char[] keys) {
+    for (var key : keys) {
+      if (key > 0x7F) return key;
+    }
+
+    return Character.MAX_VALUE;
+  }
+
+  /**
+   * @return Whether a keycap, like {@code #️⃣}, starts at {@code start}, going by the character after it
+   */
+  private static boolean isKeycap(String text, int start) {
+    if (start + 1 >= text.length()) return false;
+
+    var next = text.charAt(start + 1);
+    return next == VARIATION_SELECTOR || next == COMBINING_KEYCAP;
+  }
+
+  /**
+   * @return The length of the selector, joiner, keycap or tag at {@code start} that no emoji matched, or 0
+   */
+  private static int strayLength(String text, int start) {
+    var c = text.charAt(start);
+    if (c == VARIATION_SELECTOR || c == ZERO_WIDTH_JOINER || c == COMBINING_KEYCAP) return 1;
+
+    var codePoint = text.codePointAt(start);
+    return codePoint >= TAG_SPACE && codePoint <= CANCEL_TAG ? 2 : 0;
+  }
+
+  /**
+   * @return The end of the flag, two regional indicators, starting at {@code start}, or {@code start} if there is none
+   */
+  private static int flagEnd(String text, int start) {
+    if (start + 4 > text.length()) return start;
+    if (!isRegionalIndicator(text.codePointAt(start))) return start;
+    if (!isRegionalIndicator(text.codePointAt(start + 2))) return start;
+
+    return start + 4;
+  }
+
+  private static boolean isRegionalIndicator(int codePoint) {
+    return codePoint >= REGIONAL_INDICATOR_A && codePoint <= REGIONAL_INDICATOR_Z;
+  }
+
+  private static char flagLetter(int regionalIndicator) {
+    return (char) ('a' + regionalIndicator - REGIONAL_INDICATOR_A);
+  }
+
+  /**
+   * @return The flag for a {@code flag_xx} shortcode, or null
+   */
+  @Nullable
+  private static String flag(String name) {
+    if (name.length() != FLAG_PREFIX.length() + 2 || !name.startsWith(FLAG_PREFIX)) return null;
+
+    var first = name.charAt(FLAG_PREFIX.length());
+    var second = name.charAt(FLAG_PREFIX.length() + 1);
+    if (first < 'a' || first > 'z' || second < 'a' || second > 'z') return null;
+
+    return new StringBuilder(4)
+      .appendCodePoint(REGIONAL_INDICATOR_A + first - 'a')
+      .appendCodePoint(REGIONAL_INDICATOR_A + second - 'a')
+      .toString();
+  }
+
+  private static final class Node {
+    private final char[] keys;
+    private final Node[] children;
+    @Nullable
+    private final String name;
+
+    private Node(char[] keys, Node[] children, @Nullable String name) {
+      this.keys = keys;
+      this.children = children;
+      this.name = name;
+    }
+
+    @Nullable
+    private Node next(char c) {
+      var index = Arrays.binarySearch(this.keys, c);
+      return index >= 0 ? this.children[index] : null;
+    }
+  }
+
+  private static final class NodeBuilder {
+    private final TreeMap<Character, NodeBuilder> children = new TreeMap<>();
+    private String name;
+
+    private void add(String emoji, String name) {
+      var node = this;
+      for (var i = 0; i < emoji.length(); i++) {
+        node = node.children.computeIfAbsent(emoji.charAt(i), c -> new NodeBuilder());
+      }
+
+      if (node.name == null) node.name = name;
+    }
+
+    private Node build() {
+      var keys = new char[this.children.size()];
+      var children = new Node[this.children.size()];
+
+      var i = 0;
+      for (var entry : this.children.entrySet()) {
+        keys[i] = entry.getKey();
+        children[i] = entry.getValue().build();
+        i++;
+      }
+
+      return new Node(keys, children, this.name);
+    }
+  }
+}
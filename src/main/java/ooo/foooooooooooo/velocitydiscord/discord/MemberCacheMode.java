@@ -0,0 +1,16 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+public enum MemberCacheMode {
+  /** Download every member of every guild at login and keep them all cached */
+  FULL,
+  /** Cache only recently active members, look up the rest by name when they are mentioned */
+  LEAN;
+
+  public static MemberCacheMode parse(String value) {
+    return switch (value.toLowerCase()) {
+      case "full", "" -> FULL;
+      case "lean" -> LEAN;
+      default -> throw new RuntimeException("Invalid member cache mode: " + value);
+    };
+  }
+}
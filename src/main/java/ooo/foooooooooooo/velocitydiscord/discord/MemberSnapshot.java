@@ -0,0 +1,213 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * The members of the bridged chat channels as of the last time the bot was connected, saved to disk so mentions and
+ * chat completions work straight after a restart, before the bot has logged in and downloaded the members again.
+ * <p>
+ * The file is a small binary format read in one go: a header, then per channel its ID, guild ID and members, each
+ * member being its ID, username, effective name and top role ID.
+ */
+public class MemberSnapshot {
+  public static final String FILE_NAME = "members.bin";
+
+  // "LMSN"
+  private static final int MAGIC = 0x4C4D534E;
+  private static final int VERSION = 1;
+  // id, two empty names and role id
+  private static final int MIN_MEMBER_BYTES = 8 + 2 + 2 + 8;
+
+  private final Map<Long, Channel> channels;
+
+  public MemberSnapshot(Map<Long, Channel> channels) {
+    this.channels = Map.copyOf(channels);
+  }
+
+  public static MemberSnapshot empty() {
+    return new MemberSnapshot(Map.of());
+  }
+
+  /**
+   * Takes a snapshot of the members the bot currently has cached in {@code channels}.
+   */
+  public static MemberSnapshot of(Collection<TextChannel> channels) {
+    var snapshot = new HashMap<Long, Channel>();
+
+    for (var channel : channels) {
+      if (channel == null || snapshot.containsKey(channel.getIdLong())) continue;
+
+      var members = new ArrayList<Member>();
+      for (var member : channel.getMembers()) {
+        var roles = member.getRoles();
+        // roles are sorted highest first
+        var topRole = roles.isEmpty() ? 0L : roles.get(0).getIdLong();
+
+        members.add(new Member(member.getIdLong(), member.getUser().getName(), member.getEffectiveName(), topRole));
+      }
+
+      snapshot.put(channel.getIdLong(), new Channel(channel.getGuild().getIdLong(), List.copyOf(members)));
+    }
+
+    return new MemberSnapshot(snapshot);
+  }
+
+  public static MemberSnapshot load(Path file) throws IOException {
+    // a few hundred KB at most, and nothing is left mapped to stop the next save replacing the file on Windows
+    return read(ByteBuffer.wrap(Files.readAllBytes(file)));
+  }
+
+  /**
+   * Adds the members of {@code newer} to this snapshot, replacing ours with the same ID, for member caches that only
+   * hold some of the members. Channels missing from {@code newer} are dropped, as they are no longer bridged.
+   * <p>
+   * Members are kept most recently seen first, and only the first {@code maxMembers} of each channel are kept, so the
+   * snapshot stays as bounded as the cache it is taken from.
+   */
+  public MemberSnapshot mergedWith(MemberSnapshot newer, int maxMembers) {
+    var merged = new HashMap<Long, Channel>();
+
+    newer.channels.forEach((channelId, channel) -> {
+      var old = this.channels.get(channelId);
+
+      var members = new LinkedHashMap<Long, Member>();
+      for (var member : channel.members()) members.put(member.id(), member);
+      if (old != null && old.guildId() == channel.guildId()) {
+        for (var member : old.members()) members.putIfAbsent(member.id(), member);
+      }
+
+      var kept = members.values().stream().limit(Math.max(0, maxMembers)).toList();
+      merged.put(channelId, new Channel(channel.guildId(), kept));
+    });
+
+    return new MemberSnapshot(merged);
+  }
+
+  /**
+   * @return This snapshot without the member {@code userId} in the channels of {@code guildId}, e.g. after they left
+   */
+  public MemberSnapshot withoutMember(long guildId, long userId) {
+    var channels = new HashMap<Long, Channel>();
+
+    this.channels.forEach((channelId, channel) -> {
+      if (channel.guildId() != guildId) {
+        channels.put(channelId, channel);
+        return;
+      }
+
+      var members = channel.members().stream().filter(member -> member.id() != userId).toList();
+      channels.put(channelId, members.size() == channel.members().size() ? channel : new Channel(guildId, members));
+    });
+
+    return new MemberSnapshot(channels);
+  }
+
+  static MemberSnapshot read(ByteBuffer buffer) throws IOException {
+    try {
+      if (buffer.getInt() != MAGIC) throw new IOException("Not a member snapshot");
+
+      var version = buffer.getInt();
+      if (version != VERSION) throw new IOException("Unsupported member snapshot version " + version);
+
+      var channelCount = buffer.getInt();
+      checkCount(channelCount, buffer, 20);
+
+      var channels = new HashMap<Long, Channel>();
+
+      for (var i = 0; i < channelCount; i++) {
+        var channelId = buffer.getLong();
+        var guildId = buffer.getLong();
+        var memberCount = buffer.getInt();
+        checkCount(memberCount, buffer, MIN_MEMBER_BYTES);
+
+        var members = new ArrayList<Member>(memberCount);
+        for (var j = 0; j < memberCount; j++) {
+          members.add(new Member(buffer.getLong(), readString(buffer), readString(buffer), buffer.getLong()));
+        }
+
+        channels.put(channelId, new Channel(guildId, List.copyOf(members)));
+      }
+
+      return new MemberSnapshot(channels);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Member snapshot is truncated");
+    }
+  }
+
+  public void save(Path file) throws IOException {
+    var temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(this.channels.size());
+
+      for (var entry : this.channels.entrySet()) {
+        var channel = entry.getValue();
+
+        out.writeLong(entry.getKey());
+        out.writeLong(channel.guildId());
+        out.writeInt(channel.members().size());
+
+        for (var member : channel.members()) {
+          out.writeLong(member.id());
+          writeString(out, member.name());
+          writeString(out, member.effectiveName());
+          out.writeLong(member.topRoleId());
+        }
+      }
+    }
+
+    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  public Map<Long, Channel> getChannels() {
+    return this.channels;
+  }
+
+  public boolean isEmpty() {
+    return getMemberCount() == 0;
+  }
+
+  public int getMemberCount() {
+    var count = 0;
+    for (var channel : this.channels.values()) count += channel.members().size();
+    return count;
+  }
+
+  private static void checkCount(int count, ByteBuffer buffer, int minBytes) throws IOException {
+    // a corrupt count would otherwise allocate a huge list before running out of data
+    if (count < 0 || (long) count * minBytes > buffer.remaining()) {
+      throw new IOException("Member snapshot is corrupt");
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    var bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    var bytes = value.getBytes(StandardCharsets.UTF_8);
+    // names are at most 32 characters, this only guards against surprises
+    var length = Math.min(bytes.length, 0xFFFF);
+    out.writeShort(length);
+    out.write(bytes, 0, length);
+  }
+
+  public record Channel(long guildId, List<Member> members) {}
+
+  public record Member(long id, String name, String effectiveName, long topRoleId) {}
+}
@@ -0,0 +1,256 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import com.velocitypowered.api.proxy.Player;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The {@code @username} chat completions sent to players, one list per chat channel.
+ * <p>
+ * Servers that share a chat channel share its list. Lists are built when the channels are loaded and then kept up to
+ * date from member events, and players are only sent what changed: the additions and removals of their list, or the
+ * difference between two lists when they move to a server with another chat channel. Each list holds at most
+ * {@code limit} names, so a large guild doesn't send every member to every client, and a name that leaves a full list
+ * makes room for another member of the channel.
+ * <p>
+ * Until the bot is ready the lists can be seeded from a {@link MemberSnapshot}, so players get completions right away;
+ * the rebuild once the channels are loaded then only sends them what changed since the snapshot was taken.
+ */
+public class MentionCompletions {
+  // chat channel id -> completions
+  private final Map<Long, Completions> channels = new HashMap<>();
+  // server name -> chat channel id
+  private final Map<String, Long> servers = new HashMap<>();
+  // player -> the channel whose completions they have
+  private final Map<UUID, Tracked> players = new HashMap<>();
+
+  private int limit = 0;
+
+  /**
+   * Rebuilds every list from the channel members, and sends online players what changed in theirs.
+   *
+   * @param serverChannels server name -> chat channel, null if the server has none
+   * @param limit          Maximum names per list, 0 for none
+   */
+  public synchronized void rebuild(Map<String, TextChannel> serverChannels, int limit) {
+    this.limit = Math.max(0, limit);
+
+    var previous = new HashMap<>(this.channels);
+    this.channels.clear();
+    this.servers.clear();
+
+    for (var entry : serverChannels.entrySet()) {
+      var channel = entry.getValue();
+      if (channel == null) continue;
+
+      this.servers.put(entry.getKey(), channel.getIdLong());
+      this.channels.computeIfAbsent(channel.getIdLong(), id -> load(channel));
+    }
+
+    for (var tracked : this.players.values()) {
+      var old = previous.get(tracked.channelId);
+      var current = this.channels.get(tracked.channelId);
+
+      // the player is moved to their server's list the next time they connect to a server
+      send(tracked.player, old != null ? old.names : Set.of(), current != null ? current.names : Set.of());
+    }
+  }
+
+  /**
+   * Seeds the lists from {@code snapshot} until the channels are loaded.
+   *
+   * @param serverChannels server name -> chat channel id
+   * @param limit          Maximum names per list, 0 for none
+   */
+  public synchronized void seed(Map<String, Long> serverChannels, MemberSnapshot snapshot, int limit) {
+    this.limit = Math.max(0, limit);
+
+    for (var entry : serverChannels.entrySet()) {
+      var channelId = entry.getValue();
+      var channel = snapshot.getChannels().get(channelId);
+      if (channel == null) continue;
+
+      this.servers.put(entry.getKey(), channelId);
+      this.channels.computeIfAbsent(channelId, id -> {
+        var names = new LinkedHashSet<String>();
+
+        for (var member : channel.members()) {
+          if (this.limit > 0 && names.size() >= this.limit) break;
+          names.add(completion(member.name()));
+        }
+
+        return new Completions(id, channel.guildId(), null, names);
+      });
+    }
+  }
+
+  /**
+   * @return Whether the chat channel of {@code server} is known, either loaded or seeded
+   */
+  public synchronized boolean hasServer(String server) {
+    return this.servers.containsKey(server);
+  }
+
+  /**
+   * Sends {@code player} the completions of {@code server}, only the difference if they already have another list.
+   */
+  public synchronized void onServerConnected(Player player, String server) {
+    // e.g. queued until the bot was ready, by when they already left
+    if (!player.isActive()) {
+      this.players.remove(player.getUniqueId());
+      return;
+    }
+
+    var channelId = this.servers.get(server);
+    var tracked = this.players.get(player.getUniqueId());
+
+    if (tracked != null && Objects.equals(tracked.channelId, channelId)) return;
+
+    var old = tracked != null ? names(tracked.channelId) : Set.<String>of();
+    send(player, old, names(channelId));
+
+    if (channelId == null) {
+      this.players.remove(player.getUniqueId());
+    } else {
+      this.players.put(player.getUniqueId(), new Tracked(player, channelId));
+    }
+  }
+
+  public synchronized void onPlayerDisconnected(UUID uuid) {
+    this.players.remove(uuid);
+  }
+
+  /**
+   * Adds or removes {@code member} from every list, depending on whether they can see its channel. Call after a member
+   * joined or their roles changed.
+   */
+  public synchronized void onMemberUpdated(Member member) {
+    var name = completion(member.getUser().getName());
+
+    for (var completions : this.channels.values()) {
+      // seeded lists are replaced once the channels are loaded
+      if (completions.channel == null) continue;
+      if (completions.guildId != member.getGuild().getIdLong()) continue;
+
+      if (member.hasAccess(completions.channel)) {
+        add(completions, name);
+      } else if (remove(completions, name)) {
+        backfill(completions);
+      }
+    }
+  }
+
+  public synchronized void onMemberRemoved(long guildId, String username) {
+    var name = completion(username);
+
+    for (var completions : this.channels.values()) {
+      if (completions.guildId == guildId && remove(completions, name)) {
+        backfill(completions);
+      }
+    }
+  }
+
+  public synchronized void onUsernameChanged(String oldName, String newName) {
+    var oldCompletion = completion(oldName);
+    var newCompletion = completion(newName);
+
+    for (var completions : this.channels.values()) {
+      if (remove(completions, oldCompletion)) {
+        add(completions, newCompletion);
+      }
+    }
+  }
+
+  public synchronized int size() {
+    var total = 0;
+    for (var completions : this.channels.values()) total += completions.names.size();
+    return total;
+  }
+
+  private Completions load(TextChannel channel) {
+    var names = new LinkedHashSet<String>();
+
+    for (var member : channel.getMembers()) {
+      if (this.limit > 0 && names.size() >= this.limit) break;
+      names.add(completion(member.getUser().getName()));
+    }
+
+    return new Completions(channel.getIdLong(), channel.getGuild().getIdLong(), channel, names);
+  }
+
+  private void add(Completions completions, String name) {
+    if (completions.names.contains(name)) return;
+    if (this.limit > 0 && completions.names.size() >= this.limit) return;
+
+    completions.names.add(name);
+    forEachPlayer(completions, player -> player.addCustomChatCompletions(List.of(name)));
+  }
+
+  private boolean remove(Completions completions, String name) {
+    if (!completions.names.remove(name)) return false;
+
+    forEachPlayer(completions, player -> player.removeCustomChatCompletions(List.of(name)));
+    return true;
+  }
+
+  /**
+   * Fills a list that is under the limit with members of its channel that aren't in it yet.
+   */
+  private void backfill(Completions completions) {
+    // seeded lists have no channel to take members from, they are replaced once the channels are loaded
+    if (completions.channel == null || this.limit == 0 || completions.names.size() >= this.limit) return;
+
+    var added = new ArrayList<String>();
+    for (var member : completions.channel.getMembers()) {
+      if (completions.names.size() >= this.limit) break;
+
+      var name = completion(member.getUser().getName());
+      if (completions.names.add(name)) added.add(name);
+    }
+
+    if (!added.isEmpty()) forEachPlayer(completions, player -> player.addCustomChatCompletions(added));
+  }
+
+  private void forEachPlayer(Completions completions, Consumer<Player> action) {
+    var channelId = completions.channelId;
+
+    for (var tracked : this.players.values()) {
+      if (tracked.channelId == channelId) action.accept(tracked.player);
+    }
+  }
+
+  private Set<String> names(@Nullable Long channelId) {
+    if (channelId == null) return Set.of();
+
+    var completions = this.channels.get(channelId);
+    return completions != null ? completions.names : Set.of();
+  }
+
+  private static void send(Player player, Set<String> old, Set<String> current) {
+    var removed = new ArrayList<String>();
+    for (var name : old) {
+      if (!current.contains(name)) removed.add(name);
+    }
+
+    var added = new ArrayList<String>();
+    for (var name : current) {
+      if (!old.contains(name)) added.add(name);
+    }
+
+    if (!removed.isEmpty()) player.removeCustomChatCompletions(removed);
+    if (!added.isEmpty()) player.addCustomChatCompletions(added);
+  }
+
+  private static String completion(String username) {
+    return "@" + username;
+  }
+
+  // channel is null for lists seeded from a snapshot
+  private record Completions(long channelId, long guildId, @Nullable TextChannel channel, Set<String> names) {}
+
+  private record Tracked(Player player, long channelId) {}
+}
@@ -0,0 +1,180 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.util.ExpiringCache;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the discord members that {@code @username} in Minecraft chat refers to, among those who can see the chat
+ * channel. The mentions themselves are written by {@link OutboundSanitizer}.
+ * <p>
+ * Names are first looked up in the member cache. With the lean member cache a name that isn't cached is looked up
+ * with a member search by name, shared by concurrent messages mentioning the same name, and names nobody has are
+ * remembered for a short while so repeating them doesn't search again. Messages wait at most
+ * {@link #LOOKUP_TIMEOUT_MILLIS} for a lookup, a name that takes longer is sent as plain text.
+ * <p>
+ * Before the bot is ready, names are resolved from a seeded {@link MemberSnapshot} instead.
+ */
+public class MentionResolver {
+  // discord usernames are 2 to 32 characters of letters, digits, underscores and periods,
+  // a trailing period is taken as the end of the sentence rather than part of the name
+  private static final Pattern MENTION = Pattern.compile("@([A-Za-z0-9_.]{1,31}[A-Za-z0-9_])");
+
+  private static final int MAX_LOOKUPS_PER_MESSAGE = 5;
+  private static final int SEARCH_LIMIT = 10;
+  private static final long LOOKUP_TIMEOUT_MILLIS = 1500;
+  private static final long MISS_TTL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+  // "guild id:lowercase name" of names without a member
+  private final ExpiringCache<String, Boolean> misses = new ExpiringCache<>(2000, MISS_TTL_NANOS);
+  private final Map<String, CompletableFuture<Optional<Member>>> lookups = new ConcurrentHashMap<>();
+
+  private volatile boolean lookupMisses = false;
+  // chat channel id -> lowercase username -> member id, only until the bot is ready
+  private volatile Map<Long, Map<String, Long>> seeded = Map.of();
+
+  /**
+   * @param lookupMisses Search discord for names that aren't in the member cache, only useful if the cache is partial
+   */
+  public void setLookupMisses(boolean lookupMisses) {
+    this.lookupMisses = lookupMisses;
+  }
+
+  /**
+   * The mention index of one message to {@code channel}: lowercase name -> mention of a member who can see the channel,
+   * or null. With the lean member cache, names the message mentions that aren't cached are looked up first.
+   */
+  public CompletableFuture<Function<String, String>> index(TextChannel channel, String message) {
+    var guild = channel.getGuild();
+    Function<String, String> cached = name -> {
+      var member = findCached(guild, channel, name);
+      return member != null ? member.getAsMention() : null;
+    };
+
+    if (!this.lookupMisses) return CompletableFuture.completedFuture(cached);
+
+    var pending = new HashMap<String, CompletableFuture<Optional<Member>>>();
+    for (var name : names(message)) {
+      if (pending.size() >= MAX_LOOKUPS_PER_MESSAGE) break;
+
+      if (findCached(guild, channel, name) == null && this.misses.get(missKey(guild, name)) == null) {
+        pending.put(name, lookup(guild, name));
+      }
+    }
+
+    if (pending.isEmpty()) return CompletableFuture.completedFuture(cached);
+
+    return CompletableFuture.allOf(pending.values().toArray(CompletableFuture[]::new)).thenApply(v -> {
+      var found = new HashMap<String, String>();
+      for (var entry : pending.entrySet()) {
+        entry.getValue().join()
+          .filter(member -> member.hasAccess(channel))
+          .ifPresent(member -> found.put(entry.getKey(), member.getAsMention()));
+      }
+
+      return name -> {
+        var mention = found.get(name);
+        return mention != null ? mention : cached.apply(name);
+      };
+    });
+  }
+
+  public void seed(MemberSnapshot snapshot) {
+    var seeded = new HashMap<Long, Map<String, Long>>();
+
+    for (var entry : snapshot.getChannels().entrySet()) {
+      var names = new HashMap<String, Long>();
+      for (var member : entry.getValue().members()) {
+        names.putIfAbsent(member.name().toLowerCase(Locale.ROOT), member.id());
+      }
+
+      seeded.put(entry.getKey(), names);
+    }
+
+    this.seeded = seeded;
+  }
+
+  public void clearSeed() {
+    this.seeded = Map.of();
+  }
+
+  /**
+   * The mention index of the members seeded for {@code channelId}, for use before the bot is ready.
+   */
+  public Function<String, String> seededIndex(long channelId) {
+    var members = this.seeded.getOrDefault(channelId, Map.of());
+    return name -> {
+      var id = members.get(name);
+      return id != null ? "<@" + id + ">" : null;
+    };
+  }
+
+  public void clear() {
+    this.misses.clear();
+  }
+
+  /**
+   * @return The distinct lowercase names mentioned in {@code message}, in order
+   */
+  static Set<String> names(String message) {
+    if (message.indexOf('@') < 0) return Set.of();
+
+    var names = new LinkedHashSet<String>();
+    var matcher = MENTION.matcher(message);
+
+    while (matcher.find()) {
+      names.add(matcher.group(1).toLowerCase(Locale.ROOT));
+    }
+
+    return names;
+  }
+
+  @Nullable
+  private static Member findCached(Guild guild, TextChannel channel, String name) {
+    for (var member : guild.getMembersByName(name, true)) {
+      if (member.hasAccess(channel)) return member;
+    }
+
+    return null;
+  }
+
+  private CompletableFuture<Optional<Member>> lookup(Guild guild, String name) {
+    var key = missKey(guild, name);
+
+    var future = new CompletableFuture<Optional<Member>>();
+    var existing = this.lookups.putIfAbsent(key, future);
+    if (existing != null) return existing;
+
+    // a search discord doesn't answer in time counts as no match, without remembering it as a miss
+    future.completeOnTimeout(Optional.empty(), LOOKUP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+      .whenComplete((member, throwable) -> this.lookups.remove(key, future));
+
+    guild.retrieveMembersByPrefix(name, SEARCH_LIMIT)
+      .onSuccess(members -> {
+        // the search is by prefix, only an exact name is a match
+        var member = members.stream().filter(m -> m.getUser().getName().equalsIgnoreCase(name)).findFirst();
+        if (member.isEmpty()) this.misses.put(key, Boolean.TRUE);
+        future.complete(member);
+      })
+      .onError(throwable -> {
+        VelocityDiscord.LOGGER.debug("Failed to look up member {}: {}", name, throwable.getMessage());
+        future.complete(Optional.empty());
+      });
+
+    return future;
+  }
+
+  private static String missKey(Guild guild, String name) {
+    return guild.getId() + ":" + name;
+  }
+}
@@ -9,8 +9,10 @@ import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.util.ChatFilter;
 import ooo.foooooooooooo.velocitydiscord.util.StringTemplate;
 import ooo.foooooooooooo.velocitydiscord.util.LinkManager;
+import ooo.foooooooooooo.velocitydiscord.util.WordFilter;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nonnull;
@@ -19,25 +21,25 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import static ooo.foooooooooooo.velocitydiscord.util.LinkManager.generateRandomCode;
-import static ooo.foooooooooooo.velocitydiscord.util.LinkManager.storeLinkCode;
-
 public class MessageListener extends ListenerAdapter {
   private static final Pattern WEBHOOK_ID_REGEX = Pattern.compile("^https://discord\\.com/api/webhooks/(\\d+)/.+$");
   private static final Pattern LINK_REGEX =
     Pattern.compile("[^:/?#\\s]+:(?://)?(?:[^?#\\s]+)?(?:\\?[^#\\s]+)?(?:#\\S+)?");
   private final HashMap<String, Discord.Channels> serverChannels;
   private final HashMap<Long, List<String>> channelToServersMap = new HashMap<>();
+  private final EmojiTranslator emojiTranslator;
 
   private String webhookId;
 
   private JDA jda;
 
-  public MessageListener(HashMap<String, Discord.Channels> serverChannels) {
+  public MessageListener(HashMap<String, Discord.Channels> serverChannels, EmojiTranslator emojiTranslator) {
     this.serverChannels = serverChannels;
+    this.emojiTranslator = emojiTranslator;
     updateWebhookId();
     onServerChannelsUpdated();
   }
@@ -72,13 +74,14 @@ public class MessageListener extends ListenerAdapter {
     // Handle commands first, regardless of channel mapping
     String messageContent = event.getMessage().getContentRaw();
 
-    if (messageContent.equalsIgnoreCase("!link")) {
-      LinkManager.generateRandomCode()
-        .thenCompose(code -> LinkManager.storeLinkCode(event.getAuthor().getId(), code).thenApply(v -> code))
+    if (messageContent.equalsIgnoreCase("!link") && VelocityDiscord.CONFIG.bot.linkCommand.LEGACY_TEXT_COMMAND) {
+      LinkManager.issueLinkCode(event.getAuthor().getId())
         .whenComplete((code, throwable) -> {
           if (throwable != null) {
             VelocityDiscord.LOGGER.error("Error generating/storing link code for user {}: {}", event.getAuthor().getId(), throwable.getMessage());
-            event.getChannel().sendMessage("❌ An error occurred while generating your link code. Please try again later.").queue();
+            event.getChannel().sendMessage("❌ " + LinkManager.describeFailure(throwable,
+              "An error occurred while generating your link code. Please try again later."
+            )).queue();
             return;
           }
           event.getAuthor().openPrivateChannel()
@@ -111,9 +114,22 @@ public class MessageListener extends ListenerAdapter {
     VelocityDiscord.LOGGER.trace("Received message from Discord channel {} for servers {}",
       channel.getName(), targetServerNames);
 
+    // servers sharing the channel report a flagged message only once
+    var flagged = new boolean[1];
+    Consumer<List<WordFilter.Match>> flag = matches -> {
+      if (flagged[0]) return;
+      flagged[0] = true;
+
+      VelocityDiscord.getDiscord().reportFiltered("#" + channel.getName(),
+        event.getAuthor().getName(),
+        event.getMessage().getContentDisplay(),
+        matches
+      );
+    };
+
     var messages = new HashMap<String, String>();
     for (var serverName : targetServerNames) {
-      messages.put(serverName, serializeMinecraftMessage(event, serverName));
+      messages.put(serverName, serializeMinecraftMessage(event, serverName, flag));
     }
 
     for (var server : VelocityDiscord.SERVER.getAllServers()) {
@@ -136,7 +152,7 @@ public class MessageListener extends ListenerAdapter {
       .queue();
   }
 
-  private String serializeMinecraftMessage(MessageReceivedEvent event, String server) {
+  private String serializeMinecraftMessage(MessageReceivedEvent event, String server, Consumer<List<WordFilter.Match>> flag) {
     var serverConfig = VelocityDiscord.CONFIG.getServerConfig(server);
     var serverMinecraftConfig = serverConfig.getMinecraftMessageConfig();
 
@@ -221,7 +237,20 @@ public class MessageListener extends ListenerAdapter {
       attachmentChunks.add(chunk);
     }
 
-    var content = message.getContentDisplay();
+    var content = VelocityDiscord.getChatFilter().apply(ChatFilter.discordToMinecraft(serverConfig.getBotConfig().filter),
+      message.getContentDisplay(),
+      "*",
+      flag
+    );
+
+    if (content == null) {
+      VelocityDiscord.LOGGER.debug("Not sending message from {} to {}, it contains blocked terms", author.getName(), server);
+      return null;
+    }
+
+    if (serverConfig.getBotConfig().TRANSLATE_EMOJI) {
+      content = this.emojiTranslator.toMinecraft(content);
+    }
 
     // Remove leading whitespace from attachments if there's no content
     if (content.isBlank()) {
@@ -0,0 +1,171 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import javax.annotation.Nullable;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Makes Minecraft chat safe to send to discord in a single scan of the message.
+ * <p>
+ * In one pass, written to one buffer sized up front, it:
+ * <ul>
+ *   <li>breaks raw pings like {@code <@123>} or {@code <@&123>} typed in chat, so players can't ping by ID</li>
+ *   <li>turns {@code @name} into a mention when the mention index knows the name</li>
+ *   <li>breaks {@code @everyone} and {@code @here} unless they are allowed</li>
+ *   <li>turns {@code :shortcode:} into the emoji the emoji index has for it</li>
+ *   <li>optionally escapes discord markdown</li>
+ * </ul>
+ * Pings are broken by inserting a zero width space after the {@code @}.
+ */
+public final class OutboundSanitizer {
+  private static final char ZERO_WIDTH_SPACE = '\u200B';
+
+  // discord usernames are 2 to 32 characters of letters, digits, underscores and periods
+  private static final int MIN_NAME_LENGTH = 2;
+  private static final int MAX_NAME_LENGTH = 32;
+  private static final int MAX_SHORTCODE_LENGTH = 32;
+
+  private OutboundSanitizer() {}
+
+  /**
+   * @param mentions       lowercase name -> mention, returning null for unknown names; null to resolve no mentions
+   * @param emoji          shortcode -> emoji, returning null for unknown shortcodes; null to translate no emoji
+   * @param allowEveryone  Leave {@code @everyone} and {@code @here} as they are
+   * @param escapeMarkdown Escape discord markdown so it shows as typed
+   */
+  public static String sanitize(
+    String message,
+    @Nullable Function<String, String> mentions,
+    @Nullable Function<String, String> emoji,
+    boolean allowEveryone,
+    boolean escapeMarkdown
+  ) {
+    var length = message.length();
+    // a few broken pings or escapes fit without growing
+    var out = new StringBuilder(length + (length >> 3) + 16);
+    var lineStart = true;
+
+    for (var i = 0; i < length; ) {
+      var c = message.charAt(i);
+
+      if (c == '<' && isRawPing(message, i)) {
+        out.append("<@").append(ZERO_WIDTH_SPACE);
+        i += 2;
+        lineStart = false;
+        continue;
+      }
+
+      if (c == '@') {
+        var end = nameEnd(message, i + 1);
+
+        if (mentions != null && end - (i + 1) >= MIN_NAME_LENGTH) {
+          var mention = mentions.apply(message.substring(i + 1, end).toLowerCase(Locale.ROOT));
+          if (mention != null) {
+            out.append(mention);
+            i = end;
+            lineStart = false;
+            continue;
+          }
+        }
+
+        out.append('@');
+        if (!allowEveryone && (message.startsWith("everyone", i + 1) || message.startsWith("here", i + 1))) {
+          out.append(ZERO_WIDTH_SPACE);
+        }
+
+        i++;
+        lineStart = false;
+        continue;
+      }
+
+      if (c == ':' && emoji != null) {
+        var end = shortcodeEnd(message, i + 1);
+
+        if (end > i + 1 && end < length && message.charAt(end) == ':') {
+          var replacement = emoji.apply(message.substring(i + 1, end));
+          if (replacement != null) {
+            out.append(replacement);
+            i = end + 1;
+            lineStart = false;
+            continue;
+          }
+        }
+        // otherwise the closing colon can still start a shortcode, like in "12:30:fire:"
+      }
+
+      if (escapeMarkdown && needsEscape(c, lineStart)) {
+        out.append('\\');
+      }
+
+      out.append(c);
+      lineStart = c == '\n';
+      i++;
+    }
+
+    return out.toString();
+  }
+
+  /**
+   * @return Whether {@code <@id>}, {@code <@!id>} or {@code <@&id>} starts at {@code start}
+   */
+  private static boolean isRawPing(String message, int start) {
+    var i = start + 1;
+    if (i >= message.length() || message.charAt(i) != '@') return false;
+
+    i++;
+    if (i < message.length() && (message.charAt(i) == '!' || message.charAt(i) == '&')) i++;
+
+    var digits = i;
+    while (i < message.length() && isDigit(message.charAt(i))) i++;
+
+    return i > digits && i < message.length() && message.charAt(i) == '>';
+  }
+
+  /**
+   * @return The end of the name starting at {@code start}, at most {@link #MAX_NAME_LENGTH} characters long
+   */
+  private static int nameEnd(String message, int start) {
+    var limit = Math.min(message.length(), start + MAX_NAME_LENGTH);
+    var i = start;
+
+    while (i < limit && isNameChar(message.charAt(i))) i++;
+
+    // a trailing period ends the sentence, it isn't part of the name
+    while (i > start && message.charAt(i - 1) == '.') i--;
+
+    return i;
+  }
+
+  /**
+   * @return The end of the shortcode name starting at {@code start}
+   */
+  private static int shortcodeEnd(String message, int start) {
+    var limit = Math.min(message.length(), start + MAX_SHORTCODE_LENGTH);
+    var i = start;
+
+    while (i < limit && isShortcodeChar(message.charAt(i))) i++;
+
+    return i;
+  }
+
+  private static boolean needsEscape(char c, boolean lineStart) {
+    return switch (c) {
+      case '\\', '*', '_', '~', '`', '|' -> true;
+      // quotes, headers and lists only start at the beginning of a line
+      case '>', '#', '-' -> lineStart;
+      default -> false;
+    };
+  }
+
+  private static boolean isNameChar(char c) {
+    return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || isDigit(c) || c == '_' || c == '.';
+  }
+
+  private static boolean isShortcodeChar(char c) {
+    return isNameChar(c) && c != '.' || c == '-' || c == '+';
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
@@ -0,0 +1,53 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Role;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the roles the plugin assigns, so granting one doesn't search every guild.
+ * <p>
+ * Entries are dropped when the config is reloaded, the role is deleted, the bot leaves its guild or the gateway
+ * session is recreated, since JDA replaces its entities then.
+ */
+public class RoleCache {
+  private final Map<String, Role> roles = new ConcurrentHashMap<>();
+
+  /**
+   * @return The role with this ID in any guild the bot is in, or null if the ID is empty or unknown
+   */
+  @Nullable
+  public Role get(JDA jda, @Nullable String roleId) {
+    if (roleId == null || roleId.isEmpty()) return null;
+
+    var role = this.roles.get(roleId);
+    if (role != null) return role;
+
+    try {
+      role = jda.getRoleById(roleId);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+
+    if (role != null) {
+      this.roles.put(roleId, role);
+    }
+
+    return role;
+  }
+
+  public void onRoleDeleted(long roleId) {
+    this.roles.values().removeIf(role -> role.getIdLong() == roleId);
+  }
+
+  public void onGuildLeft(long guildId) {
+    this.roles.values().removeIf(role -> role.getGuild().getIdLong() == guildId);
+  }
+
+  public void clear() {
+    this.roles.clear();
+  }
+}
@@ -0,0 +1,216 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends role additions and removals to discord one at a time, with a pause in between.
+ * <p>
+ * JDA already retries rate limited requests, but queueing thousands of them at once fills its request queue and
+ * delays everything else the bot sends. Here the next change is only sent once the previous one completed, including
+ * any rate limit wait, so a large reconciliation trickles out without starving chat messages.
+ * <p>
+ * Changes are coalesced per member and role: queueing a change for a pair that is still waiting replaces it, so a
+ * quick link, unlink, link only sends the final state. Urgent changes, made in response to a player or a button click,
+ * are sent before any background work from reconciliation.
+ */
+public class RoleMutationQueue {
+  private final Queue<Key> urgent = new ConcurrentLinkedQueue<>();
+  private final Queue<Key> background = new ConcurrentLinkedQueue<>();
+  private final Map<Key, Mutation> pending = new ConcurrentHashMap<>();
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private final ScheduledExecutorService scheduler;
+
+  private final LongAdder applied = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+
+  private volatile long intervalMillis;
+  // the change sent to discord and not answered yet
+  @Nullable
+  private volatile Mutation sending;
+
+  public RoleMutationQueue(long intervalMillis) {
+    this.intervalMillis = Math.max(0, intervalMillis);
+
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      var thread = new Thread(runnable, "LumaLyte-SRV Role Updates");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public void setIntervalMillis(long intervalMillis) {
+    this.intervalMillis = Math.max(0, intervalMillis);
+  }
+
+  public CompletableFuture<Void> add(Guild guild, Role role, long userId) {
+    return add(guild, role, userId, false);
+  }
+
+  public CompletableFuture<Void> remove(Guild guild, Role role, long userId) {
+    return remove(guild, role, userId, false);
+  }
+
+  public CompletableFuture<Void> add(Guild guild, Role role, long userId, boolean urgent) {
+    return submit(new Mutation(guild, role, userId, true, new CompletableFuture<>()), urgent);
+  }
+
+  public CompletableFuture<Void> remove(Guild guild, Role role, long userId, boolean urgent) {
+    return submit(new Mutation(guild, role, userId, false, new CompletableFuture<>()), urgent);
+  }
+
+  public int getPendingCount() {
+    return this.pending.size();
+  }
+
+  /**
+   * @return Whether the same change for this member and role is waiting to be sent or waiting for discord
+   */
+  public boolean isQueued(Role role, long userId, boolean add) {
+    var key = new Key(role.getIdLong(), userId);
+
+    var sending = this.sending;
+    if (sending != null && sending.key().equals(key) && sending.add() == add) return true;
+
+    var mutation = this.pending.get(key);
+    return mutation != null && mutation.add() == add;
+  }
+
+  public long getApplied() {
+    return this.applied.sum();
+  }
+
+  public long getFailed() {
+    return this.failed.sum();
+  }
+
+  public void shutdown() {
+    this.scheduler.shutdownNow();
+
+    this.pending.values().forEach(mutation -> mutation.result().cancel(false));
+    this.pending.clear();
+  }
+
+  private CompletableFuture<Void> submit(Mutation mutation, boolean urgent) {
+    var key = mutation.key();
+    var replaced = this.pending.put(key, mutation);
+
+    if (replaced != null) {
+      // whoever waited on the replaced change gets the outcome of the final state
+      mutation.result().whenComplete((v, throwable) -> {
+        if (throwable != null) {
+          replaced.result().completeExceptionally(throwable);
+        } else {
+          replaced.result().complete(null);
+        }
+      });
+    }
+
+    // a replaced key is already queued, urgent ones are queued again to jump ahead
+    if (urgent) {
+      this.urgent.add(key);
+    } else if (replaced == null) {
+      this.background.add(key);
+    }
+
+    if (this.draining.compareAndSet(false, true)) {
+      this.scheduler.execute(this::sendNext);
+    }
+
+    return mutation.result();
+  }
+
+  private void sendNext() {
+    var mutation = nextMutation();
+
+    if (mutation == null) {
+      this.draining.set(false);
+
+      // a mutation added between poll and set would otherwise wait for the next submit
+      if ((!this.urgent.isEmpty() || !this.background.isEmpty()) && this.draining.compareAndSet(false, true)) {
+        this.scheduler.execute(this::sendNext);
+      }
+      return;
+    }
+
+    var user = UserSnowflake.fromId(mutation.userId());
+
+    CompletableFuture<Void> request;
+    try {
+      request = mutation.add()
+        ? mutation.guild().addRoleToMember(user, mutation.role()).submit()
+        : mutation.guild().removeRoleFromMember(user, mutation.role()).submit();
+    } catch (RuntimeException e) {
+      // JDA checks permissions and role hierarchy before sending
+      request = CompletableFuture.failedFuture(e);
+    }
+
+    request.whenComplete((v, throwable) -> {
+      this.sending = null;
+
+      if (throwable == null || isUnknownMember(throwable)) {
+        // a member who left no longer needs the change
+        this.applied.increment();
+        mutation.result().complete(null);
+      } else {
+        this.failed.increment();
+        VelocityDiscord.LOGGER.warn("Failed to {} role {} for user {}: {}",
+          mutation.add() ? "add" : "remove",
+          mutation.role().getName(),
+          mutation.userId(),
+          throwable.getMessage()
+        );
+        mutation.result().completeExceptionally(throwable);
+      }
+
+      try {
+        this.scheduler.schedule(this::sendNext, this.intervalMillis, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // shutting down
+      }
+    });
+  }
+
+  @Nullable
+  private Mutation nextMutation() {
+    while (true) {
+      var key = this.urgent.poll();
+      if (key == null) key = this.background.poll();
+      if (key == null) return null;
+
+      // marked as sending before it leaves pending, so isQueued never misses it
+      Mutation mutation;
+      while ((mutation = this.pending.get(key)) != null) {
+        this.sending = mutation;
+        if (this.pending.remove(key, mutation)) return mutation;
+      }
+
+      // this key was queued twice and already sent
+      this.sending = null;
+    }
+  }
+
+  private static boolean isUnknownMember(Throwable throwable) {
+    var cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    return cause instanceof ErrorResponseException e && e.getErrorResponse() == ErrorResponse.UNKNOWN_MEMBER;
+  }
+
+  private record Key(long roleId, long userId) {}
+
+  private record Mutation(Guild guild, Role role, long userId, boolean add, CompletableFuture<Void> result) {
+    private Key key() {
+      return new Key(this.role.getIdLong(), this.userId);
+    }
+  }
+}
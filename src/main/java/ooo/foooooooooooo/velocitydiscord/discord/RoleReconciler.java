@@ -0,0 +1,192 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.database.LinkStore;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Brings the linked and verified roles back in line with the database.
+ * <p>
+ * Role changes made when someone links, unlinks or verifies are fire-and-forget, so a failed request or a change made
+ * while the bot was offline leaves the roles out of sync. A run reads every linked and verified Discord ID from the
+ * store in pages, compares them with the guild members holding each role, and queues only the missing additions and
+ * removals on the {@link RoleMutationQueue}. Changes still queued from an earlier run aren't queued or counted again.
+ * <p>
+ * Loading the members of a large guild can take a while, and someone may link, unlink or verify meanwhile. Each change
+ * found is checked against the store once more before it is queued, so it doesn't undo one made during the run.
+ */
+public class RoleReconciler {
+  private static final int PAGE_SIZE = 1000;
+
+  private final LinkStore store;
+  private final RoleMutationQueue queue;
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  public RoleReconciler(LinkStore store, RoleMutationQueue queue) {
+    this.store = store;
+    this.queue = queue;
+  }
+
+  /**
+   * @param linkedRoleId   The role of linked users, empty to skip it
+   * @param verifiedRoleId The role of verified users, empty to skip it
+   * @param dryRun         Only count the changes instead of queueing them
+   * @return The changes found, completes once they are queued, not once discord applied them
+   */
+  public CompletableFuture<Result> reconcile(JDA jda, String linkedRoleId, String verifiedRoleId, boolean dryRun) {
+    if (!this.running.compareAndSet(false, true)) {
+      return CompletableFuture.failedFuture(new IllegalStateException("Role reconciliation is already running"));
+    }
+
+    var start = System.nanoTime();
+
+    CompletableFuture<Result> result;
+    try {
+      result = reconcileRole(jda, linkedRoleId, this.store::getLinkedDiscordIds, dryRun)
+        .thenCompose(linked -> reconcileRole(jda, verifiedRoleId, this.store::getVerifiedDiscordIds, dryRun)
+          .thenApply(verified -> new Result(linked, verified, dryRun, (System.nanoTime() - start) / 1_000_000)));
+    } catch (RuntimeException e) {
+      result = CompletableFuture.failedFuture(e);
+    }
+
+    return result.whenComplete((r, throwable) -> this.running.set(false));
+  }
+
+  private CompletableFuture<Diff> reconcileRole(JDA jda, @Nullable String roleId, Pager pager, boolean dryRun) {
+    if (roleId == null || roleId.isEmpty()) {
+      return CompletableFuture.completedFuture(Diff.EMPTY);
+    }
+
+    Role role = jda.getRoleById(roleId);
+    if (role == null) {
+      VelocityDiscord.LOGGER.warn("Role with ID {} not found, skipping its reconciliation", roleId);
+      return CompletableFuture.completedFuture(Diff.EMPTY);
+    }
+
+    var guild = role.getGuild();
+
+    return loadIds(pager, 0, new HashSet<>())
+      .thenCombine(loadMembers(guild), (expected, members) -> {
+        var memberIds = new HashSet<Long>();
+        var holders = new HashSet<Long>();
+
+        for (var member : members) {
+          memberIds.add(member.getIdLong());
+          if (member.getRoles().contains(role)) holders.add(member.getIdLong());
+        }
+
+        var found = diff(expected, memberIds, holders);
+        return new Diff(notQueued(found.add(), role, true), notQueued(found.remove(), role, false));
+      })
+      .thenCompose(found -> stillExpected(pager, found.add(), true, 0, new ArrayList<>())
+        .thenCombine(stillExpected(pager, found.remove(), false, 0, new ArrayList<>()), Diff::new))
+      .thenApply(diff -> {
+        if (!dryRun) {
+          diff.add().forEach(id -> this.queue.add(guild, role, id));
+          diff.remove().forEach(id -> this.queue.remove(guild, role, id));
+        }
+
+        return diff;
+      });
+  }
+
+  /**
+   * Keeps the IDs the store still lists ({@code listed}) or still doesn't list, one lookup at a time so a large diff
+   * doesn't flood the database queue.
+   */
+  private static CompletableFuture<List<Long>> stillExpected(
+    Pager pager, List<Long> ids, boolean listed, int index, List<Long> into
+  ) {
+    if (index >= ids.size()) {
+      return CompletableFuture.completedFuture(into);
+    }
+
+    var id = ids.get(index);
+    // the first ID after id - 1 is id itself if the store lists it
+    return pager.page(id - 1, 1).thenCompose(page -> {
+      if (page.contains(id) == listed) into.add(id);
+      return stillExpected(pager, ids, listed, index + 1, into);
+    });
+  }
+
+  /**
+   * @param expected  Discord IDs that should hold the role
+   * @param memberIds Everyone in the guild, expected IDs that left can't be given the role
+   * @param holders   Members currently holding the role
+   */
+  static Diff diff(Set<Long> expected, Set<Long> memberIds, Set<Long> holders) {
+    var add = new ArrayList<Long>();
+    for (var id : expected) {
+      if (memberIds.contains(id) && !holders.contains(id)) add.add(id);
+    }
+
+    var remove = new ArrayList<Long>();
+    for (var id : holders) {
+      if (!expected.contains(id)) remove.add(id);
+    }
+
+    Collections.sort(add);
+    Collections.sort(remove);
+
+    return new Diff(add, remove);
+  }
+
+  private List<Long> notQueued(List<Long> ids, Role role, boolean add) {
+    var result = new ArrayList<Long>(ids.size());
+    for (var id : ids) {
+      if (!this.queue.isQueued(role, id, add)) result.add(id);
+    }
+
+    return result;
+  }
+
+  private static CompletableFuture<Set<Long>> loadIds(Pager pager, long afterId, Set<Long> into) {
+    return pager.page(afterId, PAGE_SIZE).thenCompose(page -> {
+      into.addAll(page);
+
+      if (page.size() < PAGE_SIZE) {
+        return CompletableFuture.completedFuture(into);
+      }
+
+      return loadIds(pager, page.get(page.size() - 1), into);
+    });
+  }
+
+  // served from the member cache when it is complete, otherwise requested from the gateway
+  private static CompletableFuture<List<Member>> loadMembers(Guild guild) {
+    var future = new CompletableFuture<List<Member>>();
+    guild.loadMembers().onSuccess(future::complete).onError(future::completeExceptionally);
+    return future;
+  }
+
+  @FunctionalInterface
+  private interface Pager {
+    CompletableFuture<List<Long>> page(long afterId, int limit);
+  }
+
+  public record Diff(List<Long> add, List<Long> remove) {
+    static final Diff EMPTY = new Diff(List.of(), List.of());
+  }
+
+  public record Result(Diff linked, Diff verified, boolean dryRun, long millis) {
+    @Override
+    public String toString() {
+      return String.format("Role reconciliation%s in %d ms: linked role +%d -%d, verified role +%d -%d",
+        this.dryRun ? " (dry run)" : "",
+        this.millis,
+        this.linked.add().size(),
+        this.linked.remove().size(),
+        this.verified.add().size(),
+        this.verified.remove().size()
+      );
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import javax.annotation.Nullable;
+import java.awt.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps a single verification panel with the verify button in the verification channel.
+ * <p>
+ * The channel and message ID of the panel are saved to a file in the data directory, so on startup the panel is checked
+ * with one fetch by ID instead of searching the channel history. A new panel is only sent when the saved one was
+ * deleted, and the check runs once per login, not again when the gateway reconnects.
+ */
+public class VerificationPanel {
+  public static final String FILE_NAME = "verify_panel.properties";
+  public static final String BUTTON_ID = "verify_user";
+
+  // only used when no panel was saved yet, e.g. one sent before the ID was saved
+  private static final int HISTORY_SCAN_LIMIT = 50;
+
+  private final Path file;
+  private final AtomicReference<JDA> checkedFor = new AtomicReference<>();
+
+  private volatile String messageId = null;
+
+  public VerificationPanel(Path dataDirectory) {
+    this.file = dataDirectory.resolve(FILE_NAME);
+  }
+
+  /**
+   * @return The ID of the panel message, or null if it hasn't been found or sent yet
+   */
+  @Nullable
+  public String getMessageId() {
+    return this.messageId;
+  }
+
+  /**
+   * Makes sure the panel exists in {@code channelId}, does nothing if it was already checked for this JDA instance.
+   */
+  public void ensure(JDA jda, String channelId) {
+    if (this.checkedFor.getAndSet(jda) == jda) return;
+
+    TextChannel channel = jda.getTextChannelById(channelId);
+    if (channel == null) {
+      VelocityDiscord.LOGGER.warn("Verification channel with ID {} not found. Cannot send verification message.", channelId);
+      return;
+    }
+
+    var saved = load();
+    if (saved == null || !saved.channelId().equals(channel.getId())) {
+      scanHistory(jda, channel);
+      return;
+    }
+
+    channel.retrieveMessageById(saved.messageId()).queue(
+      message -> {
+        this.messageId = message.getId();
+        VelocityDiscord.LOGGER.info("Found existing verification message with ID {}", message.getId());
+      },
+      failure -> {
+        if (failure instanceof ErrorResponseException e && e.getErrorResponse() == ErrorResponse.UNKNOWN_MESSAGE) {
+          VelocityDiscord.LOGGER.info("Verification message {} was deleted, sending a new one", saved.messageId());
+          send(channel);
+        } else {
+          // don't risk a duplicate panel because of a network error, try again on the next login
+          this.checkedFor.compareAndSet(jda, null);
+          VelocityDiscord.LOGGER.error("Failed to retrieve verification message: {}", failure.getMessage());
+        }
+      }
+    );
+  }
+
+  private void scanHistory(JDA jda, TextChannel channel) {
+    channel.getHistory().retrievePast(HISTORY_SCAN_LIMIT).queue(messages -> {
+      var existing = findPanel(jda, messages);
+
+      if (existing == null) {
+        send(channel);
+        return;
+      }
+
+      this.messageId = existing.getId();
+      save(channel.getId(), existing.getId());
+      VelocityDiscord.LOGGER.info("Found existing verification message with ID {}", existing.getId());
+    }, failure -> {
+      this.checkedFor.compareAndSet(jda, null);
+      VelocityDiscord.LOGGER.error("Failed to retrieve message history for verification channel: {}", failure.getMessage());
+    });
+  }
+
+  @Nullable
+  private static Message findPanel(JDA jda, List<Message> messages) {
+    var selfId = jda.getSelfUser().getId();
+
+    for (Message message : messages) {
+      if (!message.getAuthor().getId().equals(selfId)) continue;
+
+      for (ActionRow row : message.getActionRows()) {
+        for (Button button : row.getButtons()) {
+          if (BUTTON_ID.equals(button.getId())) return message;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  private void send(TextChannel channel) {
+    Color embedColor;
+    try {
+      embedColor = Color.decode(VelocityDiscord.CONFIG.bot.VERIFY_PANEL_COLOR);
+    } catch (NumberFormatException e) {
+      VelocityDiscord.LOGGER.warn("Invalid color format in VERIFY_PANEL_COLOR: {}. Defaulting to green.", VelocityDiscord.CONFIG.bot.VERIFY_PANEL_COLOR);
+      embedColor = Color.GREEN;
+    }
+
+    EmbedBuilder embed = new EmbedBuilder()
+      .setTitle(VelocityDiscord.CONFIG.bot.VERIFY_PANEL_TITLE)
+      .setDescription(VelocityDiscord.CONFIG.bot.VERIFY_PANEL_MESSAGE)
+      .setColor(embedColor);
+
+    Button verifyButton = Button.primary(BUTTON_ID, VelocityDiscord.CONFIG.bot.VERIFY_BUTTON_MESSAGE);
+
+    channel.sendMessageEmbeds(embed.build())
+      .setActionRow(verifyButton)
+      .queue(
+        message -> {
+          this.messageId = message.getId();
+          save(channel.getId(), message.getId());
+          VelocityDiscord.LOGGER.info("Sent persistent verification message with ID {} in channel {}", message.getId(), channel.getId());
+        },
+        failure -> VelocityDiscord.LOGGER.error("Failed to send persistent verification message: {}", failure.getMessage())
+      );
+  }
+
+  @Nullable
+  private Saved load() {
+    if (!Files.exists(this.file)) return null;
+
+    var properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    } catch (IOException e) {
+      VelocityDiscord.LOGGER.warn("Failed to read {}, looking for the verification message again: {}", this.file, e.getMessage());
+      return null;
+    }
+
+    var channelId = properties.getProperty("channel");
+    var messageId = properties.getProperty("message");
+    if (channelId == null || messageId == null || channelId.isBlank() || messageId.isBlank()) return null;
+
+    return new Saved(channelId.trim(), messageId.trim());
+  }
+
+  private void save(String channelId, String messageId) {
+    var properties = new Properties();
+    properties.setProperty("channel", channelId);
+    properties.setProperty("message", messageId);
+
+    var temp = this.file.resolveSibling(FILE_NAME + ".tmp");
+    try {
+      try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        properties.store(writer, "Verification panel, delete to search the channel for it again");
+      }
+      Files.move(temp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      VelocityDiscord.LOGGER.warn("Failed to save the verification message ID: {}", e.getMessage());
+    }
+  }
+
+  private record Saved(String channelId, String messageId) {}
+}
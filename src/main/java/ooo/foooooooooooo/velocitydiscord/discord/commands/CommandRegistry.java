@@ -0,0 +1,111 @@
+package ooo.foooooooooooo.velocitydiscord.discord.commands;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Registers the slash commands with discord only when they changed.
+ * <p>
+ * The command set is reduced to a hash of its sorted names and descriptions. The hash last registered in each guild is
+ * saved to a file in the data directory, and the whole set is only sent, in one bulk update, when the hash differs.
+ * Commands that were removed from the set are unregistered by the same update. Hashes are kept per bot application,
+ * so switching to another bot registers its commands even in guilds the old one had them in.
+ */
+public class CommandRegistry {
+  public static final String FILE_NAME = "commands.properties";
+
+  private final Path file;
+  private final Properties registered = new Properties();
+
+  public CommandRegistry(Path dataDirectory) {
+    this.file = dataDirectory.resolve(FILE_NAME);
+
+    if (!Files.exists(this.file)) return;
+
+    try (Reader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+      this.registered.load(reader);
+    } catch (IOException e) {
+      VelocityDiscord.LOGGER.warn("Failed to read {}, registering slash commands again: {}", this.file, e.getMessage());
+    }
+  }
+
+  /**
+   * Sends {@code commands} to {@code guild} if they differ from what was last registered there.
+   */
+  public synchronized void sync(Guild guild, Map<String, ICommand> commands) {
+    var sorted = new TreeMap<>(commands);
+    var hash = hash(sorted);
+    var key = key(guild.getJDA().getSelfUser().getApplicationId(), guild.getId());
+
+    if (hash.equals(this.registered.getProperty(key))) {
+      VelocityDiscord.LOGGER.debug("Slash commands unchanged in guild {}, not registering", guild.getName());
+      return;
+    }
+
+    var data = new ArrayList<CommandData>();
+    for (var entry : sorted.entrySet()) {
+      data.add(Commands.slash(entry.getKey(), entry.getValue().description()));
+    }
+
+    guild.updateCommands().addCommands(data).queue(
+      registered -> {
+        VelocityDiscord.LOGGER.info("Registered {} slash commands in guild {}", registered.size(), guild.getName());
+        save(key, hash);
+      },
+      failure -> VelocityDiscord.LOGGER.error("Failed to register slash commands: {}", failure.getMessage())
+    );
+  }
+
+  static String key(String applicationId, String guildId) {
+    return "app." + applicationId + ".guild." + guildId;
+  }
+
+  /**
+   * @return A hash of the command names and descriptions that doesn't depend on the map's order
+   */
+  static String hash(Map<String, ICommand> commands) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+
+    for (var entry : new TreeMap<>(commands).entrySet()) {
+      // NUL can't appear in a command name or description
+      digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(entry.getValue().description().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private synchronized void save(String key, String hash) {
+    this.registered.setProperty(key, hash);
+
+    var temp = this.file.resolveSibling(FILE_NAME + ".tmp");
+    try {
+      try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        this.registered.store(writer, "Last registered slash commands, delete to register them again");
+      }
+      Files.move(temp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      VelocityDiscord.LOGGER.warn("Failed to save registered slash commands: {}", e.getMessage());
+    }
+  }
+}
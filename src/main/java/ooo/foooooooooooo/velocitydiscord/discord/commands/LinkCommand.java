@@ -0,0 +1,48 @@
+package ooo.foooooooooooo.velocitydiscord.discord.commands;
+
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.util.LinkManager;
+
+public class LinkCommand implements ICommand {
+  public static final String COMMAND_NAME = "link";
+
+  public LinkCommand() {}
+
+  @Override
+  public void handle(SlashCommandInteraction interaction) {
+    var discordId = interaction.getUser().getId();
+    var code = LinkManager.issueLinkCode(discordId);
+
+    // signed codes are ready straight away, stored ones need a database round trip first
+    if (code.isDone() && !code.isCompletedExceptionally()) {
+      interaction.reply(codeMessage(code.join())).setEphemeral(true).queue();
+      VelocityDiscord.LOGGER.info("Sent link code to user {}", discordId);
+      return;
+    }
+
+    interaction.deferReply(true).queue();
+
+    code.whenComplete((result, throwable) -> {
+      if (throwable != null) {
+        VelocityDiscord.LOGGER.error("Error generating/storing link code for user {}: {}", discordId, throwable.getMessage());
+        interaction.getHook().editOriginal("❌ " + LinkManager.describeFailure(throwable,
+          "An error occurred while generating your link code. Please try again later."
+        )).queue();
+        return;
+      }
+
+      interaction.getHook().editOriginal(codeMessage(result)).queue();
+      VelocityDiscord.LOGGER.info("Sent link code to user {}", discordId);
+    });
+  }
+
+  private static String codeMessage(String code) {
+    return "Use this code in-game to link: **" + code + "**\nRun `/link " + code + "` on the server.";
+  }
+
+  @Override
+  public String description() {
+    return "Get a code to link your Minecraft account";
+  }
+}
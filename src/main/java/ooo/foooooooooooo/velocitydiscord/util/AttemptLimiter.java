@@ -0,0 +1,157 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window limiter for guesses, e.g. link code attempts, with lockouts that grow on repeat offences.
+ * <p>
+ * Each key may make {@code maxAttempts} attempts within any {@code window}. The next attempt locks the key out for
+ * {@code baseLockout}, doubling with every further lockout up to {@code maxLockout}. The doubling is forgotten once a
+ * key stays out of trouble for {@code maxLockout} after its last lockout ended.
+ * <p>
+ * Only the times of the last {@code maxAttempts} attempts are kept per key, and idle keys are dropped, so memory stays
+ * small however many keys try.
+ */
+public class AttemptLimiter {
+  // look for idle keys every this many calls
+  private static final int PRUNE_EVERY = 256;
+
+  private final int maxAttempts;
+  private final long windowMillis;
+  private final long baseLockoutMillis;
+  private final long maxLockoutMillis;
+  private final LongSupplier clock;
+
+  private final Map<String, State> states = new ConcurrentHashMap<>();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  public AttemptLimiter(int maxAttempts, long windowMillis, long baseLockoutMillis, long maxLockoutMillis) {
+    this(maxAttempts, windowMillis, baseLockoutMillis, maxLockoutMillis, System::currentTimeMillis);
+  }
+
+  AttemptLimiter(int maxAttempts, long windowMillis, long baseLockoutMillis, long maxLockoutMillis, LongSupplier clock) {
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.windowMillis = Math.max(1, windowMillis);
+    this.baseLockoutMillis = Math.max(1, baseLockoutMillis);
+    this.maxLockoutMillis = Math.max(this.baseLockoutMillis, maxLockoutMillis);
+    this.clock = clock;
+  }
+
+  /**
+   * Records an attempt by {@code key} if it is allowed.
+   *
+   * @return 0 if the attempt may go ahead, otherwise the milliseconds until the key may try again
+   */
+  public long tryAcquire(String key) {
+    var now = this.clock.getAsLong();
+
+    if (this.calls.incrementAndGet() % PRUNE_EVERY == 0) {
+      prune(now);
+    }
+
+    var state = this.states.computeIfAbsent(key, k -> new State(this.maxAttempts));
+
+    synchronized (state) {
+      state.lastSeen = now;
+
+      if (now < state.lockedUntil) {
+        return state.lockedUntil - now;
+      }
+
+      if (state.strikes > 0 && now - state.lockedUntil >= this.maxLockoutMillis) {
+        state.strikes = 0;
+      }
+
+      // the slot about to be overwritten holds the oldest of the last maxAttempts attempts
+      var oldest = state.attempts[state.next];
+      if (state.count == this.maxAttempts && now - oldest < this.windowMillis) {
+        state.strikes++;
+
+        var lockout = this.baseLockoutMillis << Math.min(state.strikes - 1, 20);
+        lockout = Math.min(this.maxLockoutMillis, lockout);
+
+        state.lockedUntil = now + lockout;
+        state.count = 0;
+        return lockout;
+      }
+
+      state.attempts[state.next] = now;
+      state.next = (state.next + 1) % this.maxAttempts;
+      state.count = Math.min(state.count + 1, this.maxAttempts);
+      return 0;
+    }
+  }
+
+  /**
+   * Tells if {@code key} may make an attempt, without recording one. Use it to check several limiters before recording
+   * the attempt in any of them.
+   *
+   * @return 0 if an attempt would go ahead, otherwise the milliseconds until it may or the lockout it would start
+   */
+  public long check(String key) {
+    var state = this.states.get(key);
+    if (state == null) return 0;
+
+    var now = this.clock.getAsLong();
+
+    synchronized (state) {
+      if (now < state.lockedUntil) {
+        return state.lockedUntil - now;
+      }
+
+      var strikes = state.strikes > 0 && now - state.lockedUntil >= this.maxLockoutMillis ? 0 : state.strikes;
+
+      var oldest = state.attempts[state.next];
+      if (state.count == this.maxAttempts && now - oldest < this.windowMillis) {
+        return Math.min(this.maxLockoutMillis, this.baseLockoutMillis << Math.min(strikes, 20));
+      }
+
+      return 0;
+    }
+  }
+
+  /**
+   * Forgets the attempts of {@code key}, call after a successful attempt. Lockout escalation is kept.
+   */
+  public void reset(String key) {
+    var state = this.states.get(key);
+    if (state == null) return;
+
+    synchronized (state) {
+      state.count = 0;
+      state.next = 0;
+    }
+  }
+
+  /**
+   * @return Number of keys currently tracked
+   */
+  public int size() {
+    return this.states.size();
+  }
+
+  private void prune(long now) {
+    this.states.values().removeIf(state -> {
+      synchronized (state) {
+        var idle = now - state.lastSeen >= this.windowMillis && now >= state.lockedUntil;
+        return idle && (state.strikes == 0 || now - state.lockedUntil >= this.maxLockoutMillis);
+      }
+    });
+  }
+
+  private static final class State {
+    private final long[] attempts;
+    private int next = 0;
+    private int count = 0;
+    private int strikes = 0;
+    private long lockedUntil = 0;
+    private long lastSeen = 0;
+
+    private State(int maxAttempts) {
+      this.attempts = new long[maxAttempts];
+    }
+  }
+}
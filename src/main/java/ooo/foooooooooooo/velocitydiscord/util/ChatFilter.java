@@ -0,0 +1,131 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.config.FilterConfig;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The blocked word list of both bridge directions, read from the words file and the config and compiled into a
+ * {@link WordFilter}. Reloading only compiles the list again if it changed.
+ */
+public class ChatFilter {
+  private static final String DEFAULT_FILE = """
+    # Blocked words and phrases, one per line, checked in both directions of the chat bridge
+    # Matching ignores case, common leetspeak (e.g. $1ur for slur) and invisible characters
+    # Terms only match whole words, put * at the start or end to also match inside words, e.g. slur*
+    # What happens to matching messages is set under [discord.filter] in config.toml
+    """;
+
+  private volatile WordFilter words = WordFilter.EMPTY;
+  private List<String> terms = List.of();
+
+  public void reload(Path dataDirectory) {
+    var config = VelocityDiscord.CONFIG.bot.filter;
+    checkAction(config.MINECRAFT_TO_DISCORD);
+    checkAction(config.DISCORD_TO_MINECRAFT);
+
+    var fileTerms = readFile(dataDirectory.resolve(config.WORDS_FILE));
+    // keep the current list rather than filter nothing
+    if (fileTerms == null) return;
+
+    var terms = new ArrayList<>(fileTerms);
+    terms.addAll(config.WORDS);
+
+    if (terms.equals(this.terms)) return;
+
+    var start = System.nanoTime();
+    this.words = WordFilter.compile(terms);
+    this.terms = terms;
+
+    VelocityDiscord.LOGGER.info("Compiled {} blocked terms in {} ms", this.words.size(), (System.nanoTime() - start) / 1_000_000);
+  }
+
+  public List<WordFilter.Match> find(String text) {
+    return this.words.find(text);
+  }
+
+  /**
+   * Applies {@code action} to {@code text} if it contains blocked terms.
+   *
+   * @param mask Replaces each character of a blocked term when the action is {@link FilterAction#MASK}
+   * @param flag Called with the matches when the action is {@link FilterAction#FLAG}
+   * @return The text to send, or null if it should be dropped
+   */
+  @Nullable
+  public String apply(FilterAction action, String text, String mask, Consumer<List<WordFilter.Match>> flag) {
+    if (action == FilterAction.NONE) return text;
+
+    var matches = this.words.find(text);
+    if (matches.isEmpty()) return text;
+
+    return switch (action) {
+      case MASK -> WordFilter.mask(text, matches, mask);
+      case DROP -> null;
+      case FLAG -> {
+        flag.accept(matches);
+        yield text;
+      }
+      case NONE -> text;
+    };
+  }
+
+  /**
+   * @return The action for chat sent from Minecraft to discord, none if the configured one isn't valid
+   */
+  public static FilterAction minecraftToDiscord(FilterConfig config) {
+    return action(config.MINECRAFT_TO_DISCORD);
+  }
+
+  /**
+   * @return The action for messages sent from discord to Minecraft, none if the configured one isn't valid
+   */
+  public static FilterAction discordToMinecraft(FilterConfig config) {
+    return action(config.DISCORD_TO_MINECRAFT);
+  }
+
+  private static FilterAction action(String value) {
+    try {
+      return FilterAction.parse(value);
+    } catch (RuntimeException e) {
+      // reported once on reload
+      return FilterAction.NONE;
+    }
+  }
+
+  private static void checkAction(String value) {
+    try {
+      FilterAction.parse(value);
+    } catch (RuntimeException e) {
+      VelocityDiscord.LOGGER.error("{}, not filtering", e.getMessage());
+    }
+  }
+
+  @Nullable
+  private static List<String> readFile(Path file) {
+    if (!Files.exists(file)) {
+      try {
+        Files.writeString(file, DEFAULT_FILE, StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        VelocityDiscord.LOGGER.warn("Failed to create {}: {}", file, e.getMessage());
+      }
+
+      return List.of();
+    }
+
+    try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+      return lines.map(String::strip).filter(line -> !line.isEmpty() && !line.startsWith("#")).toList();
+    } catch (IOException | UncheckedIOException e) {
+      VelocityDiscord.LOGGER.error("Failed to read blocked words from {}: {}", file, e.getMessage());
+      return null;
+    }
+  }
+}
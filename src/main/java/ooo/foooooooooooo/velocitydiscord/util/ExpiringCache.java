@@ -0,0 +1,99 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Small bounded cache with least-recently-used eviction and a fixed time to live per entry.
+ * <p>
+ * Values are never null, callers that want to cache a miss should store an empty value (e.g. {@code Optional.empty()}).
+ */
+public class ExpiringCache<K, V> {
+  private final int maxSize;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+  private final LinkedHashMap<K, Entry<V>> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public ExpiringCache(int maxSize, long ttlNanos) {
+    this(maxSize, ttlNanos, System::nanoTime);
+  }
+
+  ExpiringCache(int maxSize, long ttlNanos, LongSupplier clock) {
+    this.maxSize = maxSize;
+    this.ttlNanos = ttlNanos;
+    this.clock = clock;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+        if (size() > ExpiringCache.this.maxSize) {
+          ExpiringCache.this.evictions.incrementAndGet();
+          return true;
+        }
+
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @return The cached value, or null if it is missing or expired
+   */
+  public synchronized V get(K key) {
+    var entry = this.entries.get(key);
+
+    if (entry != null && entry.expiresAt - this.clock.getAsLong() > 0) {
+      this.hits.incrementAndGet();
+      return entry.value;
+    }
+
+    if (entry != null) {
+      this.entries.remove(key);
+    }
+
+    this.misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Like {@link #get(Object)}, but doesn't count towards hit/miss stats or refresh the entry's recency.
+   */
+  public synchronized V peek(K key) {
+    var entry = this.entries.get(key);
+    return entry != null && entry.expiresAt - this.clock.getAsLong() > 0 ? entry.value : null;
+  }
+
+  public synchronized void put(K key, V value) {
+    this.entries.put(key, new Entry<>(value, this.clock.getAsLong() + this.ttlNanos));
+  }
+
+  public synchronized void invalidate(K key) {
+    this.entries.remove(key);
+  }
+
+  public synchronized void clear() {
+    this.entries.clear();
+  }
+
+  public synchronized int size() {
+    return this.entries.size();
+  }
+
+  public Stats stats() {
+    return new Stats(this.hits.get(), this.misses.get(), this.evictions.get(), size());
+  }
+
+  private record Entry<V>(V value, long expiresAt) {}
+
+  public record Stats(long hits, long misses, long evictions, int size) {
+    public double hitRatio() {
+      var total = this.hits + this.misses;
+      return total == 0 ? 0 : (double) this.hits / total;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+public enum FilterAction {
+  /** Send messages as they are */
+  NONE,
+  /** Replace blocked terms with asterisks */
+  MASK,
+  /** Don't send messages containing blocked terms */
+  DROP,
+  /** Send messages as they are, and report them to the staff channel */
+  FLAG;
+
+  public static FilterAction parse(String value) {
+    return switch (value.toLowerCase()) {
+      case "none", "" -> NONE;
+      case "mask" -> MASK;
+      case "drop" -> DROP;
+      case "flag" -> FLAG;
+      default -> throw new RuntimeException("Invalid filter action: " + value);
+    };
+  }
+}
@@ -0,0 +1,117 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import java.util.HashSet;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-way cache of LinkedAccounts: Minecraft UUID to Discord ID, and Discord ID to every UUID linked to it.
+ * <p>
+ * Misses are cached too, as an empty {@link OptionalLong} or an empty set, so repeated lookups for unlinked
+ * players don't reach the database either. Link and unlink update the cache directly.
+ * <p>
+ * A lookup can finish after a link or unlink that started later, so database results are only stored if no link or
+ * unlink was applied since the lookup began: take a {@link #version()} before the read and pass it to the put.
+ */
+public class LinkCache {
+  private final ExpiringCache<UUID, OptionalLong> byUuid;
+  private final ExpiringCache<Long, Set<UUID>> byDiscordId;
+
+  // bumped by every change, guarded by this
+  private long version = 0;
+
+  public LinkCache(int maxSize, long ttlSeconds) {
+    var ttl = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    this.byUuid = new ExpiringCache<>(maxSize, ttl);
+    this.byDiscordId = new ExpiringCache<>(maxSize, ttl);
+  }
+
+  /**
+   * @return The cached Discord ID (empty if known to be unlinked), or null if not cached
+   */
+  public OptionalLong getDiscordId(UUID uuid) {
+    return this.byUuid.get(uuid);
+  }
+
+  /**
+   * @return The cached UUIDs (empty if known to be unlinked), or null if not cached
+   */
+  public Set<UUID> getUuids(long discordId) {
+    return this.byDiscordId.get(discordId);
+  }
+
+  /**
+   * @return The current version, take it before starting the database read and pass it to the put
+   */
+  public synchronized long version() {
+    return this.version;
+  }
+
+  /**
+   * Stores a database result, unless a change was applied after {@code version} was taken.
+   *
+   * @return Whether the result was stored
+   */
+  public synchronized boolean putDiscordId(UUID uuid, OptionalLong discordId, long version) {
+    if (version != this.version) return false;
+
+    this.byUuid.put(uuid, discordId);
+    return true;
+  }
+
+  /**
+   * Stores a database result, and the Discord ID for each of the UUIDs, unless a change was applied after
+   * {@code version} was taken.
+   *
+   * @return Whether the result was stored
+   */
+  public synchronized boolean putUuids(long discordId, Set<UUID> uuids, long version) {
+    if (version != this.version) return false;
+
+    this.byDiscordId.put(discordId, Set.copyOf(uuids));
+    for (var uuid : uuids) {
+      this.byUuid.put(uuid, OptionalLong.of(discordId));
+    }
+
+    return true;
+  }
+
+  public synchronized void onLinked(UUID uuid, long discordId) {
+    this.version++;
+    this.byUuid.put(uuid, OptionalLong.of(discordId));
+
+    // only extend a cached set, a partial set would look complete to readers
+    var uuids = this.byDiscordId.peek(discordId);
+    if (uuids != null) {
+      var updated = new HashSet<>(uuids);
+      updated.add(uuid);
+      this.byDiscordId.put(discordId, Set.copyOf(updated));
+    }
+  }
+
+  public synchronized void onUnlinked(UUID uuid, long discordId) {
+    this.version++;
+    this.byUuid.put(uuid, OptionalLong.empty());
+
+    var uuids = this.byDiscordId.peek(discordId);
+    if (uuids != null) {
+      var updated = new HashSet<>(uuids);
+      updated.remove(uuid);
+      this.byDiscordId.put(discordId, Set.copyOf(updated));
+    }
+  }
+
+  public synchronized void clear() {
+    this.version++;
+    this.byUuid.clear();
+    this.byDiscordId.clear();
+  }
+
+  public Stats stats() {
+    return new Stats(this.byUuid.stats(), this.byDiscordId.stats());
+  }
+
+  public record Stats(ExpiringCache.Stats byUuid, ExpiringCache.Stats byDiscordId) {}
+}
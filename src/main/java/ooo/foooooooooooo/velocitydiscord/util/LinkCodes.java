@@ -0,0 +1,248 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Stateless link codes.
+ * <p>
+ * A code carries the Discord ID and the minute it was issued, followed by a truncated HMAC-SHA256 of both.
+ * Validating a code is a pure CPU check, so no pending code has to be stored anywhere, only used codes are remembered
+ * until they expire so each works once.
+ * <p>
+ * The ID takes 62 bits, which Discord snowflakes fit in until 2049, the minute only its low 5 bits, and the MAC the
+ * remaining 53 bits, so a code can't be forged by guessing. Codes are 24 characters of Crockford base32, grouped by 4,
+ * e.g. {@code 0J4Q-8ZK1-R5TW-M2XA-7H3D-QE9C}
+ */
+public final class LinkCodes {
+  private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+  private static final byte[] DOMAIN = "lumalyte-link-v3".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int ID_BITS = 62;
+  private static final int MINUTE_BITS = 5;
+  private static final int MAC_BITS = 53;
+  private static final int TOTAL_BYTES = (ID_BITS + MINUTE_BITS + MAC_BITS) / 8;
+
+  private static final long MAX_ID = (1L << ID_BITS) - 1;
+  private static final int MINUTE_MASK = (1 << MINUTE_BITS) - 1;
+  private static final long MAC_MASK = (1L << MAC_BITS) - 1;
+
+  public static final int CODE_LENGTH = TOTAL_BYTES * 8 / 5; // 24 characters, dashes excluded
+  private static final int GROUP_SIZE = 4;
+
+  private final SecretKeySpec key;
+  private final long ttlMinutes;
+
+  public LinkCodes(byte[] secret, int ttlSeconds) {
+    if (secret.length < 16) {
+      throw new IllegalArgumentException("Link code secret must be at least 16 bytes");
+    }
+
+    this.key = new SecretKeySpec(secret, "HmacSHA256");
+    this.ttlMinutes = Math.max(1, (ttlSeconds + 59) / 60);
+
+    // the age of a code must fit in the minute bits, with room left to tell expired codes apart
+    if (this.ttlMinutes > MINUTE_MASK / 2) {
+      throw new IllegalArgumentException("Link code TTL must be at most " + MINUTE_MASK / 2 + " minutes");
+    }
+  }
+
+  /**
+   * Reads the secret from {@code configured} if set, otherwise from (or into) {@code secretFile}.
+   * <p>
+   * Every proxy validating codes must share the same secret, so multi-proxy setups should configure one explicitly.
+   */
+  public static byte[] loadSecret(String configured, Path secretFile) throws IOException {
+    if (configured != null && !configured.isEmpty()) {
+      return configured.getBytes(StandardCharsets.UTF_8);
+    }
+
+    if (Files.exists(secretFile)) {
+      return Base64.getDecoder().decode(Files.readString(secretFile, StandardCharsets.US_ASCII).trim());
+    }
+
+    var secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    Files.writeString(secretFile, Base64.getEncoder().encodeToString(secret), StandardCharsets.US_ASCII);
+
+    return secret;
+  }
+
+  public String issue(long discordId) {
+    return issue(discordId, System.currentTimeMillis());
+  }
+
+  String issue(long discordId, long nowMillis) {
+    if (discordId < 0 || discordId > MAX_ID) {
+      throw new IllegalArgumentException("Discord ID " + discordId + " does not fit in a link code");
+    }
+
+    var minute = nowMillis / 60_000L;
+    var low = (int) minute & MINUTE_MASK;
+
+    // 62 bits of ID, 5 bits of minute, 53 bits of MAC, the last long only fills the 7 bytes left
+    var buffer = ByteBuffer.allocate(TOTAL_BYTES + 1);
+    buffer.putLong(discordId << 2 | low >>> 3);
+    buffer.putLong(((long) (low & 7) << MAC_BITS | mac(discordId, minute)) << 8);
+
+    return format(encode(Arrays.copyOf(buffer.array(), TOTAL_BYTES)));
+  }
+
+  /**
+   * @return The status and the Discord ID the code names, which is only given once the signature checked out
+   */
+  public Verification verify(String code) {
+    return verify(code, System.currentTimeMillis());
+  }
+
+  Verification verify(String code, long nowMillis) {
+    var bytes = decode(normalize(code));
+    if (bytes == null) {
+      return Verification.INVALID;
+    }
+
+    var buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, TOTAL_BYTES + 1));
+    var high = buffer.getLong();
+    var low = buffer.getLong() >>> 8;
+
+    var discordId = high >>> 2;
+    var storedMinute = (int) (high & 3) << 3 | (int) (low >>> MAC_BITS);
+
+    // only the low bits of the issue minute are stored, take the latest minute that matches them
+    var nowMinute = nowMillis / 60_000L;
+    var age = (int) (nowMinute - storedMinute) & MINUTE_MASK;
+    var minute = nowMinute - age;
+
+    if (!MessageDigest.isEqual(macBytes(low & MAC_MASK), macBytes(mac(discordId, minute)))) {
+      return Verification.INVALID;
+    }
+
+    // a code never outlives the TTL, so a used code can be forgotten a TTL after its use
+    if (age >= this.ttlMinutes) {
+      return new Verification(Status.EXPIRED, discordId);
+    }
+
+    return new Verification(Status.VALID, discordId);
+  }
+
+  /**
+   * @return true if {@code code} has the shape of a stateless link code, without checking its signature
+   */
+  public static boolean isWellFormed(String code) {
+    return decode(normalize(code)) != null;
+  }
+
+  private long mac(long discordId, long minute) {
+    try {
+      var mac = Mac.getInstance("HmacSHA256");
+      mac.init(this.key);
+      mac.update(DOMAIN);
+      mac.update(ByteBuffer.allocate(2 * Long.BYTES).putLong(discordId).putLong(minute).array());
+      return ByteBuffer.wrap(mac.doFinal()).getLong() >>> (Long.SIZE - MAC_BITS);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HmacSHA256 is not available", e);
+    }
+  }
+
+  private static byte[] macBytes(long mac) {
+    return ByteBuffer.allocate(Long.BYTES).putLong(mac).array();
+  }
+
+  /**
+   * Brings a code to the one spelling it is remembered under once used: upper case, no dashes or spaces, and the
+   * letters easily mistaken for digits replaced by them.
+   */
+  public static String normalize(String code) {
+    var sb = new StringBuilder(code.length());
+
+    for (var i = 0; i < code.length(); i++) {
+      var c = Character.toUpperCase(code.charAt(i));
+      switch (c) {
+        case '-', ' ' -> {}
+        case 'I', 'L' -> sb.append('1');
+        case 'O' -> sb.append('0');
+        default -> sb.append(c);
+      }
+    }
+
+    return sb.toString();
+  }
+
+  private static String format(String encoded) {
+    var sb = new StringBuilder(encoded.length() + encoded.length() / GROUP_SIZE);
+
+    for (var i = 0; i < encoded.length(); i++) {
+      if (i > 0 && i % GROUP_SIZE == 0) sb.append('-');
+      sb.append(encoded.charAt(i));
+    }
+
+    return sb.toString();
+  }
+
+  private static String encode(byte[] bytes) {
+    var sb = new StringBuilder(CODE_LENGTH);
+    var buffer = 0;
+    var bits = 0;
+
+    for (var b : bytes) {
+      buffer = (buffer << 8) | (b & 0xFF);
+      bits += 8;
+
+      while (bits >= 5) {
+        sb.append(ALPHABET[(buffer >> (bits - 5)) & 0x1F]);
+        bits -= 5;
+      }
+    }
+
+    return sb.toString();
+  }
+
+  private static byte[] decode(String encoded) {
+    if (encoded.length() != CODE_LENGTH) {
+      return null;
+    }
+
+    var out = new byte[TOTAL_BYTES];
+    var buffer = 0;
+    var bits = 0;
+    var index = 0;
+
+    for (var i = 0; i < encoded.length(); i++) {
+      var value = Arrays.binarySearch(ALPHABET, encoded.charAt(i));
+      if (value < 0) {
+        return null;
+      }
+
+      buffer = (buffer << 5) | value;
+      bits += 5;
+
+      if (bits >= 8) {
+        out[index++] = (byte) (buffer >> (bits - 8));
+        bits -= 8;
+      }
+    }
+
+    return out;
+  }
+
+  public enum Status {
+    VALID, EXPIRED, INVALID
+  }
+
+  /**
+   * @param discordId 0 if the code is {@link Status#INVALID}
+   */
+  public record Verification(Status status, long discordId) {
+    static final Verification INVALID = new Verification(Status.INVALID, 0);
+  }
+}
@@ -1,173 +1,303 @@
 package ooo.foooooooooooo.velocitydiscord.util;
 
 import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.database.LinkStore;
+import ooo.foooooooooooo.velocitydiscord.database.VerificationWriter;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.Random;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 public class LinkManager {
-  private static final int CODE_EXPIRATION_SECONDS = 900; // 15 minutes
+  public static final int CODE_EXPIRATION_SECONDS = 900; // 15 minutes
+
+  private static volatile CodeMode codeMode = CodeMode.TABLE;
+  private static volatile LinkCodes linkCodes;
+  private static volatile LinkCache cache = new LinkCache(10000, 600);
+  private static int cacheSize = 10000;
+  private static int cacheTtl = 600;
+  private static volatile AttemptLimiter playerAttempts = new AttemptLimiter(5, 300_000, 60_000, 3_600_000);
+  private static volatile AttemptLimiter addressAttempts = new AttemptLimiter(20, 300_000, 60_000, 3_600_000);
+  private static AttemptSettings attemptSettings = null;
+
+  /**
+   * Applies the linking config, call on startup and after every config reload.
+   *
+   * @param dataDirectory The plugin data directory, used to persist a generated HMAC secret.
+   */
+  public static void configure(Path dataDirectory) {
+    CodeMode mode;
+    try {
+      mode = CodeMode.parse(VelocityDiscord.CONFIG.bot.LINK_CODE_MODE);
+    } catch (RuntimeException e) {
+      VelocityDiscord.LOGGER.error("{}, falling back to table link codes", e.getMessage());
+      mode = CodeMode.TABLE;
+    }
+
+    if (mode == CodeMode.HMAC) {
+      try {
+        var secret = LinkCodes.loadSecret(VelocityDiscord.CONFIG.bot.LINK_CODE_SECRET,
+          dataDirectory.resolve("link_secret.key")
+        );
+        linkCodes = new LinkCodes(secret, CODE_EXPIRATION_SECONDS);
+      } catch (IOException | IllegalArgumentException e) {
+        VelocityDiscord.LOGGER.error("Failed to load link code secret, falling back to table link codes: {}",
+          e.getMessage()
+        );
+        mode = CodeMode.TABLE;
+      }
+    }
+
+    codeMode = mode;
+    VelocityDiscord.LOGGER.info("Using {} link codes", mode.name().toLowerCase());
+
+    var size = Math.max(1, VelocityDiscord.CONFIG.bot.LINK_CACHE_SIZE);
+    var ttl = Math.max(1, VelocityDiscord.CONFIG.bot.LINK_CACHE_TTL_SECONDS);
+
+    // keep the warm cache across reloads unless its limits changed
+    if (size != cacheSize || ttl != cacheTtl) {
+      cacheSize = size;
+      cacheTtl = ttl;
+      cache = new LinkCache(size, ttl);
+    }
+
+    var bot = VelocityDiscord.CONFIG.bot;
+    var settings = new AttemptSettings(bot.LINK_MAX_ATTEMPTS,
+      bot.LINK_MAX_ATTEMPTS_PER_IP,
+      bot.LINK_ATTEMPT_WINDOW_SECONDS * 1000L,
+      bot.LINK_LOCKOUT_SECONDS * 1000L,
+      bot.LINK_MAX_LOCKOUT_SECONDS * 1000L
+    );
+
+    // same for the attempt limiters, so a reload doesn't lift lockouts
+    if (!settings.equals(attemptSettings)) {
+      attemptSettings = settings;
+      playerAttempts = new AttemptLimiter(settings.maxAttempts(),
+        settings.windowMillis(),
+        settings.lockoutMillis(),
+        settings.maxLockoutMillis()
+      );
+      addressAttempts = new AttemptLimiter(settings.maxAttemptsPerAddress(),
+        settings.windowMillis(),
+        settings.lockoutMillis(),
+        settings.maxLockoutMillis()
+      );
+    }
+  }
 
   /**
-   * Generates a random 6-digit code that isn’t already in use.
+   * Looks up the Discord ID linked to a Minecraft UUID, answering from the link cache when possible.
    *
-   * @return A CompletableFuture containing the unique 6-digit code.
+   * @param uuid The Minecraft player's UUID.
+   * @return A CompletableFuture containing the linked Discord ID, or an empty OptionalLong if not linked.
    */
-  public static CompletableFuture<String> generateRandomCode() {
-    return CompletableFuture.supplyAsync(() -> {
-      Random random = new Random();
-      String code;
-      boolean isUnique;
-      int attempts = 0;
-      final int maxAttempts = 10;
-
-      do {
-        if (attempts++ >= maxAttempts) {
-          throw new IllegalStateException("Failed to generate a unique code after " + maxAttempts +
-            " attempts. Fun fact for math nerds: this exception has a 1 in 10^29 chance of occurring " +
-            "if we have 1000 users. We have 900,000 potential link codes. If, somehow, miraculously, " +
-            "this code fails 10 times in a row to generate a unique 6-digit code, the user should be " +
-            "given a free rank and advised to play the lottery. Otherwise, this code is broken.");
-        }
-        int codeNum = 100000 + random.nextInt(900000); // Range: 100000 to 999999
-        code = String.valueOf(codeNum);
-        isUnique = true;
-
-        try (Connection conn = VelocityDiscord.getDatabaseManager().getConnection()) {
-          PreparedStatement ps = conn.prepareStatement(
-            "SELECT COUNT(*) FROM PendingLinks WHERE code = ?"
-          );
-          ps.setString(1, code);
-          ResultSet rs = ps.executeQuery();
-          if (rs.next() && rs.getInt(1) > 0) {
-            isUnique = false;
-          }
-        } catch (SQLException e) {
-          VelocityDiscord.LOGGER.error("Failed to check code uniqueness for {}: {}", code, e.getMessage());
-          throw new RuntimeException("Database error checking code uniqueness", e);
-        }
-      } while (!isUnique);
-
-      return code;
+  public static CompletableFuture<OptionalLong> getLinkedDiscordId(String uuid) {
+    var key = UUID.fromString(uuid);
+    var cached = cache.getDiscordId(key);
+
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    var links = cache;
+    var version = links.version();
+    return store().getDiscordId(key).thenApply(discordId -> {
+      links.putDiscordId(key, discordId, version);
+      return discordId;
     });
   }
 
   /**
-   * Stores a pending link code in the database associated with a Discord ID.
+   * Looks up every Minecraft UUID linked to a Discord ID, answering from the link cache when possible.
    *
    * @param discordId The Discord user ID.
-   * @param code      The generated link code.
+   * @return A CompletableFuture containing the linked UUIDs, empty if none are linked.
    */
-  public static CompletableFuture<Void> storeLinkCode(String discordId, String code) {
-    return CompletableFuture.runAsync(() -> {
-      try (Connection conn = VelocityDiscord.getDatabaseManager().getConnection()) {
-        PreparedStatement ps = conn.prepareStatement(
-          "INSERT INTO PendingLinks (discord_id, code, created_at) VALUES (?, ?, NOW()) " +
-            "ON DUPLICATE KEY UPDATE code = VALUES(code), created_at = NOW()"
-        );
-        ps.setString(1, discordId);
-        ps.setString(2, code);
-        ps.executeUpdate();
-        VelocityDiscord.LOGGER.debug("Stored link code {} for Discord ID {}", code, discordId);
-      } catch (SQLException e) {
-        VelocityDiscord.LOGGER.error("Failed to store link code for Discord ID {}: {}", discordId, e.getMessage());
-        throw new RuntimeException("Database error storing link code", e);
-      }
+  public static CompletableFuture<Set<UUID>> getLinkedUuids(long discordId) {
+    var cached = cache.getUuids(discordId);
+
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    var links = cache;
+    var version = links.version();
+    return store().getUuids(discordId).thenApply(uuids -> {
+      links.putUuids(discordId, uuids, version);
+      return uuids;
     });
   }
 
+  /**
+   * @return Hit and miss counts of the link cache, for diagnostics.
+   */
+  public static LinkCache.Stats getCacheStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Applies a change from the store's change log, usually one made by another proxy, to the local caches.
+   */
+  public static void applyChange(LinkStore.LinkChange change) {
+    switch (change.kind()) {
+      case LINKED -> onLinked(change.uuid(), change.discordId());
+      case UNLINKED -> {
+        onUnlinked(change.uuid(), change.discordId());
+        VelocityDiscord.getVerificationWriter().forget(change.discordId());
+      }
+      case VERIFIED -> VelocityDiscord.getVerificationWriter().remember(change.discordId());
+    }
+  }
+
+  /**
+   * Issues a link code for a Discord user, either stateless or stored in PendingLinks depending on the config.
+   *
+   * @param discordId The Discord user ID.
+   * @return A CompletableFuture containing the code the player has to enter in-game.
+   */
+  public static CompletableFuture<String> issueLinkCode(String discordId) {
+    if (codeMode == CodeMode.HMAC) {
+      return CompletableFuture.completedFuture(linkCodes.issue(Long.parseLong(discordId)));
+    }
+
+    return store().createPendingCode(Long.parseLong(discordId));
+  }
+
   /**
    * Validates a link code and links the Minecraft UUID to the Discord ID if valid.
+   * <p>
+   * Codes in the wrong format and attempts over the player's or address's limit are rejected before any lookup.
    *
-   * @param uuid The Minecraft player's UUID.
-   * @param code The code entered by the player.
+   * @param uuid    The Minecraft player's UUID.
+   * @param address The player's IP address, or null if unknown.
+   * @param code    The code entered by the player.
    * @return A CompletableFuture containing a LinkResult with the success status, Discord ID, and message.
    */
-  public static CompletableFuture<LinkResult> validateLinkingCode(String uuid, String code) {
-    return CompletableFuture.supplyAsync(() -> {
-      try (Connection conn = VelocityDiscord.getDatabaseManager().getConnection()) {
-        conn.setAutoCommit(false); // Start transaction
-        try {
-          // Check if the UUID is already linked
-          PreparedStatement checkLinkedPs = conn.prepareStatement(
-            "SELECT discord_id FROM LinkedAccounts WHERE uuid = ?"
-          );
-          checkLinkedPs.setString(1, uuid);
-          ResultSet linkedRs = checkLinkedPs.executeQuery();
-          if (linkedRs.next()) {
-            conn.rollback();
-            return new LinkResult(false, null, "Your account is already linked to a Discord account.");
-          }
-
-          // Check if the code exists, get the Discord ID, and check for expiration
-          PreparedStatement ps = conn.prepareStatement(
-            "SELECT discord_id FROM PendingLinks " +
-              "WHERE code = ? AND TIMESTAMPDIFF(SECOND, created_at, NOW()) <= ? LIMIT 1"
-          );
-          ps.setString(1, code);
-          ps.setInt(2, CODE_EXPIRATION_SECONDS);
-          ResultSet rs = ps.executeQuery();
-
-          if (rs.next()) {
-            String discordId = rs.getString("discord_id");
-
-            // Link the accounts in LinkedAccounts
-            PreparedStatement updatePs = conn.prepareStatement(
-              "INSERT INTO LinkedAccounts (uuid, discord_id) VALUES (?, ?) " +
-                "ON DUPLICATE KEY UPDATE discord_id = VALUES(discord_id)"
-            );
-            updatePs.setString(1, uuid);
-            updatePs.setString(2, discordId);
-            updatePs.executeUpdate();
-
-            // Remove the used code from PendingLinks
-            PreparedStatement deletePs = conn.prepareStatement(
-              "DELETE FROM PendingLinks WHERE code = ?"
-            );
-            deletePs.setString(1, code);
-            deletePs.executeUpdate();
-
-            conn.commit(); // Commit transaction
-            VelocityDiscord.LOGGER.info("Linked UUID {} to Discord ID {}", uuid, discordId);
-            return new LinkResult(true, discordId, "Successfully linked your account!");
-          } else {
-            // Check if the code exists but is expired
-            PreparedStatement checkPs = conn.prepareStatement(
-              "SELECT COUNT(*) FROM PendingLinks WHERE code = ?"
-            );
-            checkPs.setString(1, code);
-            ResultSet checkRs = checkPs.executeQuery();
-            if (checkRs.next() && checkRs.getInt(1) > 0) {
-              VelocityDiscord.LOGGER.debug("Link code {} has expired for UUID {}", code, uuid);
-              // Delete the expired code
-              PreparedStatement deletePs = conn.prepareStatement(
-                "DELETE FROM PendingLinks WHERE code = ?"
-              );
-              deletePs.setString(1, code);
-              deletePs.executeUpdate();
-              conn.commit();
-              return new LinkResult(false, null, "This code has expired. Please run !link in Discord to get a new code.");
-            }
-            conn.rollback();
-            return new LinkResult(false, null, "Invalid code. Please run !link in Discord to get a new code.");
-          }
-        } catch (SQLException e) {
-          conn.rollback();
-          VelocityDiscord.LOGGER.error("Failed to validate link code {} for UUID {}: {}", code, uuid, e.getMessage());
-          throw new RuntimeException("Database error validating link code", e);
-        } finally {
-          conn.setAutoCommit(true);
-        }
-      } catch (SQLException e) {
-        throw new RuntimeException("Database connection error", e);
+  public static CompletableFuture<LinkResult> validateLinkingCode(String uuid, @Nullable String address, String code) {
+    var trimmed = code.trim();
+    var mode = codeMode;
+
+    if (!isWellFormed(mode, trimmed)) {
+      return CompletableFuture.completedFuture(invalidCode());
+    }
+
+    var retryAfter = tryAttempt(uuid, address);
+    if (retryAfter > 0) {
+      var seconds = (retryAfter + 999) / 1000;
+      VelocityDiscord.LOGGER.debug("Rejected link attempt by {} ({}), locked out for {} more seconds", uuid, address, seconds);
+      return CompletableFuture.completedFuture(tooManyAttempts(seconds));
+    }
+
+    var result = mode == CodeMode.HMAC ? validateSignedCode(uuid, trimmed) : validateStoredCode(uuid, trimmed);
+
+    return result.thenApply(linkResult -> {
+      if (linkResult.success) playerAttempts.reset(uuid);
+      return linkResult;
+    });
+  }
+
+  /**
+   * Records a link attempt against both the player's and the address's limit, but only if neither is over it.
+   *
+   * @return 0 if the attempt may go ahead, otherwise the milliseconds until the player may try again
+   */
+  private static long tryAttempt(String uuid, @Nullable String address) {
+    var playerWait = playerAttempts.check(uuid);
+    var addressWait = address != null ? addressAttempts.check(address) : 0;
+
+    if (playerWait == 0 && addressWait == 0) {
+      playerAttempts.tryAcquire(uuid);
+      if (address != null) addressAttempts.tryAcquire(address);
+      return 0;
+    }
+
+    // only the limits that were hit lock out, the other one keeps its attempt
+    if (playerWait > 0) playerWait = playerAttempts.tryAcquire(uuid);
+    if (addressWait > 0) addressWait = addressAttempts.tryAcquire(address);
+
+    return Math.max(playerWait, addressWait);
+  }
+
+  private static boolean isWellFormed(CodeMode mode, String code) {
+    if (mode == CodeMode.HMAC) {
+      return LinkCodes.isWellFormed(code);
+    }
+
+    // table codes are 100000 to 999999
+    if (code.length() != 6 || code.charAt(0) == '0') return false;
+
+    for (var i = 0; i < code.length(); i++) {
+      if (code.charAt(i) < '0' || code.charAt(i) > '9') return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Consumes a code stored in PendingLinks and links the accounts in one store call.
+   */
+  private static CompletableFuture<LinkResult> validateStoredCode(String uuid, String code) {
+    var key = UUID.fromString(uuid);
+    var cached = cache.getDiscordId(key);
+    if (cached != null && cached.isPresent()) {
+      return CompletableFuture.completedFuture(alreadyLinked());
+    }
+
+    return store().consumePendingCode(key, code, CODE_EXPIRATION_SECONDS).thenApply(result -> switch (result.status()) {
+      case LINKED -> linked(key, result.discordId());
+      case ALREADY_LINKED -> alreadyLinked();
+      case EXPIRED -> {
+        VelocityDiscord.LOGGER.debug("Link code {} has expired for UUID {}", code, uuid);
+        yield new LinkResult(false, null, "This code has expired. " + newCodeHint());
       }
+      case INVALID -> invalidCode();
     });
   }
 
+  /**
+   * Validates a stateless link code and links the accounts in one store call, which also marks the code as used.
+   */
+  private static CompletableFuture<LinkResult> validateSignedCode(String uuid, String code) {
+    var verification = linkCodes.verify(code);
+
+    switch (verification.status()) {
+      case INVALID -> {
+        return CompletableFuture.completedFuture(invalidCode());
+      }
+      case EXPIRED -> {
+        return CompletableFuture.completedFuture(
+          new LinkResult(false, null, "This code has expired. " + newCodeHint())
+        );
+      }
+    }
+
+    var key = UUID.fromString(uuid);
+    var cached = cache.getDiscordId(key);
+    if (cached != null && cached.isPresent()) {
+      return CompletableFuture.completedFuture(alreadyLinked());
+    }
+
+    return store().consumeSignedCode(key, verification.discordId(), LinkCodes.normalize(code))
+      .thenApply(result -> switch (result.status()) {
+        case LINKED -> linked(key, result.discordId());
+        case ALREADY_LINKED -> alreadyLinked();
+        case EXPIRED, INVALID -> invalidCode();
+      });
+  }
+
+  private static LinkResult linked(UUID uuid, long discordId) {
+    onLinked(uuid, discordId);
+    VelocityDiscord.LOGGER.info("Linked UUID {} to Discord ID {}", uuid, discordId);
+    return new LinkResult(true, String.valueOf(discordId), "Successfully linked your account!");
+  }
+
   /**
    * Checks if a Minecraft UUID is already linked to a Discord ID.
    *
@@ -175,45 +305,17 @@ public class LinkManager {
    * @return A CompletableFuture containing true if the UUID is already linked, false otherwise.
    */
   public static CompletableFuture<Boolean> isAlreadyLinked(String uuid) {
-    return CompletableFuture.supplyAsync(() -> {
-      try (Connection conn = VelocityDiscord.getDatabaseManager().getConnection()) {
-        PreparedStatement ps = conn.prepareStatement(
-          "SELECT COUNT(*) FROM LinkedAccounts WHERE uuid = ?"
-        );
-        ps.setString(1, uuid);
-        ResultSet rs = ps.executeQuery();
-        if (rs.next()) {
-          return rs.getInt(1) > 0;
-        }
-        return false;
-      } catch (SQLException e) {
-        VelocityDiscord.LOGGER.error("Failed to check if UUID {} is linked: {}", uuid, e.getMessage());
-        throw new RuntimeException("Database error checking linked status", e);
-      }
-    });
+    return getLinkedDiscordId(uuid).thenApply(OptionalLong::isPresent);
   }
 
   /**
-   * Marks a Discord user as verified in the database.
+   * Marks a Discord user as verified in the database, writes are batched by the {@link VerificationWriter}.
    *
    * @param discordId The Discord user ID to mark as verified.
-   * @return A CompletableFuture that completes when the user is marked as verified.
+   * @return A CompletableFuture that completes when the write containing this user is committed.
    */
   public static CompletableFuture<Void> markUserAsVerified(String discordId) {
-    return CompletableFuture.runAsync(() -> {
-      try (Connection conn = VelocityDiscord.getDatabaseManager().getConnection()) {
-        PreparedStatement ps = conn.prepareStatement(
-          "INSERT INTO VerifiedUsers (discord_id, verified) VALUES (?, ?) ON DUPLICATE KEY UPDATE verified = 1"
-        );
-        ps.setString(1, discordId);
-        ps.setInt(2, 1);
-        ps.executeUpdate();
-        VelocityDiscord.LOGGER.info("Marked Discord user {} as verified", discordId);
-      } catch (SQLException e) {
-        VelocityDiscord.LOGGER.error("Failed to mark Discord user {} as verified: {}", discordId, e.getMessage());
-        throw new RuntimeException("Database error marking user as verified", e);
-      }
-    });
+    return VelocityDiscord.getVerificationWriter().submit(Long.parseLong(discordId));
   }
   /**
    * Unlinks a Minecraft UUID from a Discord ID.
@@ -222,54 +324,88 @@ public class LinkManager {
    * @return A CompletableFuture containing an UnlinkResult with the success status, Discord ID, and message.
    */
   public static CompletableFuture<UnlinkResult> unlinkAccount(String uuid) {
-    return CompletableFuture.supplyAsync(() -> {
-      try (Connection conn = VelocityDiscord.getDatabaseManager().getConnection()) {
-        conn.setAutoCommit(false); // Start transaction
-        try {
-          // Check if the UUID is linked and get the Discord ID
-          PreparedStatement selectPs = conn.prepareStatement(
-            "SELECT discord_id FROM LinkedAccounts WHERE uuid = ?"
-          );
-          selectPs.setString(1, uuid);
-          ResultSet rs = selectPs.executeQuery();
-
-          if (!rs.next()) {
-            conn.rollback();
-            return new UnlinkResult(false, null, "Your account is not linked to a Discord account.");
-          }
-
-          String discordId = rs.getString("discord_id");
-
-          // Remove the link from LinkedAccounts
-          PreparedStatement deleteLinkPs = conn.prepareStatement(
-            "DELETE FROM LinkedAccounts WHERE uuid = ?"
-          );
-          deleteLinkPs.setString(1, uuid);
-          deleteLinkPs.executeUpdate();
-
-          // Remove from VerifiedUsers (optional, depending on your requirements)
-          PreparedStatement deleteVerifiedPs = conn.prepareStatement(
-            "DELETE FROM VerifiedUsers WHERE discord_id = ?"
-          );
-          deleteVerifiedPs.setString(1, discordId);
-          deleteVerifiedPs.executeUpdate();
-
-          conn.commit(); // Commit transaction
-          VelocityDiscord.LOGGER.info("Unlinked UUID {} from Discord ID {}", uuid, discordId);
-          return new UnlinkResult(true, discordId, "Successfully unlinked your account!");
-        } catch (SQLException e) {
-          conn.rollback();
-          VelocityDiscord.LOGGER.error("Failed to unlink UUID {}: {}", uuid, e.getMessage());
-          throw new RuntimeException("Database error unlinking account", e);
-        } finally {
-          conn.setAutoCommit(true);
-        }
-      } catch (SQLException e) {
-        throw new RuntimeException("Database connection error", e);
+    var key = UUID.fromString(uuid);
+    var cached = cache.getDiscordId(key);
+
+    if (cached != null && cached.isEmpty()) {
+      return CompletableFuture.completedFuture(notLinked());
+    }
+
+    var links = cache;
+    var version = links.version();
+    return store().unlink(key).thenApply(unlinked -> {
+      if (unlinked.isEmpty()) {
+        links.putDiscordId(key, OptionalLong.empty(), version);
+        return notLinked();
       }
+
+      var discordId = unlinked.getAsLong();
+      onUnlinked(key, discordId);
+      VelocityDiscord.getVerificationWriter().forget(discordId);
+      VelocityDiscord.LOGGER.info("Unlinked UUID {} from Discord ID {}", uuid, discordId);
+      return new UnlinkResult(true, String.valueOf(discordId), "Successfully unlinked your account!");
     });
   }
 
+  /**
+   * Turns a failed link operation into a message for the user, with specific wording when the database is busy.
+   *
+   * @param throwable The failure, possibly wrapped in a CompletionException.
+   * @param fallback  The message to use for any other failure.
+   */
+  public static String describeFailure(Throwable throwable, String fallback) {
+    var cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+
+    if (cause instanceof RejectedExecutionException) {
+      return "The server is busy right now, please try again in a moment.";
+    }
+
+    if (cause instanceof TimeoutException) {
+      return "The server took too long to respond, please try again in a moment.";
+    }
+
+    return fallback;
+  }
+
+  private static void onLinked(UUID uuid, long discordId) {
+    cache.onLinked(uuid, discordId);
+  }
+
+  private static void onUnlinked(UUID uuid, long discordId) {
+    cache.onUnlinked(uuid, discordId);
+  }
+
+  private static LinkResult invalidCode() {
+    return new LinkResult(false, null, "Invalid code. " + newCodeHint());
+  }
+
+  private static LinkResult tooManyAttempts(long seconds) {
+    return new LinkResult(false, null, "Too many attempts. Please wait " + seconds + " seconds before trying again.");
+  }
+
+  private static String newCodeHint() {
+    var command = VelocityDiscord.CONFIG.bot.linkCommand.DISCORD_LINK_ENABLED ? "/link" : "!link";
+    return "Please run " + command + " in Discord to get a new code.";
+  }
+
+  private static LinkResult alreadyLinked() {
+    return new LinkResult(false, null, "Your account is already linked to a Discord account.");
+  }
+
+  private static UnlinkResult notLinked() {
+    return new UnlinkResult(false, null, "Your account is not linked to a Discord account.");
+  }
+
+  private static LinkStore store() {
+    return VelocityDiscord.getLinkStore();
+  }
+
+  private record AttemptSettings(int maxAttempts,
+                                 int maxAttemptsPerAddress,
+                                 long windowMillis,
+                                 long lockoutMillis,
+                                 long maxLockoutMillis) {}
+
   /**
    * Result of a linking operation.
    */
@@ -299,4 +435,22 @@ public class LinkManager {
       this.message = message;
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * How link codes are issued and validated.
+   */
+  public enum CodeMode {
+    /** Random 6-digit codes stored in PendingLinks */
+    TABLE,
+    /** HMAC-signed codes that carry the Discord ID, nothing is stored until the link itself */
+    HMAC;
+
+    public static CodeMode parse(String value) {
+      return switch (value.toLowerCase()) {
+        case "hmac" -> HMAC;
+        case "table", "" -> TABLE;
+        default -> throw new RuntimeException("Invalid link code mode: " + value);
+      };
+    }
+  }
+}
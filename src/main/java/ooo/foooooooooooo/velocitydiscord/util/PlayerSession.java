@@ -0,0 +1,81 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What the discord bridge needs to know about an online player, worked out once instead of on every event.
+ * <p>
+ * The webhook avatar and names are rendered from the config when first needed and again after a reload, the prefix
+ * follows LuckPerms recalculations.
+ */
+@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+public class PlayerSession {
+  private final UUID uuid;
+  private final String uuidString;
+  private final String username;
+
+  // server name -> webhook username
+  private final Map<String, String> webhookNames = new ConcurrentHashMap<>();
+
+  private volatile String avatarUrl;
+  private volatile Optional<String> prefix;
+
+  PlayerSession(UUID uuid, String username, Optional<String> prefix) {
+    this.uuid = uuid;
+    this.uuidString = uuid.toString();
+    this.username = username;
+    this.prefix = prefix;
+    this.avatarUrl = renderAvatarUrl();
+  }
+
+  public UUID getUuid() {
+    return this.uuid;
+  }
+
+  public String getUuidString() {
+    return this.uuidString;
+  }
+
+  public String getUsername() {
+    return this.username;
+  }
+
+  public String getAvatarUrl() {
+    return this.avatarUrl;
+  }
+
+  /**
+   * @return The name webhook messages from this player are sent with when they are on {@code server}
+   */
+  public String getWebhookName(String server) {
+    return this.webhookNames.computeIfAbsent(server, name -> new StringTemplate(VelocityDiscord.CONFIG.bot.WEBHOOK_USERNAME)
+      .add("username", this.username)
+      .add("server", VelocityDiscord.CONFIG.serverName(name))
+      .toString());
+  }
+
+  public Optional<String> getPrefix() {
+    return this.prefix;
+  }
+
+  public void setPrefix(Optional<String> prefix) {
+    this.prefix = prefix;
+  }
+
+  void onConfigReload() {
+    this.avatarUrl = renderAvatarUrl();
+    this.webhookNames.clear();
+  }
+
+  private String renderAvatarUrl() {
+    return new StringTemplate(VelocityDiscord.CONFIG.bot.WEBHOOK_AVATAR_URL)
+      .add("username", this.username)
+      .add("uuid", this.uuidString)
+      .toString();
+  }
+}
@@ -0,0 +1,65 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import com.velocitypowered.api.proxy.Player;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link PlayerSession} of every online player, opened at post login and closed at disconnect.
+ */
+public class PlayerSessions {
+  private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+
+  /**
+   * Opens the session of a player who just logged in.
+   */
+  public PlayerSession open(Player player) {
+    var session = create(player);
+    this.sessions.put(session.getUuid(), session);
+    return session;
+  }
+
+  /**
+   * @return The session of {@code player}, or a short-lived one if none is open, e.g. for an event that raced the
+   * login
+   */
+  public PlayerSession get(Player player) {
+    var session = this.sessions.get(player.getUniqueId());
+    return session != null ? session : create(player);
+  }
+
+  @Nullable
+  public PlayerSession get(UUID uuid) {
+    return this.sessions.get(uuid);
+  }
+
+  /**
+   * Closes the session of a player who disconnected.
+   *
+   * @return The closed session, so the leave message can still use it
+   */
+  public PlayerSession close(Player player) {
+    var session = this.sessions.remove(player.getUniqueId());
+    return session != null ? session : create(player);
+  }
+
+  public int size() {
+    return this.sessions.size();
+  }
+
+  public void onConfigReload() {
+    this.sessions.values().forEach(PlayerSession::onConfigReload);
+  }
+
+  private static PlayerSession create(Player player) {
+    var luckPerms = VelocityDiscord.getLuckPerms();
+    Optional<String> prefix = luckPerms != null ? luckPerms.getPrefix(player.getUniqueId()) : Optional.empty();
+
+    return new PlayerSession(player.getUniqueId(), player.getUsername(), prefix);
+  }
+}
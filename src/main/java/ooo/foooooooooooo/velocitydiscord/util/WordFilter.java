@@ -0,0 +1,330 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import java.util.*;
+
+/**
+ * Finds blocked words and phrases in chat, compiled once into an Aho-Corasick automaton so a message is matched in a
+ * single pass however many terms the list holds.
+ * <p>
+ * Both the terms and the text are normalized before matching: lowercase, common leetspeak folded to letters
+ * ({@code $1ur} matches {@code slur}), and invisible characters such as zero width spaces and combining marks dropped.
+ * Terms match whole words only, a {@code *} at the start or end of a term also matches it inside longer words on that
+ * side, e.g. {@code slur*} matches {@code slurs}.
+ */
+public final class WordFilter {
+  public static final WordFilter EMPTY = compile(List.of());
+
+  private static final char WILDCARD = '*';
+  private static final int ROOT = 0;
+
+  // node -> its edges, sorted by character: edgeChar/edgeTarget[edgeStart[node] until edgeStart[node + 1]]
+  private final int[] edgeStart;
+  private final char[] edgeChar;
+  private final int[] edgeTarget;
+  // node -> longest proper suffix that is also a node
+  private final int[] fail;
+  // node -> term ending there, or -1
+  private final int[] termAt;
+  // node -> nearest suffix node where a term ends, or 0 for none
+  private final int[] outputLink;
+
+  private final String[] terms;
+  private final int[] termLength;
+  private final boolean[] matchInsideLeft;
+  private final boolean[] matchInsideRight;
+
+  private WordFilter(Builder builder) {
+    var nodes = builder.children.size();
+
+    this.edgeStart = new int[nodes + 1];
+    var edges = 0;
+    for (var i = 0; i < nodes; i++) {
+      this.edgeStart[i] = edges;
+      edges += builder.children.get(i).size();
+    }
+    this.edgeStart[nodes] = edges;
+
+    this.edgeChar = new char[edges];
+    this.edgeTarget = new int[edges];
+    for (var i = 0; i < nodes; i++) {
+      var edge = this.edgeStart[i];
+      for (var entry : new TreeMap<>(builder.children.get(i)).entrySet()) {
+        this.edgeChar[edge] = entry.getKey();
+        this.edgeTarget[edge] = entry.getValue();
+        edge++;
+      }
+    }
+
+    this.termAt = new int[nodes];
+    for (var i = 0; i < nodes; i++) this.termAt[i] = builder.termAt.get(i);
+
+    this.terms = builder.terms.toArray(String[]::new);
+    this.termLength = new int[this.terms.length];
+    this.matchInsideLeft = new boolean[this.terms.length];
+    this.matchInsideRight = new boolean[this.terms.length];
+    for (var i = 0; i < this.terms.length; i++) {
+      this.termLength[i] = builder.termLength.get(i);
+      this.matchInsideLeft[i] = builder.matchInsideLeft.get(i);
+      this.matchInsideRight[i] = builder.matchInsideRight.get(i);
+    }
+
+    this.fail = new int[nodes];
+    this.outputLink = new int[nodes];
+    linkSuffixes();
+  }
+
+  /**
+   * @param terms Words or phrases to block, blank ones are ignored
+   */
+  public static WordFilter compile(Collection<String> terms) {
+    var builder = new Builder();
+    for (var term : terms) builder.add(term);
+    return new WordFilter(builder);
+  }
+
+  public boolean isEmpty() {
+    return this.terms.length == 0;
+  }
+
+  /**
+   * @return The number of distinct terms
+   */
+  public int size() {
+    return this.terms.length;
+  }
+
+  /**
+   * @return The blocked terms in {@code text}, by position in the text and in the order they end
+   */
+  public List<Match> find(String text) {
+    if (isEmpty() || text.isEmpty()) return List.of();
+
+    var length = text.length();
+    // where each character of the normalized text is in the original
+    var positions = new int[length];
+    var count = 0;
+
+    // candidates are checked for word boundaries once the character after them is known
+    var candidates = new ArrayList<int[]>();
+    var state = ROOT;
+
+    for (var i = 0; i < length; i++) {
+      var c = normalize(text.charAt(i));
+      if (c == 0) continue;
+
+      positions[count] = i;
+      count++;
+
+      state = step(state, c);
+
+      var output = this.termAt[state] >= 0 ? state : this.outputLink[state];
+      while (output != ROOT) {
+        var term = this.termAt[output];
+        candidates.add(new int[] {count - this.termLength[term], count, term});
+        output = this.outputLink[output];
+      }
+    }
+
+    if (candidates.isEmpty()) return List.of();
+
+    var matches = new ArrayList<Match>();
+    for (var candidate : candidates) {
+      var start = candidate[0];
+      var end = candidate[1];
+      var term = candidate[2];
+
+      // boundaries are judged on the original text, so "word!" still ends at the "!"
+      if (!this.matchInsideLeft[term] && start > 0 && isWordChar(text.charAt(positions[start - 1]))) continue;
+      if (!this.matchInsideRight[term] && end < count && isWordChar(text.charAt(positions[end]))) continue;
+
+      matches.add(new Match(positions[start], positions[end - 1] + 1, this.terms[term]));
+    }
+
+    return matches;
+  }
+
+  /**
+   * @return {@code text} with every character of the matches replaced by {@code *}
+   */
+  public static String mask(String text, List<Match> matches) {
+    return mask(text, matches, "*");
+  }
+
+  /**
+   * @return {@code text} with every character of the matches replaced by {@code mask}
+   */
+  public static String mask(String text, List<Match> matches, String mask) {
+    if (matches.isEmpty()) return text;
+
+    // matches can overlap
+    var masked = new boolean[text.length()];
+    for (var match : matches) {
+      Arrays.fill(masked, match.start(), match.end(), true);
+    }
+
+    var out = new StringBuilder(text.length() + 16);
+    for (var i = 0; i < text.length(); i++) {
+      if (masked[i]) {
+        out.append(mask);
+      } else {
+        out.append(text.charAt(i));
+      }
+    }
+
+    return out.toString();
+  }
+
+  /**
+   * @return The character matched in place of {@code c}, or 0 if it is skipped
+   */
+  static char normalize(char c) {
+    var type = Character.getType(c);
+    // zero width spaces, joiners, soft hyphens and combining marks don't show, or not on their own
+    if (type == Character.FORMAT || type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK) {
+      return 0;
+    }
+
+    return switch (c) {
+      case '0' -> 'o';
+      // 1, l, I, ! and | all pass for one another
+      case '1', 'l', 'L', '!', '|' -> 'i';
+      case '3' -> 'e';
+      case '4', '@' -> 'a';
+      case '5', '$' -> 's';
+      case '7', '+' -> 't';
+      case '8' -> 'b';
+      case '9' -> 'g';
+      default -> Character.toLowerCase(c);
+    };
+  }
+
+  private static boolean isWordChar(char c) {
+    return Character.isLetterOrDigit(c);
+  }
+
+  private int step(int state, char c) {
+    while (true) {
+      var next = edge(state, c);
+      if (next >= 0) return next;
+      if (state == ROOT) return ROOT;
+      state = this.fail[state];
+    }
+  }
+
+  private int edge(int node, char c) {
+    var low = this.edgeStart[node];
+    var high = this.edgeStart[node + 1] - 1;
+
+    while (low <= high) {
+      var mid = (low + high) >>> 1;
+      var midChar = this.edgeChar[mid];
+
+      if (midChar < c) {
+        low = mid + 1;
+      } else if (midChar > c) {
+        high = mid - 1;
+      } else {
+        return this.edgeTarget[mid];
+      }
+    }
+
+    return -1;
+  }
+
+  private void linkSuffixes() {
+    var queue = new ArrayDeque<Integer>();
+    queue.add(ROOT);
+
+    while (!queue.isEmpty()) {
+      int node = queue.poll();
+
+      for (var edge = this.edgeStart[node]; edge < this.edgeStart[node + 1]; edge++) {
+        var c = this.edgeChar[edge];
+        var child = this.edgeTarget[edge];
+
+        if (node == ROOT) {
+          this.fail[child] = ROOT;
+        } else {
+          this.fail[child] = step(this.fail[node], c);
+        }
+
+        var suffix = this.fail[child];
+        this.outputLink[child] = this.termAt[suffix] >= 0 ? suffix : this.outputLink[suffix];
+
+        queue.add(child);
+      }
+    }
+  }
+
+  /**
+   * A blocked term found in a text.
+   *
+   * @param start Index of the first character in the original text
+   * @param end   Index after the last character in the original text
+   * @param term  The term as written in the list
+   */
+  public record Match(int start, int end, String term) {}
+
+  private static final class Builder {
+    private final List<Map<Character, Integer>> children = new ArrayList<>();
+    private final List<Integer> termAt = new ArrayList<>();
+
+    private final List<String> terms = new ArrayList<>();
+    private final List<Integer> termLength = new ArrayList<>();
+    private final List<Boolean> matchInsideLeft = new ArrayList<>();
+    private final List<Boolean> matchInsideRight = new ArrayList<>();
+
+    private Builder() {
+      addNode();
+    }
+
+    private void add(String term) {
+      var trimmed = term.strip();
+
+      var insideLeft = !trimmed.isEmpty() && trimmed.charAt(0) == WILDCARD;
+      if (insideLeft) trimmed = trimmed.substring(1);
+
+      var insideRight = !trimmed.isEmpty() && trimmed.charAt(trimmed.length() - 1) == WILDCARD;
+      if (insideRight) trimmed = trimmed.substring(0, trimmed.length() - 1);
+
+      var node = ROOT;
+      var length = 0;
+
+      for (var i = 0; i < trimmed.length(); i++) {
+        var c = normalize(trimmed.charAt(i));
+        if (c == 0) continue;
+
+        var next = this.children.get(node).get(c);
+        if (next == null) {
+          next = addNode();
+          this.children.get(node).put(c, next);
+        }
+
+        node = next;
+        length++;
+      }
+
+      if (length == 0) return;
+
+      var existing = this.termAt.get(node);
+      if (existing >= 0) {
+        // the same term listed twice, e.g. "word" and "word*", matches as loosely as either
+        this.matchInsideLeft.set(existing, this.matchInsideLeft.get(existing) || insideLeft);
+        this.matchInsideRight.set(existing, this.matchInsideRight.get(existing) || insideRight);
+        return;
+      }
+
+      this.termAt.set(node, this.terms.size());
+      this.terms.add(trimmed);
+      this.termLength.add(length);
+      this.matchInsideLeft.add(insideLeft);
+      this.matchInsideRight.add(insideRight);
+    }
+
+    private int addNode() {
+      this.children.add(new HashMap<>(4));
+      this.termAt.add(-1);
+      return this.children.size() - 1;
+    }
+  }
+}
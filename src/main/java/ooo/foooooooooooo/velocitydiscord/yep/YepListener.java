@@ -14,29 +14,21 @@ public class YepListener {
   public void onYepAdvancement(YepAdvancementEvent event) {
     if (VelocityDiscord.CONFIG.serverDisabled(event.getSource().getServer().getServerInfo().getName())) return;
 
-    var uuid = event.getPlayer().getUniqueId().toString();
+    var session = VelocityDiscord.getSessions().get(event.getPlayer());
     var server = event.getSource().getServer().getServerInfo().getName();
 
     VelocityDiscord
       .getDiscord()
-      .onPlayerAdvancement(event.getUsername(),
-        uuid,
-        event.getDisplayName(),
-        server,
-        event.getTitle(),
-        event.getDescription()
-      );
+      .onPlayerAdvancement(session, server, event.getDisplayName(), event.getTitle(), event.getDescription());
   }
 
   @Subscribe
   public void onYepDeath(YepDeathEvent event) {
     if (VelocityDiscord.CONFIG.serverDisabled(event.getSource().getServer().getServerInfo().getName())) return;
 
-    var uuid = event.getPlayer().getUniqueId().toString();
+    var session = VelocityDiscord.getSessions().get(event.getPlayer());
     var server = event.getSource().getServer().getServerInfo().getName();
 
-    VelocityDiscord
-      .getDiscord()
-      .onPlayerDeath(event.getUsername(), uuid, server, event.getDisplayName(), event.getMessage());
+    VelocityDiscord.getDiscord().onPlayerDeath(session, server, event.getDisplayName(), event.getMessage());
   }
 }
@@ -0,0 +1,38 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatabaseExecutorTests {
+  private DatabaseExecutor executor;
+
+  @AfterEach
+  void tearDown() {
+    this.executor.shutdown();
+  }
+
+  @Test
+  void zeroTimeoutWaitsForTheCall() throws InterruptedException {
+    this.executor = new DatabaseExecutor(1, 10, 0);
+
+    var started = new CountDownLatch(1);
+    var release = new CompletableFuture<Void>();
+    var call = this.executor.supply(() -> {
+      started.countDown();
+      return release.thenApply(v -> "done").join();
+    });
+
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    Thread.sleep(50);
+    assertFalse(call.isDone());
+
+    release.complete(null);
+    assertEquals("done", call.orTimeout(5, TimeUnit.SECONDS).join());
+  }
+}
@@ -0,0 +1,53 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeferredLinkStoreTests {
+  private static final UUID PLAYER = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+  private static final long DISCORD_ID = 1234567890123456789L;
+
+  @Test
+  void callsWaitForStoreToOpen(@TempDir Path directory) throws IOException {
+    var opening = new CompletableFuture<LinkStore>();
+    var deferred = new DeferredLinkStore(opening);
+
+    var linked = deferred.consumeSignedCode(PLAYER, DISCORD_ID, "CODE");
+    var lookup = linked.thenCompose(ok -> deferred.getDiscordId(PLAYER));
+
+    assertFalse(linked.isDone());
+    assertEquals("starting", deferred.name());
+
+    var file = directory.resolve(FileLinkStore.FILE_NAME);
+    var store = new FileLinkStore(file, System::currentTimeMillis, new DatabaseExecutor(1, 100, 10_000));
+    opening.complete(store);
+
+    assertEquals(LinkStore.ConsumeStatus.LINKED, linked.join().status());
+    assertEquals(OptionalLong.of(DISCORD_ID), lookup.join());
+    assertSame(store, deferred.getNow());
+
+    deferred.close();
+  }
+
+  @Test
+  void callsFailWhenStoreFailsToOpen() {
+    var opening = new CompletableFuture<LinkStore>();
+    var deferred = new DeferredLinkStore(opening);
+
+    var lookup = deferred.getDiscordId(PLAYER);
+    opening.completeExceptionally(new RuntimeException("Cannot initialize database manager"));
+
+    assertThrows(CompletionException.class, lookup::join);
+    assertNull(deferred.getNow());
+    assertEquals("unavailable", deferred.name());
+  }
+}
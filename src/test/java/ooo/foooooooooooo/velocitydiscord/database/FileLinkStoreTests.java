@@ -0,0 +1,173 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileLinkStoreTests {
+  private static final UUID PLAYER = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+  private static final long DISCORD_ID = 1234567890123456789L;
+
+  private final AtomicLong now = new AtomicLong(1_760_000_000_000L);
+
+  @TempDir
+  Path directory;
+
+  private Path file;
+  private FileLinkStore store;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    this.file = this.directory.resolve(FileLinkStore.FILE_NAME);
+    this.store = open();
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.store.close();
+  }
+
+  @Test
+  void pendingCodeLinksAccount() {
+    var code = this.store.createPendingCode(DISCORD_ID).join();
+
+    var result = this.store.consumePendingCode(PLAYER, code, 900).join();
+
+    assertEquals(LinkStore.ConsumeResult.linked(DISCORD_ID), result);
+    assertEquals(OptionalLong.of(DISCORD_ID), this.store.getDiscordId(PLAYER).join());
+    assertEquals(Set.of(PLAYER), this.store.getUuids(DISCORD_ID).join());
+    assertEquals(LinkStore.ConsumeResult.INVALID, this.store.consumePendingCode(PLAYER, code, 900).join());
+  }
+
+  @Test
+  void expiredCodeIsRejectedAndRemoved() {
+    var code = this.store.createPendingCode(DISCORD_ID).join();
+    this.now.addAndGet(901_000);
+
+    assertEquals(LinkStore.ConsumeResult.EXPIRED, this.store.consumePendingCode(PLAYER, code, 900).join());
+    assertEquals(LinkStore.ConsumeResult.INVALID, this.store.consumePendingCode(PLAYER, code, 900).join());
+  }
+
+  @Test
+  void signedCodeLinksOnce() {
+    var other = UUID.randomUUID();
+    var linked = LinkStore.ConsumeResult.linked(DISCORD_ID);
+
+    assertEquals(linked, this.store.consumeSignedCode(PLAYER, DISCORD_ID, "A").join());
+    assertEquals(LinkStore.ConsumeResult.INVALID, this.store.consumeSignedCode(other, DISCORD_ID, "A").join());
+
+    // a code rejected because the UUID is already linked stays usable
+    assertEquals(LinkStore.ConsumeResult.ALREADY_LINKED, this.store.consumeSignedCode(PLAYER, DISCORD_ID, "B").join());
+    assertEquals(linked, this.store.consumeSignedCode(other, DISCORD_ID, "B").join());
+  }
+
+  @Test
+  void usedCodesAreKeptUntilPurged() throws IOException {
+    this.store.consumeSignedCode(PLAYER, DISCORD_ID, "A").join();
+    this.store.close();
+
+    this.store = open();
+    assertEquals(LinkStore.ConsumeResult.INVALID,
+      this.store.consumeSignedCode(UUID.randomUUID(), DISCORD_ID, "A").join()
+    );
+
+    this.now.addAndGet(901_000);
+    assertEquals(1, this.store.purgeExpiredCodes(900, 10).join());
+    assertEquals(LinkStore.ConsumeStatus.LINKED,
+      this.store.consumeSignedCode(UUID.randomUUID(), DISCORD_ID, "A").join().status()
+    );
+  }
+
+  @Test
+  void unlinkRemovesLinkAndVerifiedFlag() {
+    link(PLAYER, DISCORD_ID);
+    this.store.markVerified(List.of(DISCORD_ID)).join();
+
+    assertEquals(OptionalLong.of(DISCORD_ID), this.store.unlink(PLAYER).join());
+    assertEquals(OptionalLong.empty(), this.store.getDiscordId(PLAYER).join());
+    assertFalse(this.store.isVerified(DISCORD_ID));
+    assertEquals(OptionalLong.empty(), this.store.unlink(PLAYER).join());
+  }
+
+  @Test
+  void stateSurvivesReopen() throws IOException {
+    link(PLAYER, DISCORD_ID);
+    this.store.markVerified(List.of(DISCORD_ID)).join();
+    var code = this.store.createPendingCode(DISCORD_ID + 1).join();
+    this.store.close();
+
+    this.store = open();
+
+    assertEquals(OptionalLong.of(DISCORD_ID), this.store.getDiscordId(PLAYER).join());
+    assertTrue(this.store.isVerified(DISCORD_ID));
+    assertEquals(LinkStore.ConsumeStatus.LINKED,
+      this.store.consumePendingCode(UUID.randomUUID(), code, 900).join().status()
+    );
+  }
+
+  @Test
+  void partialLastLineIsSkipped() throws IOException {
+    link(PLAYER, DISCORD_ID);
+    this.store.close();
+    Files.writeString(this.file, "L 069a79f4", StandardOpenOption.APPEND);
+
+    this.store = open();
+    this.store.markVerified(List.of(DISCORD_ID)).join();
+    this.store.close();
+
+    this.store = open();
+    assertEquals(1, this.store.getSkippedLines());
+    assertEquals(OptionalLong.of(DISCORD_ID), this.store.getDiscordId(PLAYER).join());
+    assertTrue(this.store.isVerified(DISCORD_ID));
+  }
+
+  @Test
+  void logIsCompacted() throws IOException {
+    for (var i = 0; i < 2000; i++) {
+      link(PLAYER, DISCORD_ID);
+      this.store.unlink(PLAYER).join();
+    }
+    link(PLAYER, DISCORD_ID);
+
+    assertTrue(Files.readAllLines(this.file).size() < 2000);
+
+    this.store.close();
+    this.store = open();
+    assertEquals(OptionalLong.of(DISCORD_ID), this.store.getDiscordId(PLAYER).join());
+  }
+
+  @Test
+  void purgeRemovesOnlyExpiredCodes() {
+    this.store.createPendingCode(1).join();
+    this.store.createPendingCode(2).join();
+    this.now.addAndGet(901_000);
+    var fresh = this.store.createPendingCode(3).join();
+
+    assertEquals(1, this.store.purgeExpiredCodes(900, 1).join());
+    assertEquals(1, this.store.purgeExpiredCodes(900, 10).join());
+    assertEquals(0, this.store.purgeExpiredCodes(900, 10).join());
+    assertEquals(LinkStore.ConsumeStatus.LINKED, this.store.consumePendingCode(PLAYER, fresh, 900).join().status());
+  }
+
+  private void link(UUID uuid, long discordId) {
+    var code = this.store.createPendingCode(discordId).join();
+    assertEquals(LinkStore.ConsumeStatus.LINKED, this.store.consumePendingCode(uuid, code, 900).join().status());
+  }
+
+  private FileLinkStore open() throws IOException {
+    return new FileLinkStore(this.file, this.now::get, new DatabaseExecutor(1, 100, 10_000));
+  }
+}
@@ -0,0 +1,41 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTests {
+  @Test
+  void emptySnapshotIsZero() {
+    var snapshot = new LatencyHistogram().snapshot();
+
+    assertEquals(0, snapshot.count());
+    assertEquals(0, snapshot.p99Micros());
+  }
+
+  @Test
+  void percentilesAreBucketUpperBounds() {
+    var histogram = new LatencyHistogram();
+
+    for (var i = 0; i < 99; i++) {
+      histogram.record(1_500_000); // 1.5 ms
+    }
+    histogram.record(300_000_000); // 300 ms
+
+    var snapshot = histogram.snapshot();
+
+    assertEquals(100, snapshot.count());
+    assertEquals(2048, snapshot.p50Micros());
+    assertEquals(2048, snapshot.p99Micros());
+    assertEquals(300_000, snapshot.maxMicros());
+    assertEquals((99 * 1500 + 300_000) / 100, snapshot.meanMicros());
+  }
+
+  @Test
+  void percentileNeverExceedsMax() {
+    var histogram = new LatencyHistogram();
+    histogram.record(1_100_000);
+
+    assertEquals(1100, histogram.snapshot().p50Micros());
+  }
+}
@@ -0,0 +1,177 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinkChangeFeedTests {
+  private static final UUID PLAYER = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+  private static final UUID OTHER_PLAYER = UUID.fromString("853c80ef-3c37-49fd-aa49-938b674adae6");
+  private static final long DISCORD_ID = 1234567890123456789L;
+  private static final long GAP_TIMEOUT = 20_000;
+
+  private final AtomicLong now = new AtomicLong(1_760_000_000_000L);
+  private final List<LinkStore.LinkChange> seen = new ArrayList<>();
+
+  @TempDir
+  Path directory;
+
+  private FileLinkStore store;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    var file = this.directory.resolve(FileLinkStore.FILE_NAME);
+    this.store = new FileLinkStore(file, this.now::get, new DatabaseExecutor(1, 100, 10_000));
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.store.close();
+  }
+
+  @Test
+  void startsAfterExistingChanges() {
+    this.store.consumeSignedCode(PLAYER, DISCORD_ID, "CODE").join();
+
+    var feed = new LinkChangeFeed(this.store, this.seen::add, GAP_TIMEOUT, this.now::get);
+    feed.run();
+    feed.run();
+
+    assertTrue(this.seen.isEmpty());
+    assertEquals(1, feed.getCursor());
+  }
+
+  @Test
+  void appliesChangesInOrder() {
+    var feed = new LinkChangeFeed(this.store, this.seen::add, GAP_TIMEOUT, this.now::get);
+    feed.run();
+
+    this.store.consumeSignedCode(PLAYER, DISCORD_ID, "CODE").join();
+    this.store.markVerified(List.of(DISCORD_ID)).join();
+    this.store.unlink(PLAYER).join();
+    feed.run();
+
+    assertEquals(List.of(
+      new LinkStore.LinkChange(1, LinkStore.ChangeKind.LINKED, PLAYER, DISCORD_ID),
+      new LinkStore.LinkChange(2, LinkStore.ChangeKind.VERIFIED, null, DISCORD_ID),
+      new LinkStore.LinkChange(3, LinkStore.ChangeKind.UNLINKED, PLAYER, DISCORD_ID)
+    ), this.seen);
+    assertEquals(3, feed.getCursor());
+
+    feed.run();
+    assertEquals(3, this.seen.size());
+  }
+
+  @Test
+  void verifyingTwiceIsOneChange() {
+    var feed = new LinkChangeFeed(this.store, this.seen::add, GAP_TIMEOUT, this.now::get);
+    feed.run();
+
+    this.store.markVerified(List.of(DISCORD_ID)).join();
+    this.store.markVerified(List.of(DISCORD_ID)).join();
+    feed.run();
+
+    assertEquals(List.of(new LinkStore.LinkChange(1, LinkStore.ChangeKind.VERIFIED, null, DISCORD_ID)), this.seen);
+  }
+
+  @Test
+  void gapHoldsCursorUntilTimeout() {
+    var changes = new ArrayList<LinkStore.LinkChange>();
+    changes.add(new LinkStore.LinkChange(1, LinkStore.ChangeKind.LINKED, PLAYER, DISCORD_ID));
+    // change 2 is still uncommitted
+    changes.add(new LinkStore.LinkChange(3, LinkStore.ChangeKind.LINKED, OTHER_PLAYER, DISCORD_ID));
+    var reads = new ArrayList<Long>();
+
+    var log = changeLog(changes, reads);
+
+    var feed = new LinkChangeFeed(log, this.seen::add, GAP_TIMEOUT, this.now::get);
+    feed.run();
+    feed.run();
+    feed.run();
+
+    assertEquals(1, feed.getCursor());
+    assertEquals(List.of(1L, 3L), ids(this.seen));
+    // later changes aren't read again while the gap is open
+    assertEquals(List.of(1L, 3L), reads);
+
+    // the gap fills and only the change that filled it is applied
+    changes.add(1, new LinkStore.LinkChange(2, LinkStore.ChangeKind.UNLINKED, PLAYER, DISCORD_ID));
+    feed.run();
+
+    assertEquals(3, feed.getCursor());
+    assertEquals(List.of(1L, 3L, 2L), ids(this.seen));
+
+    // a gap that never fills is skipped once it is older than the longest transaction
+    changes.add(new LinkStore.LinkChange(5, LinkStore.ChangeKind.VERIFIED, null, DISCORD_ID));
+    feed.run();
+    assertEquals(3, feed.getCursor());
+    assertEquals(4, this.seen.size());
+
+    this.now.addAndGet(GAP_TIMEOUT);
+    feed.run();
+    assertEquals(5, feed.getCursor());
+    assertEquals(4, this.seen.size());
+  }
+
+  @Test
+  void gapsWithoutTimeoutUseDefault() {
+    var changes = new ArrayList<LinkStore.LinkChange>();
+    changes.add(new LinkStore.LinkChange(2, LinkStore.ChangeKind.LINKED, PLAYER, DISCORD_ID));
+
+    // no query timeout, gaps are still given up on eventually
+    var feed = new LinkChangeFeed(changeLog(changes, new ArrayList<>()), this.seen::add, 0, this.now::get);
+    feed.run();
+    feed.run();
+    assertEquals(0, feed.getCursor());
+
+    this.now.addAndGet(LinkChangeFeed.DEFAULT_GAP_TIMEOUT_MILLIS - 1);
+    feed.run();
+    assertEquals(0, feed.getCursor());
+
+    this.now.incrementAndGet();
+    feed.run();
+    assertEquals(2, feed.getCursor());
+  }
+
+  /**
+   * A change log serving {@code changes} as they are, with IDs that may skip uncommitted changes.
+   */
+  private static LinkStore changeLog(List<LinkStore.LinkChange> changes, List<Long> reads) {
+    return new DeferredLinkStore(new CompletableFuture<>()) {
+      @Override
+      public CompletableFuture<Long> getLatestChangeId() {
+        return CompletableFuture.completedFuture(0L);
+      }
+
+      @Override
+      public CompletableFuture<List<LinkChange>> getChanges(long afterId, int limit) {
+        var result = changes.stream().filter(c -> c.id() > afterId).toList();
+        result.forEach(c -> reads.add(c.id()));
+        return CompletableFuture.completedFuture(result);
+      }
+
+      @Override
+      public CompletableFuture<List<LinkChange>> getChanges(Collection<Long> ids) {
+        var result = changes.stream().filter(c -> ids.contains(c.id())).toList();
+        result.forEach(c -> reads.add(c.id()));
+        return CompletableFuture.completedFuture(result);
+      }
+    };
+  }
+
+  private static List<Long> ids(List<LinkStore.LinkChange> changes) {
+    return changes.stream().map(LinkStore.LinkChange::id).toList();
+  }
+}
@@ -0,0 +1,37 @@
+package ooo.foooooooooooo.velocitydiscord.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VerificationWriterTests {
+  // never opens, so writes stay pending and nothing reaches a database
+  private final LinkStore store = new DeferredLinkStore(new CompletableFuture<>());
+
+  @Test
+  void knownUsersAreSkipped() {
+    var writer = new VerificationWriter(this.store, 100, 60_000, 2);
+
+    writer.remember(1);
+    assertTrue(writer.submit(1).isDone());
+
+    writer.forget(1);
+    assertFalse(writer.submit(1).isDone());
+  }
+
+  @Test
+  void knownUsersAreBounded() {
+    var writer = new VerificationWriter(this.store, 100, 60_000, 2);
+
+    writer.remember(1);
+    writer.remember(2);
+    writer.remember(3);
+
+    // the first user verified is the first forgotten
+    assertFalse(writer.submit(1).isDone());
+    assertTrue(writer.submit(2).isDone());
+    assertTrue(writer.submit(3).isDone());
+  }
+}
@@ -0,0 +1,94 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmojiTranslatorTests {
+  private static final String JOY = "😂";
+  private static final String HEART = "❤️";
+  private static final String THUMBS_UP = "👍";
+  private static final String SKIN_TONE_2 = "🏼";
+  private static final String FLAG_DE = "🇩🇪";
+  private static final String RAINBOW_FLAG = "🏳️‍🌈";
+  private static final String TRANSGENDER_FLAG = "🏳️‍⚧️";
+  private static final String WOMAN_TECHNOLOGIST_TONE_3 = "👩🏽‍💻";
+  private static final String FAMILY = "👨‍👩‍👧‍👦";
+  private static final String KEYCAP_ONE = "1️⃣";
+  private static final String ENGLAND = "🏴󠁧󠁢󠁥󠁮󠁧󠁿";
+
+  private EmojiTranslator emojis;
+
+  @BeforeEach
+  void setUp() {
+    this.emojis = EmojiTranslator.load();
+  }
+
+  @Test
+  void loadsTable() {
+    assertTrue(this.emojis.size() > 1000);
+  }
+
+  @Test
+  void translatesToMinecraft() {
+    assertEquals("lol :joy:", this.emojis.toMinecraft("lol " + JOY));
+    assertEquals(":heart: :heart:", this.emojis.toMinecraft(HEART + " ❤"));
+    assertEquals(":thumbsup_tone2:", this.emojis.toMinecraft(THUMBS_UP + SKIN_TONE_2));
+    assertEquals("a :skin-tone-2:", this.emojis.toMinecraft("a " + SKIN_TONE_2));
+    assertEquals(":flag_de:", this.emojis.toMinecraft(FLAG_DE));
+    assertEquals(":rainbow_flag:!", this.emojis.toMinecraft(RAINBOW_FLAG + "!"));
+  }
+
+  @Test
+  void translatesWholeSequences() {
+    assertEquals(":transgender_flag:", this.emojis.toMinecraft(TRANSGENDER_FLAG));
+    assertEquals(":woman_technologist_tone3:", this.emojis.toMinecraft(WOMAN_TECHNOLOGIST_TONE_3));
+    assertEquals(":family_mwgb:", this.emojis.toMinecraft(FAMILY));
+    assertEquals("#1 :one:", this.emojis.toMinecraft("#1 " + KEYCAP_ONE));
+    assertEquals(":one:", this.emojis.toMinecraft("1⃣"));
+    assertEquals(":england:", this.emojis.toMinecraft(ENGLAND));
+  }
+
+  @Test
+  void dropsStraySelectorsAndJoiners() {
+    assertEquals("ab", this.emojis.toMinecraft("a‍️b"));
+    assertEquals("ab", this.emojis.toMinecraft("a⃣b"));
+    // tags without the flag they belong to
+    assertEquals("ab", this.emojis.toMinecraft("a" + ENGLAND.substring(2) + "b"));
+  }
+
+  @Test
+  void leavesTextSymbolsAndPictographs() {
+    var text = "© ↔ 🖯";
+    assertSame(text, this.emojis.toMinecraft(text));
+  }
+
+  @Test
+  void returnsPlainTextAsIs() {
+    var text = "no emoji here: :joy: stays";
+    assertSame(text, this.emojis.toMinecraft(text));
+  }
+
+  @Test
+  void translatesShortcodesToDiscord() {
+    var index = this.emojis.index(null);
+
+    assertEquals(JOY, index.apply("joy"));
+    assertEquals(JOY, index.apply("JOY"));
+    assertEquals(THUMBS_UP, index.apply("+1"));
+    assertEquals(FLAG_DE, index.apply("flag_de"));
+    assertNull(index.apply("not_an_emoji"));
+    assertNull(index.apply("flag_d1"));
+  }
+
+  @Test
+  void roundTrips() {
+    var index = this.emojis.index(null);
+
+    for (var emoji : new String[] {JOY, HEART, FLAG_DE, RAINBOW_FLAG, WOMAN_TECHNOLOGIST_TONE_3, KEYCAP_ONE, ENGLAND}) {
+      var shortcode = this.emojis.toMinecraft(emoji);
+      assertEquals(emoji, index.apply(shortcode.substring(1, shortcode.length() - 1)));
+    }
+  }
+}
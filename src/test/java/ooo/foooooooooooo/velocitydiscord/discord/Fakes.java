@@ -0,0 +1,30 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Stand-ins for JDA and Velocity interfaces, whose entities can't be created without a connection.
+ * <p>
+ * Only the methods given by name are implemented, calling any other one fails the test.
+ */
+final class Fakes {
+  private Fakes() {}
+
+  static <T> T of(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+    var fake = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+      var implementation = methods.get(method.getName());
+      if (implementation != null) return implementation.apply(args);
+
+      return switch (method.getName()) {
+        case "equals" -> proxy == args[0];
+        case "hashCode" -> System.identityHashCode(proxy);
+        case "toString" -> type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+        default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+      };
+    });
+
+    return type.cast(fake);
+  }
+}
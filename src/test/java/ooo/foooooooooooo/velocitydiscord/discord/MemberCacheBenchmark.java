@@ -0,0 +1,95 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Estimate of what the full and lean member cache hold on the heap, run with {@code ./gradlew benchmark}.
+ * <p>
+ * This is an estimate, not a measurement of JDA. Its entities can't be created without a gateway connection, so nothing
+ * here runs the chunking filter, {@code MemberCachePolicy.lru} or the disabled cache flags. Each member is modelled by
+ * what JDA keeps for it (IDs, names, avatar hash, join time and role IDs), and the result follows from the number of
+ * members each mode keeps. Compare heap dumps of a running bot in each mode for real numbers.
+ */
+@Tag("benchmark")
+public class MemberCacheBenchmark {
+  private static final int GUILD_MEMBERS = 100_000;
+  private static final int LEAN_CACHE_SIZE = 5000;
+
+  @Test
+  void estimatedHeapOfFullAndLeanCache() {
+    var full = measure(() -> {
+      var members = new HashMap<Long, SimulatedMember>();
+      for (var i = 0; i < GUILD_MEMBERS; i++) members.put((long) i, SimulatedMember.of(i));
+      return members;
+    });
+
+    var lean = measure(() -> {
+      var members = new LinkedHashMap<Long, SimulatedMember>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SimulatedMember> eldest) {
+          return size() > LEAN_CACHE_SIZE;
+        }
+      };
+      // every member is seen once, as if the whole guild chatted
+      for (var i = 0; i < GUILD_MEMBERS; i++) members.put((long) i, SimulatedMember.of(i));
+      return members;
+    });
+
+    System.out.printf("%d members, estimated: full cache %.1f MB, lean cache (%d) %.1f MB%n",
+      GUILD_MEMBERS,
+      full / 1048576.0,
+      LEAN_CACHE_SIZE,
+      lean / 1048576.0
+    );
+  }
+
+  private static long measure(Supplier<Object> build) {
+    var before = usedHeap();
+    var retained = build.get();
+    var after = usedHeap();
+
+    // keep the cache reachable until it has been measured
+    Reference.reachabilityFence(retained);
+
+    return after - before;
+  }
+
+  private static long usedHeap() {
+    var runtime = Runtime.getRuntime();
+    for (var i = 0; i < 3; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private record SimulatedMember(long id,
+                                 String username,
+                                 String globalName,
+                                 String nickname,
+                                 String avatarHash,
+                                 long joinedAt,
+                                 long[] roleIds) {
+    static SimulatedMember of(int i) {
+      return new SimulatedMember(100_000_000_000_000_000L + i,
+        "member_" + i,
+        "Member " + i,
+        i % 4 == 0 ? "Nick " + i : null,
+        Long.toHexString(i * 2654435761L) + "a1b2c3d4e5f6a7b8",
+        1_600_000_000_000L + i,
+        new long[]{1L, 2L, (long) i % 17}
+      );
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemberSnapshotTests {
+  @TempDir
+  Path directory;
+
+  private Path file;
+
+  @BeforeEach
+  void setUp() {
+    this.file = this.directory.resolve(MemberSnapshot.FILE_NAME);
+  }
+
+  @Test
+  void roundTrips() throws IOException {
+    var snapshot = new MemberSnapshot(Map.of(
+      10L, new MemberSnapshot.Channel(1L, List.of(
+        new MemberSnapshot.Member(100L, "alice", "Alice ✨", 5L),
+        new MemberSnapshot.Member(101L, "bob", "bob", 0L)
+      )),
+      11L, new MemberSnapshot.Channel(1L, List.of())
+    ));
+
+    snapshot.save(this.file);
+
+    var loaded = MemberSnapshot.load(this.file);
+    assertEquals(snapshot.getChannels(), loaded.getChannels());
+    assertEquals(2, loaded.getMemberCount());
+    assertFalse(Files.exists(this.file.resolveSibling(MemberSnapshot.FILE_NAME + ".tmp")));
+  }
+
+  @Test
+  void rejectsDamagedFiles() throws IOException {
+
+    Files.write(this.file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    assertThrows(IOException.class, () -> MemberSnapshot.load(this.file));
+
+    new MemberSnapshot(Map.of(10L, new MemberSnapshot.Channel(1L, List.of(
+      new MemberSnapshot.Member(100L, "alice", "alice", 0L)
+    )))).save(this.file);
+    var bytes = Files.readAllBytes(this.file);
+    Files.write(this.file, Arrays.copyOf(bytes, bytes.length - 4));
+    assertThrows(IOException.class, () -> MemberSnapshot.load(this.file));
+  }
+
+  @Test
+  void savesOverLoadedFile() throws IOException {
+    var alice = new MemberSnapshot.Member(100L, "alice", "alice", 0L);
+    new MemberSnapshot(Map.of(10L, new MemberSnapshot.Channel(1L, List.of(alice)))).save(this.file);
+
+    MemberSnapshot.load(this.file);
+
+    var bob = new MemberSnapshot.Member(101L, "bob", "bob", 0L);
+    new MemberSnapshot(Map.of(10L, new MemberSnapshot.Channel(1L, List.of(bob)))).save(this.file);
+    assertEquals(List.of(bob), MemberSnapshot.load(this.file).getChannels().get(10L).members());
+  }
+
+  @Test
+  void mergeKeepsMembersMissingFromPartialSnapshot() {
+    var alice = new MemberSnapshot.Member(100L, "alice", "alice", 0L);
+    var bob = new MemberSnapshot.Member(101L, "bob", "bob", 0L);
+    var renamed = new MemberSnapshot.Member(101L, "bob", "Bobby", 0L);
+
+    var saved = new MemberSnapshot(Map.of(
+      10L, new MemberSnapshot.Channel(1L, List.of(alice, bob)),
+      11L, new MemberSnapshot.Channel(1L, List.of(alice))
+    ));
+    var partial = new MemberSnapshot(Map.of(10L, new MemberSnapshot.Channel(1L, List.of(renamed))));
+
+    var merged = saved.mergedWith(partial, 10);
+
+    // most recently seen first
+    assertEquals(List.of(renamed, alice), merged.getChannels().get(10L).members());
+    // no longer bridged
+    assertFalse(merged.getChannels().containsKey(11L));
+  }
+
+  @Test
+  void mergeIsBoundedByCacheSize() {
+    var alice = new MemberSnapshot.Member(100L, "alice", "alice", 0L);
+    var bob = new MemberSnapshot.Member(101L, "bob", "bob", 0L);
+    var carol = new MemberSnapshot.Member(102L, "carol", "carol", 0L);
+
+    var saved = new MemberSnapshot(Map.of(10L, new MemberSnapshot.Channel(1L, List.of(alice, bob))));
+    var partial = new MemberSnapshot(Map.of(10L, new MemberSnapshot.Channel(1L, List.of(carol))));
+
+    // the member seen longest ago goes first
+    assertEquals(List.of(carol, alice), saved.mergedWith(partial, 2).getChannels().get(10L).members());
+  }
+
+  @Test
+  void departedMembersAreDropped() {
+    var alice = new MemberSnapshot.Member(100L, "alice", "alice", 0L);
+    var bob = new MemberSnapshot.Member(101L, "bob", "bob", 0L);
+
+    var saved = new MemberSnapshot(Map.of(
+      10L, new MemberSnapshot.Channel(1L, List.of(alice, bob)),
+      20L, new MemberSnapshot.Channel(2L, List.of(alice))
+    ));
+
+    var without = saved.withoutMember(1L, 100L);
+
+    assertEquals(List.of(bob), without.getChannels().get(10L).members());
+    // still in the other guild
+    assertEquals(List.of(alice), without.getChannels().get(20L).members());
+  }
+
+  @Test
+  void snapshotWithoutMembersIsEmpty() {
+    assertTrue(new MemberSnapshot(Map.of(10L, new MemberSnapshot.Channel(1L, List.of()))).isEmpty());
+  }
+}
@@ -0,0 +1,134 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import com.velocitypowered.api.proxy.Player;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MentionCompletionsTests {
+  private static final long GUILD_ID = 1;
+  private static final long CHANNEL_ID = 10;
+  private static final String SERVER = "lobby";
+
+  private final Guild guild = Fakes.of(Guild.class, Map.of("getIdLong", args -> GUILD_ID));
+  private final List<Member> members = new ArrayList<>();
+  private final TextChannel channel = Fakes.of(TextChannel.class, Map.of(
+    "getIdLong", args -> CHANNEL_ID,
+    "getGuild", args -> this.guild,
+    "getMembers", args -> List.copyOf(this.members)
+  ));
+
+  private MentionCompletions completions;
+
+  @BeforeEach
+  void setUp() {
+    for (var name : List.of("alice", "bob", "carol")) {
+      this.members.add(member(name));
+    }
+
+    this.completions = new MentionCompletions();
+  }
+
+  @Test
+  void listsAreLimited() {
+    this.completions.rebuild(Map.of(SERVER, this.channel), 2);
+
+    var player = new FakePlayer();
+    this.completions.onServerConnected(player.player, SERVER);
+    assertEquals(Set.of("@alice", "@bob"), player.completions);
+
+    // a full list takes no more names
+    var dave = member("dave");
+    this.members.add(dave);
+    this.completions.onMemberUpdated(dave);
+
+    assertEquals(Set.of("@alice", "@bob"), player.completions);
+    assertEquals(2, this.completions.size());
+  }
+
+  @Test
+  void freedSlotsAreFilled() {
+    this.completions.rebuild(Map.of(SERVER, this.channel), 2);
+
+    var player = new FakePlayer();
+    this.completions.onServerConnected(player.player, SERVER);
+
+    this.members.remove(0);
+    this.completions.onMemberRemoved(GUILD_ID, "alice");
+
+    assertEquals(Set.of("@bob", "@carol"), player.completions);
+    assertEquals(2, this.completions.size());
+  }
+
+  @Test
+  void disconnectedPlayersGetNothing() {
+    this.completions.rebuild(Map.of(SERVER, this.channel), 0);
+
+    // connected before the bot was ready and left before the queued completions were sent
+    var player = new FakePlayer();
+    player.active.set(false);
+    this.completions.onServerConnected(player.player, SERVER);
+
+    var dave = member("dave");
+    this.members.add(dave);
+    this.completions.onMemberUpdated(dave);
+
+    assertTrue(player.completions.isEmpty());
+    assertEquals(0, player.updates);
+  }
+
+  @Test
+  void disconnectStopsUpdates() {
+    this.completions.rebuild(Map.of(SERVER, this.channel), 0);
+
+    var player = new FakePlayer();
+    this.completions.onServerConnected(player.player, SERVER);
+    this.completions.onPlayerDisconnected(player.uuid);
+
+    var updates = player.updates;
+    this.completions.onMemberRemoved(GUILD_ID, "alice");
+
+    assertEquals(updates, player.updates);
+  }
+
+  private Member member(String name) {
+    var user = Fakes.of(User.class, Map.of("getName", args -> name));
+
+    return Fakes.of(Member.class, Map.of(
+      "getUser", args -> user,
+      "getGuild", args -> this.guild,
+      "hasAccess", args -> true
+    ));
+  }
+
+  private static final class FakePlayer {
+    private final UUID uuid = UUID.randomUUID();
+    private final AtomicBoolean active = new AtomicBoolean(true);
+    private final Set<String> completions = new HashSet<>();
+    private int updates = 0;
+
+    @SuppressWarnings("unchecked")
+    private final Player player = Fakes.of(Player.class, Map.of(
+      "getUniqueId", args -> this.uuid,
+      "isActive", args -> this.active.get(),
+      "addCustomChatCompletions", args -> {
+        this.completions.addAll((Collection<String>) args[0]);
+        this.updates++;
+        return null;
+      },
+      "removeCustomChatCompletions", args -> {
+        this.completions.removeAll((Collection<String>) args[0]);
+        this.updates++;
+        return null;
+      }
+    ));
+  }
+}
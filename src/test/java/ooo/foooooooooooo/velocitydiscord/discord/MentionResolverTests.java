@@ -0,0 +1,24 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MentionResolverTests {
+  @Test
+  void findsDistinctNames() {
+    var names = MentionResolver.names("hi @Alice and @bob.smith, @alice again @x");
+
+    assertEquals(List.of("alice", "bob.smith"), List.copyOf(names));
+    assertTrue(MentionResolver.names("no mentions here").isEmpty());
+  }
+
+  @Test
+  void trailingPeriodsAreNotPartOfTheName() {
+    var names = MentionResolver.names("thanks @alice. and @bob.smith... and @x.");
+
+    assertEquals(List.of("alice", "bob.smith"), List.copyOf(names));
+  }
+}
@@ -0,0 +1,89 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link OutboundSanitizer} with the chain of regex passes it replaced, run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class OutboundSanitizerBenchmark {
+  private static final Pattern EveryoneAndHerePattern = Pattern.compile("@(?<ping>everyone|here)");
+  private static final Pattern RawPingPattern = Pattern.compile("<@(?<ping>[!&]?\\d+)>");
+  private static final Pattern MentionPattern = Pattern.compile("@([A-Za-z0-9_.]{2,32})");
+
+  private static final String[] MESSAGES = {
+    "hello everyone",
+    "gg",
+    "anyone want to go to the nether? meet at spawn",
+    "@alice did you see that, @bob.smith was there too",
+    "lol <@123456789012345678> @everyone @here",
+    "trading 64 diamonds for an elytra, msg me if interested, i'm at the market near the big tree",
+  };
+
+  private static final int WARMUP = 200_000;
+  private static final int ROUNDS = 1_000_000;
+
+  private static final Map<String, String> MENTIONS = Map.of("alice", "<@1>", "bob.smith", "<@2>");
+
+  @Test
+  void sanitizerAgainstRegexChain() {
+    Function<String, String> chain = OutboundSanitizerBenchmark::regexChain;
+    Function<String, String> sanitizer =
+      message -> OutboundSanitizer.sanitize(message, MENTIONS::get, null, false, false);
+
+    run(chain, WARMUP);
+    run(sanitizer, WARMUP);
+
+    var chainNanos = run(chain, ROUNDS);
+    var sanitizerNanos = run(sanitizer, ROUNDS);
+
+    System.out.printf("regex chain %.0f ns/message, sanitizer %.0f ns/message%n",
+      chainNanos / (double) ROUNDS,
+      sanitizerNanos / (double) ROUNDS
+    );
+  }
+
+  private static long run(Function<String, String> sanitize, int rounds) {
+    var length = 0L;
+    var start = System.nanoTime();
+
+    for (var i = 0; i < rounds; i++) {
+      length += sanitize.apply(MESSAGES[i % MESSAGES.length]).length();
+    }
+
+    var elapsed = System.nanoTime() - start;
+    // use the results so the work isn't optimized away
+    if (length == 0) throw new AssertionError();
+    return elapsed;
+  }
+
+  // raw pings, then mentions, then @everyone and @here, as chat was sent before
+  private static String regexChain(String message) {
+    message = RawPingPattern.matcher(message).replaceAll("<@\u200B${ping}>");
+
+    var names = new LinkedHashSet<String>();
+    var matcher = MentionPattern.matcher(message);
+    while (matcher.find()) names.add(matcher.group(1).toLowerCase(Locale.ROOT));
+
+    var mentions = new HashMap<String, String>();
+    for (var name : names) {
+      var mention = MENTIONS.get(name);
+      if (mention != null) mentions.put(name, mention);
+    }
+
+    if (!mentions.isEmpty()) {
+      message = MentionPattern.matcher(message).replaceAll(match -> {
+        var mention = mentions.get(match.group(1).toLowerCase(Locale.ROOT));
+        return Matcher.quoteReplacement(mention != null ? mention : match.group());
+      });
+    }
+
+    return EveryoneAndHerePattern.matcher(message).replaceAll("@\u200B${ping}");
+  }
+}
@@ -0,0 +1,68 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutboundSanitizerTests {
+  private static final String ZWSP = "\u200B";
+
+  @Test
+  void breaksRawPings() {
+    assertEquals("hi <@" + ZWSP + "123> <@" + ZWSP + "!45> <@" + ZWSP + "&6>",
+      OutboundSanitizer.sanitize("hi <@123> <@!45> <@&6>", null, null, false, false));
+    assertEquals("<@abc> <@> <@12", OutboundSanitizer.sanitize("<@abc> <@> <@12", null, null, false, false));
+  }
+
+  @Test
+  void breaksEveryoneAndHereUnlessAllowed() {
+    assertEquals("@" + ZWSP + "everyone @" + ZWSP + "here @herald",
+      OutboundSanitizer.sanitize("@everyone @here @herald", null, null, false, false));
+    assertEquals("@everyone @here", OutboundSanitizer.sanitize("@everyone @here", null, null, true, false));
+  }
+
+  @Test
+  void resolvesOnlyKnownNames() {
+    var mentions = Map.of("alice", "<@1>", "here", "<@2>");
+
+    assertEquals("hi <@1> and <@1>, @carol",
+      OutboundSanitizer.sanitize("hi @Alice and @alice, @carol", mentions::get, null, false, false));
+    assertEquals("<@1>$1", OutboundSanitizer.sanitize("@alice$1", mentions::get, null, false, false));
+    // a member called "here" is mentioned rather than broken
+    assertEquals("<@2>", OutboundSanitizer.sanitize("@here", mentions::get, null, false, false));
+    // resolved mentions aren't treated as raw pings
+    assertEquals("<@1> <@" + ZWSP + "1>", OutboundSanitizer.sanitize("@alice <@1>", mentions::get, null, false, false));
+  }
+
+  @Test
+  void trailingPeriodsEndTheName() {
+    var mentions = Map.of("alice", "<@1>", "bob.smith", "<@2>");
+
+    assertEquals("thanks <@1>. and <@2>...",
+      OutboundSanitizer.sanitize("thanks @alice. and @bob.smith...", mentions::get, null, false, false));
+  }
+
+  @Test
+  void escapesMarkdown() {
+    assertEquals("\\*bold\\* \\_a\\_ \\~\\~s\\~\\~ \\`c\\` \\|\\|x\\|\\| \\\\ a > b - c # d",
+      OutboundSanitizer.sanitize("*bold* _a_ ~~s~~ `c` ||x|| \\ a > b - c # d", null, null, false, true));
+    assertEquals("\\> quote\n\\# header\n\\- item",
+      OutboundSanitizer.sanitize("> quote\n# header\n- item", null, null, false, true));
+    assertEquals("*bold*", OutboundSanitizer.sanitize("*bold*", null, null, false, false));
+  }
+
+  @Test
+  void translatesShortcodes() {
+    var emoji = Map.of("joy", "J", "pepe", "<:pepe:1>");
+
+    assertEquals(
+      "lol J at 12:30<:pepe:1>",
+      OutboundSanitizer.sanitize("lol :joy: at 12:30:pepe:", null, emoji::get, false, false)
+    );
+    assertEquals(":nope: :joy", OutboundSanitizer.sanitize(":nope: :joy", null, emoji::get, false, false));
+    // the emoji itself is never escaped
+    assertEquals("<:pepe:1> \\_", OutboundSanitizer.sanitize(":pepe: _", null, emoji::get, false, true));
+  }
+}
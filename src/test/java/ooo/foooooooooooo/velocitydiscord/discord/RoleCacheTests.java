@@ -0,0 +1,66 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Role;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoleCacheTests {
+  private static final long GUILD_ID = 1;
+  private static final long ROLE_ID = 100;
+
+  private final AtomicInteger lookups = new AtomicInteger();
+  private final Guild guild = Fakes.of(Guild.class, Map.of("getIdLong", args -> GUILD_ID));
+  private final Role role = Fakes.of(Role.class, Map.of(
+    "getIdLong", args -> ROLE_ID,
+    "getGuild", args -> this.guild
+  ));
+  private final JDA jda = Fakes.of(JDA.class, Map.of("getRoleById", args -> {
+    this.lookups.incrementAndGet();
+    // JDA parses the ID itself
+    return Long.parseLong((String) args[0]) == ROLE_ID ? this.role : null;
+  }));
+
+  private final RoleCache cache = new RoleCache();
+
+  @Test
+  void remembersRoles() {
+    assertSame(this.role, this.cache.get(this.jda, String.valueOf(ROLE_ID)));
+    assertSame(this.role, this.cache.get(this.jda, String.valueOf(ROLE_ID)));
+
+    assertEquals(1, this.lookups.get());
+  }
+
+  @Test
+  void unknownRolesAreNull() {
+    assertNull(this.cache.get(this.jda, ""));
+    assertNull(this.cache.get(this.jda, null));
+    assertNull(this.cache.get(this.jda, "not a role"));
+    assertNull(this.cache.get(this.jda, "200"));
+
+    // unknown IDs aren't remembered, the role may be created later
+    assertNull(this.cache.get(this.jda, "200"));
+    assertEquals(3, this.lookups.get());
+  }
+
+  @Test
+  void forgetsDeletedRolesAndLeftGuilds() {
+    this.cache.get(this.jda, String.valueOf(ROLE_ID));
+    this.cache.onRoleDeleted(ROLE_ID);
+    this.cache.get(this.jda, String.valueOf(ROLE_ID));
+    assertEquals(2, this.lookups.get());
+
+    this.cache.onGuildLeft(GUILD_ID + 1);
+    this.cache.get(this.jda, String.valueOf(ROLE_ID));
+    assertEquals(2, this.lookups.get());
+
+    this.cache.onGuildLeft(GUILD_ID);
+    this.cache.get(this.jda, String.valueOf(ROLE_ID));
+    assertEquals(3, this.lookups.get());
+  }
+}
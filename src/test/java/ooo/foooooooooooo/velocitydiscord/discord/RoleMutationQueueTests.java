@@ -0,0 +1,118 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.requests.restaction.AuditableRestAction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoleMutationQueueTests {
+  private static final long USER_ID = 42;
+
+  // "+1" for adding role 1, "-1" for removing it
+  private final List<String> sent = new ArrayList<>();
+  // the first request waits for this, so changes can be queued behind it
+  private final CompletableFuture<Void> firstRequest = new CompletableFuture<>();
+
+  private final Guild guild = Fakes.of(Guild.class, Map.of(
+    "addRoleToMember", args -> request("+", (Role) args[1]),
+    "removeRoleFromMember", args -> request("-", (Role) args[1])
+  ));
+
+  private final RoleMutationQueue queue = new RoleMutationQueue(0);
+
+  @AfterEach
+  void tearDown() {
+    this.queue.shutdown();
+  }
+
+  @Test
+  void coalescesChangesToTheSameRole() {
+    var blocker = this.queue.add(this.guild, role(1), USER_ID);
+    awaitFirstRequest();
+
+    var link = this.queue.add(this.guild, role(2), USER_ID);
+    var unlink = this.queue.remove(this.guild, role(2), USER_ID);
+    var relink = this.queue.add(this.guild, role(2), USER_ID);
+
+    this.firstRequest.complete(null);
+    CompletableFuture.allOf(blocker, link, unlink, relink).orTimeout(5, TimeUnit.SECONDS).join();
+
+    // only the final state is sent, everyone waiting on the pair gets its outcome
+    assertEquals(List.of("+1", "+2"), sent());
+    assertEquals(2, this.queue.getApplied());
+  }
+
+  @Test
+  void urgentChangesGoFirst() {
+    var blocker = this.queue.add(this.guild, role(1), USER_ID);
+    awaitFirstRequest();
+
+    var first = this.queue.add(this.guild, role(2), USER_ID);
+    var second = this.queue.add(this.guild, role(3), USER_ID);
+    var urgent = this.queue.remove(this.guild, role(4), USER_ID, true);
+    // an urgent change for a queued pair jumps ahead too
+    var promoted = this.queue.remove(this.guild, role(3), USER_ID, true);
+
+    this.firstRequest.complete(null);
+    CompletableFuture.allOf(blocker, first, second, urgent, promoted).orTimeout(5, TimeUnit.SECONDS).join();
+
+    assertEquals(List.of("+1", "-4", "-3", "+2"), sent());
+  }
+
+  @Test
+  void shutdownCancelsQueuedChanges() {
+    this.queue.add(this.guild, role(1), USER_ID);
+    var queued = this.queue.add(this.guild, role(2), USER_ID);
+
+    this.queue.shutdown();
+
+    assertThrows(CancellationException.class, queued::join);
+    assertEquals(0, this.queue.getPendingCount());
+  }
+
+  private void awaitFirstRequest() {
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (sent().isEmpty()) {
+      assertTrue(System.nanoTime() < deadline, "the first change was never sent");
+      Thread.onSpinWait();
+    }
+  }
+
+  private List<String> sent() {
+    synchronized (this.sent) {
+      return List.copyOf(this.sent);
+    }
+  }
+
+  private AuditableRestAction<Void> request(String change, Role role) {
+    boolean first;
+    synchronized (this.sent) {
+      first = this.sent.isEmpty();
+      this.sent.add(change + role.getIdLong());
+    }
+
+    var result = first ? this.firstRequest : CompletableFuture.<Void>completedFuture(null);
+
+    @SuppressWarnings("unchecked")
+    AuditableRestAction<Void> action = Fakes.of(AuditableRestAction.class, Map.of("submit", args -> result));
+    return action;
+  }
+
+  private Role role(long id) {
+    return Fakes.of(Role.class, Map.of(
+      "getIdLong", args -> id,
+      "getName", args -> "role " + id,
+      "getGuild", args -> this.guild
+    ));
+  }
+}
@@ -0,0 +1,179 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.requests.restaction.AuditableRestAction;
+import net.dv8tion.jda.api.utils.concurrent.Task;
+import ooo.foooooooooooo.velocitydiscord.database.DeferredLinkStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoleReconcilerTests {
+  private static final String LINKED_ROLE = "100";
+
+  private final List<Long> linked = new ArrayList<>(List.of(1L, 2L, 3L));
+  private final List<Member> members = new ArrayList<>();
+  // runs while the members load, like a link made during a long run
+  private Runnable duringLoad = () -> {};
+  // requests to discord never complete, so queued changes stay queued
+  private final AtomicInteger requests = new AtomicInteger();
+
+  private final RoleMutationQueue queue = new RoleMutationQueue(0);
+  private final Guild guild = Fakes.of(Guild.class, Map.of(
+    "loadMembers", args -> {
+      this.duringLoad.run();
+      return task(List.copyOf(this.members));
+    },
+    "addRoleToMember", args -> request(),
+    "removeRoleFromMember", args -> request()
+  ));
+  private final Role role = Fakes.of(Role.class, Map.of(
+    "getIdLong", args -> Long.parseLong(LINKED_ROLE),
+    "getName", args -> "linked",
+    "getGuild", args -> this.guild
+  ));
+  private final JDA jda = Fakes.of(JDA.class, Map.of("getRoleById", args -> this.role));
+
+  private final RoleReconciler reconciler = new RoleReconciler(new DeferredLinkStore(new CompletableFuture<>()) {
+    @Override
+    public CompletableFuture<List<Long>> getLinkedDiscordIds(long afterId, int limit) {
+      return CompletableFuture.completedFuture(RoleReconcilerTests.this.linked.stream().filter(id -> id > afterId).toList());
+    }
+  }, this.queue);
+
+  @AfterEach
+  void tearDown() {
+    this.queue.shutdown();
+  }
+
+  @Test
+  void queuesMissingChanges() {
+    this.members.add(member(1, true));
+    this.members.add(member(2, false));
+    this.members.add(member(4, true));
+
+    var result = reconcile(false);
+
+    assertEquals(List.of(2L), result.linked().add());
+    assertEquals(List.of(4L), result.linked().remove());
+    assertTrue(this.queue.isQueued(this.role, 2, true));
+    assertTrue(this.queue.isQueued(this.role, 4, false));
+    assertFalse(this.queue.isQueued(this.role, 1, true));
+  }
+
+  @Test
+  void dryRunQueuesNothing() {
+    this.members.add(member(2, false));
+
+    var result = reconcile(true);
+
+    assertEquals(List.of(2L), result.linked().add());
+    assertEquals(0, this.queue.getPendingCount());
+    assertEquals(0, this.requests.get());
+  }
+
+  @Test
+  void pendingChangesAreNotQueuedAgain() {
+    this.members.add(member(2, false));
+    this.members.add(member(3, false));
+    this.members.add(member(5, true));
+
+    var first = reconcile(false);
+    assertEquals(List.of(2L, 3L), first.linked().add());
+    assertEquals(List.of(5L), first.linked().remove());
+
+    // discord hasn't applied anything yet, neither the change it was sent nor the queued ones are queued again
+    var second = reconcile(false);
+
+    assertTrue(second.linked().add().isEmpty());
+    assertTrue(second.linked().remove().isEmpty());
+  }
+
+  @Test
+  void changesMadeDuringRunAreKept() {
+    this.members.add(member(2, false));
+    this.members.add(member(4, true));
+    this.members.add(member(5, true));
+
+    // 4 links and is given the role, 2 unlinks and loses it, after their IDs were read
+    this.duringLoad = () -> {
+      this.linked.add(4L);
+      this.linked.remove(2L);
+    };
+
+    var result = reconcile(false);
+
+    assertTrue(result.linked().add().isEmpty());
+    assertEquals(List.of(5L), result.linked().remove());
+    assertFalse(this.queue.isQueued(this.role, 4, false));
+    assertFalse(this.queue.isQueued(this.role, 2, true));
+  }
+
+  @Test
+  void diffOnlyContainsMissingChanges() {
+    var expected = Set.of(1L, 2L, 3L, 4L);
+    var members = Set.of(1L, 2L, 3L, 5L, 6L);
+    var holders = Set.of(1L, 5L);
+
+    var diff = RoleReconciler.diff(expected, members, holders);
+
+    // 4 left the guild, 6 never had the role
+    assertEquals(List.of(2L, 3L), diff.add());
+    assertEquals(List.of(5L), diff.remove());
+  }
+
+  @Test
+  void diffIsEmptyWhenInSync() {
+    var ids = Set.of(1L, 2L);
+
+    var diff = RoleReconciler.diff(ids, ids, ids);
+
+    assertTrue(diff.add().isEmpty());
+    assertTrue(diff.remove().isEmpty());
+  }
+
+  private RoleReconciler.Result reconcile(boolean dryRun) {
+    return this.reconciler.reconcile(this.jda, LINKED_ROLE, "", dryRun).join();
+  }
+
+  private Member member(long id, boolean hasRole) {
+    return Fakes.of(Member.class, Map.of(
+      "getIdLong", args -> id,
+      "getRoles", args -> hasRole ? List.of(this.role) : List.of()
+    ));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Task<List<Member>> task(List<Member> members) {
+    var task = new Task<?>[1];
+    task[0] = Fakes.of(Task.class, Map.of(
+      "onSuccess", args -> {
+        ((Consumer<List<Member>>) args[0]).accept(members);
+        return task[0];
+      },
+      "onError", args -> task[0]
+    ));
+    return (Task<List<Member>>) task[0];
+  }
+
+  private AuditableRestAction<Void> request() {
+    @SuppressWarnings("unchecked")
+    AuditableRestAction<Void> action = Fakes.of(AuditableRestAction.class, Map.of("submit", args -> {
+      this.requests.incrementAndGet();
+      return new CompletableFuture<Void>();
+    }));
+    return action;
+  }
+}
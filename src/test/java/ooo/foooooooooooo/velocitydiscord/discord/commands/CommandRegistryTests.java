@@ -0,0 +1,51 @@
+package ooo.foooooooooooo.velocitydiscord.discord.commands;
+
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandRegistryTests {
+  @Test
+  void hashIgnoresOrder() {
+    var first = new LinkedHashMap<String, ICommand>();
+    first.put("list", command("List all servers"));
+    first.put("link", command("Get a link code"));
+
+    var second = new LinkedHashMap<String, ICommand>();
+    second.put("link", command("Get a link code"));
+    second.put("list", command("List all servers"));
+
+    assertEquals(CommandRegistry.hash(first), CommandRegistry.hash(second));
+  }
+
+  @Test
+  void hashChangesWithCommands() {
+    var base = CommandRegistry.hash(Map.of("list", command("List all servers")));
+
+    assertNotEquals(base, CommandRegistry.hash(Map.of("list", command("List servers"))));
+    assertNotEquals(base, CommandRegistry.hash(Map.of("lis", command("tList all servers"))));
+    assertNotEquals(base, CommandRegistry.hash(Map.of()));
+  }
+
+  @Test
+  void keyDependsOnApplication() {
+    assertNotEquals(CommandRegistry.key("1", "100"), CommandRegistry.key("2", "100"));
+    assertNotEquals(CommandRegistry.key("1", "100"), CommandRegistry.key("1", "200"));
+  }
+
+  private static ICommand command(String description) {
+    return new ICommand() {
+      @Override
+      public void handle(SlashCommandInteraction interaction) {}
+
+      @Override
+      public String description() {
+        return description;
+      }
+    };
+  }
+}
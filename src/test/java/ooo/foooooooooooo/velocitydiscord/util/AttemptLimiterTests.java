@@ -0,0 +1,92 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttemptLimiterTests {
+  private final AtomicLong now = new AtomicLong(1_760_000_000_000L);
+
+  @Test
+  void allowsAttemptsWithinWindow() {
+    var limiter = new AttemptLimiter(3, 1000, 5000, 60_000, this.now::get);
+
+    for (var i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("player"));
+    }
+    assertEquals(5000, limiter.tryAcquire("player"));
+
+    // other keys are counted separately
+    assertEquals(0, limiter.tryAcquire("other"));
+  }
+
+  @Test
+  void oldAttemptsLeaveTheWindow() {
+    var limiter = new AttemptLimiter(2, 1000, 5000, 60_000, this.now::get);
+
+    assertEquals(0, limiter.tryAcquire("player"));
+    this.now.addAndGet(600);
+    assertEquals(0, limiter.tryAcquire("player"));
+    this.now.addAndGet(600);
+    assertEquals(0, limiter.tryAcquire("player"));
+  }
+
+  @Test
+  void lockoutDoublesUpToMax() {
+    var limiter = new AttemptLimiter(1, 1000, 5000, 12_000, this.now::get);
+
+    assertEquals(0, limiter.tryAcquire("player"));
+    assertEquals(5000, limiter.tryAcquire("player"));
+
+    this.now.addAndGet(1000);
+    assertEquals(4000, limiter.tryAcquire("player"));
+
+    this.now.addAndGet(4000);
+    assertEquals(0, limiter.tryAcquire("player"));
+    assertEquals(10_000, limiter.tryAcquire("player"));
+
+    this.now.addAndGet(10_000);
+    assertEquals(0, limiter.tryAcquire("player"));
+    assertEquals(12_000, limiter.tryAcquire("player"));
+
+    // staying quiet for the max lockout forgets the escalation
+    this.now.addAndGet(24_000);
+    assertEquals(0, limiter.tryAcquire("player"));
+    assertEquals(5000, limiter.tryAcquire("player"));
+  }
+
+  @Test
+  void resetForgetsAttempts() {
+    var limiter = new AttemptLimiter(2, 1000, 5000, 60_000, this.now::get);
+
+    assertEquals(0, limiter.tryAcquire("player"));
+    assertEquals(0, limiter.tryAcquire("player"));
+    limiter.reset("player");
+
+    assertEquals(0, limiter.tryAcquire("player"));
+    assertEquals(0, limiter.tryAcquire("player"));
+    assertTrue(limiter.tryAcquire("player") > 0);
+  }
+
+  @Test
+  void checkDoesNotRecord() {
+    var limiter = new AttemptLimiter(2, 1000, 5000, 60_000, this.now::get);
+
+    assertEquals(0, limiter.check("player"));
+    assertEquals(0, limiter.tryAcquire("player"));
+
+    for (var i = 0; i < 5; i++) {
+      assertEquals(0, limiter.check("player"));
+    }
+
+    assertEquals(0, limiter.tryAcquire("player"));
+    assertEquals(5000, limiter.check("player"));
+
+    // checking a full window does not start the lockout
+    assertEquals(5000, limiter.tryAcquire("player"));
+    this.now.addAndGet(1000);
+    assertEquals(4000, limiter.check("player"));
+  }
+}
@@ -0,0 +1,52 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpiringCacheTests {
+  private final AtomicLong now = new AtomicLong();
+
+  private final ExpiringCache<String, Integer> cache = new ExpiringCache<>(2, 100, this.now::get);
+
+  @Test
+  void getReturnsCachedValueUntilExpired() {
+    this.cache.put("a", 1);
+
+    this.now.set(99);
+    assertEquals(1, this.cache.get("a"));
+
+    this.now.set(100);
+    assertNull(this.cache.get("a"));
+    assertEquals(0, this.cache.size());
+  }
+
+  @Test
+  void leastRecentlyUsedEntryIsEvicted() {
+    this.cache.put("a", 1);
+    this.cache.put("b", 2);
+    this.cache.get("a");
+    this.cache.put("c", 3);
+
+    assertEquals(1, this.cache.get("a"));
+    assertNull(this.cache.get("b"));
+    assertEquals(3, this.cache.get("c"));
+    assertEquals(1, this.cache.stats().evictions());
+  }
+
+  @Test
+  void statsCountHitsAndMisses() {
+    this.cache.put("a", 1);
+    this.cache.get("a");
+    this.cache.get("a");
+    this.cache.get("missing");
+    this.cache.peek("missing");
+
+    var stats = this.cache.stats();
+    assertEquals(2, stats.hits());
+    assertEquals(1, stats.misses());
+    assertEquals(2.0 / 3, stats.hitRatio(), 1e-9);
+  }
+}
@@ -0,0 +1,63 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinkCacheTests {
+  private static final UUID PLAYER = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+  private static final UUID OTHER = UUID.fromString("853c80ef-3c37-49fd-aa49-938b674adae6");
+  private static final long DISCORD_ID = 1234567890123456789L;
+
+  private final LinkCache cache = new LinkCache(100, 600);
+
+  @Test
+  void readsAreStored() {
+    assertTrue(this.cache.putDiscordId(PLAYER, OptionalLong.empty(), this.cache.version()));
+    assertTrue(this.cache.putUuids(DISCORD_ID, Set.of(OTHER), this.cache.version()));
+
+    assertEquals(OptionalLong.empty(), this.cache.getDiscordId(PLAYER));
+    assertEquals(Set.of(OTHER), this.cache.getUuids(DISCORD_ID));
+    assertEquals(OptionalLong.of(DISCORD_ID), this.cache.getDiscordId(OTHER));
+  }
+
+  @Test
+  void readBeforeLinkIsDropped() {
+    // the read saw no link, the link was applied before the read finished
+    var version = this.cache.version();
+    this.cache.onLinked(PLAYER, DISCORD_ID);
+
+    assertFalse(this.cache.putDiscordId(PLAYER, OptionalLong.empty(), version));
+    assertFalse(this.cache.putUuids(DISCORD_ID, Set.of(), version));
+
+    assertEquals(OptionalLong.of(DISCORD_ID), this.cache.getDiscordId(PLAYER));
+    assertNull(this.cache.getUuids(DISCORD_ID));
+  }
+
+  @Test
+  void readBeforeUnlinkIsDropped() {
+    this.cache.putUuids(DISCORD_ID, Set.of(PLAYER), this.cache.version());
+
+    var version = this.cache.version();
+    this.cache.onUnlinked(PLAYER, DISCORD_ID);
+
+    assertFalse(this.cache.putDiscordId(PLAYER, OptionalLong.of(DISCORD_ID), version));
+    assertFalse(this.cache.putUuids(DISCORD_ID, Set.of(PLAYER), version));
+
+    assertEquals(OptionalLong.empty(), this.cache.getDiscordId(PLAYER));
+    assertEquals(Set.of(), this.cache.getUuids(DISCORD_ID));
+  }
+
+  @Test
+  void readBeforeClearIsDropped() {
+    var version = this.cache.version();
+    this.cache.clear();
+
+    assertFalse(this.cache.putDiscordId(PLAYER, OptionalLong.of(DISCORD_ID), version));
+    assertNull(this.cache.getDiscordId(PLAYER));
+  }
+}
@@ -0,0 +1,89 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinkCodesTests {
+  private static final long DISCORD_ID = 1234567890123456789L;
+  private static final long NOW = 1_760_000_000_000L;
+
+  private final LinkCodes codes = new LinkCodes("0123456789abcdef0123".getBytes(StandardCharsets.UTF_8), 900);
+
+  @Test
+  void issuedCodeVerifiesToDiscordId() {
+    var code = this.codes.issue(DISCORD_ID, NOW);
+
+    var result = this.codes.verify(code, NOW);
+
+    assertEquals(LinkCodes.Status.VALID, result.status());
+    assertEquals(DISCORD_ID, result.discordId());
+  }
+
+  @Test
+  void verifyIgnoresCaseAndDashes() {
+    var code = this.codes.issue(DISCORD_ID, NOW).toLowerCase().replace("-", "");
+
+    assertEquals(LinkCodes.Status.VALID, this.codes.verify(code, NOW).status());
+  }
+
+  @Test
+  void codeExpiresAfterTtl() {
+    var code = this.codes.issue(DISCORD_ID, NOW);
+
+    assertEquals(LinkCodes.Status.VALID, this.codes.verify(code, NOW + 14 * 60_000L).status());
+    assertEquals(LinkCodes.Status.EXPIRED, this.codes.verify(code, NOW + 15 * 60_000L).status());
+    assertEquals(LinkCodes.Status.EXPIRED, this.codes.verify(code, NOW + 17 * 60_000L).status());
+  }
+
+  @Test
+  void codeLength() {
+    var code = this.codes.issue(DISCORD_ID, NOW);
+
+    assertEquals(24, code.replace("-", "").length());
+    assertEquals(29, code.length());
+  }
+
+  @Test
+  void tamperedCodeNamesNoOne() {
+    var code = this.codes.issue(DISCORD_ID, NOW);
+    var last = code.length() - 1;
+    var tampered = code.substring(0, last) + (code.charAt(last) == 'A' ? 'B' : 'A');
+
+    var result = this.codes.verify(tampered, NOW);
+
+    // an unverified ID must not be used for anything, not even to count failed attempts
+    assertEquals(LinkCodes.Status.INVALID, result.status());
+    assertEquals(0, result.discordId());
+  }
+
+  @Test
+  void idsOver62BitsAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> this.codes.issue(1L << 62, NOW));
+    assertThrows(IllegalArgumentException.class, () -> new LinkCodes(new byte[16], 3600));
+  }
+
+  @Test
+  void tamperedCodeIsInvalid() {
+    var code = this.codes.issue(DISCORD_ID, NOW);
+    var tampered = (code.charAt(0) == 'A' ? 'B' : 'A') + code.substring(1);
+
+    assertEquals(LinkCodes.Status.INVALID, this.codes.verify(tampered, NOW).status());
+  }
+
+  @Test
+  void codeFromOtherSecretIsInvalid() {
+    var other = new LinkCodes("another secret, 16+ bytes".getBytes(StandardCharsets.UTF_8), 900);
+
+    assertEquals(LinkCodes.Status.INVALID, this.codes.verify(other.issue(DISCORD_ID, NOW), NOW).status());
+  }
+
+  @Test
+  void wellFormedOnlyAcceptsFullLengthCodes() {
+    assertTrue(LinkCodes.isWellFormed(this.codes.issue(DISCORD_ID, NOW)));
+    assertFalse(LinkCodes.isWellFormed("123456"));
+    assertFalse(LinkCodes.isWellFormed(""));
+  }
+}
@@ -0,0 +1,90 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WordFilterTests {
+  // a distinct word for every number, without the digits and letters that fold together as leetspeak
+  private static String letters(int i) {
+    var alphabet = "abcdefghjkmnopqrstuvwxyz";
+    var word = new StringBuilder("x");
+    do {
+      word.append(alphabet.charAt(i % alphabet.length()));
+      i /= alphabet.length();
+    } while (i > 0);
+    return word.toString();
+  }
+
+  private static List<String> terms(WordFilter filter, String text) {
+    return filter.find(text).stream().map(WordFilter.Match::term).toList();
+  }
+
+  @Test
+  void matchesWholeWordsOnly() {
+    var filter = WordFilter.compile(List.of("bad", "very bad thing"));
+
+    assertEquals(List.of("bad"), terms(filter, "that is bad!"));
+    assertEquals(List.of(), terms(filter, "badge baddie forbade"));
+    assertEquals(List.of("bad", "very bad thing"), terms(filter, "a very bad thing"));
+  }
+
+  @Test
+  void wildcardsMatchInsideWords() {
+    var filter = WordFilter.compile(List.of("bad*", "*ugly"));
+
+    assertEquals(List.of("bad"), terms(filter, "baddies"));
+    assertEquals(List.of("ugly"), terms(filter, "fugly"));
+    assertEquals(List.of(), terms(filter, "uglyness"));
+  }
+
+  @Test
+  void normalizesCaseLeetspeakAndInvisibleCharacters() {
+    var filter = WordFilter.compile(List.of("slur"));
+
+    assertEquals(List.of("slur"), terms(filter, "SLUR"));
+    assertEquals(List.of("slur"), terms(filter, "$1ur"));
+    assertEquals(List.of("slur"), terms(filter, "5|ur"));
+    assertEquals(List.of("slur"), terms(filter, "s\u200Bl\u200Du\u00ADr"));
+    assertEquals(List.of("slur"), terms(filter, "slu\u0301r"));
+  }
+
+  @Test
+  void masksOriginalCharacters() {
+    var filter = WordFilter.compile(List.of("slur"));
+    var text = "a s\u200Blur here";
+
+    assertEquals("a ***** here", WordFilter.mask(text, filter.find(text)));
+    assertEquals("clean", WordFilter.mask("clean", filter.find("clean")));
+  }
+
+  @Test
+  void findsOverlappingTerms() {
+    var filter = WordFilter.compile(List.of("*he*", "*she*", "*hers"));
+
+    assertEquals(List.of("she", "he", "hers"), terms(filter, "ushers"));
+  }
+
+  @Test
+  void ignoresBlankAndDuplicateTerms() {
+    var filter = WordFilter.compile(List.of("", "  ", "*", "word", "Word", "word*"));
+
+    assertEquals(1, filter.size());
+    assertEquals(List.of("word"), terms(filter, "wordy"));
+    assertTrue(WordFilter.EMPTY.find("anything").isEmpty());
+  }
+
+  @Test
+  void compilesLargeLists() {
+    var words = new ArrayList<String>();
+    for (var i = 0; i < 50_000; i++) words.add(letters(i));
+
+    var filter = WordFilter.compile(words);
+
+    assertEquals(50_000, filter.size());
+    assertEquals(List.of(words.get(12345)), terms(filter, "say " + words.get(12345) + " again"));
+  }
+}